@@ -0,0 +1,12 @@
+package com.ango.batch;
+
+/**
+ * A writer that knows the rows its statements changed, the step keeps them in its status
+ */
+public interface IAffectedRows
+{
+    /**
+     * Rows changed by the chunks committed since the writer was opened
+     */
+    long affectedRows();
+}
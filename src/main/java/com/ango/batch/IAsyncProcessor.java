@@ -0,0 +1,18 @@
+package com.ango.batch;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface IAsyncProcessor<T,K> extends IProcessor<T,K>
+{
+    /**
+     * Starts processing an item without waiting for it, like a call to a remote service. A null result filters
+     * the item
+     */
+    CompletableFuture<K> processAsync(T item);
+
+    @Override
+    default K process(T item)
+    {
+        return processAsync(item).join();
+    }
+}
@@ -0,0 +1,20 @@
+package com.ango.batch;
+
+import java.util.Collections;
+import java.util.List;
+
+public interface IBatchProcessor<T,K> extends IProcessor<T,K>
+{
+    /**
+     * Processes a whole chunk at once, like a lookup of all its keys in one query. The items are returned in the
+     * same order, a null item is filtered as when process(item) returns null
+     */
+    List<K> process(List<T> items);
+
+    @Override
+    default K process(T item)
+    {
+        final List<K> processed = process(Collections.singletonList(item));
+        return processed.isEmpty() ? null : processed.get(0);
+    }
+}
@@ -0,0 +1,22 @@
+package com.ango.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public interface IBulkReader<T> extends IReader<T>
+{
+    /**
+     * Appends up to max items to the buffer in one call, the buffer may be reused between chunks
+     *
+     * @return Items appended, fewer than max only at the end of data
+     */
+    int read(List<T> buffer, int max);
+
+    /**
+     * An empty buffer for the chunks, a reader of primitives gives one backed by an array
+     */
+    default List<T> newBuffer(int capacity)
+    {
+        return new ArrayList<>(capacity);
+    }
+}
@@ -0,0 +1,14 @@
+package com.ango.batch;
+
+public interface ICheckpointable
+{
+    /**
+     * Position after the last item read, it's saved when the chunks read until it are committed
+     */
+    String checkpoint();
+
+    /**
+     * Moves to a position saved before, it's called after open when a failed step is executed again
+     */
+    void restore(String checkpoint);
+}
@@ -5,9 +5,14 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.ango.batch.chunk.simple.ChunkStep;
 import com.ango.batch.chunk.simple.ChunkStepStatus;
+import com.ango.batch.chunk.AdaptiveCommitInterval;
+import com.ango.batch.chunk.FaultTolerance;
 import com.ango.batch.exceptions.ValidationException;
+import com.ango.batch.resource.ProcessorResource;
 
 import javax.transaction.TransactionManager;
+import java.util.ArrayList;
+import java.util.List;
 
 public interface IChunkStepBuilder<T,K> extends IStepBuilder<IChunkStepBuilder<T,K>>
 {
@@ -19,8 +24,54 @@ public interface IChunkStepBuilder<T,K> extends IStepBuilder<IChunkStepBuilder<T
 
     IChunkStepBuilder<T,K> setCommitInterval(int size);
 
+    /**
+     * Limits of the commit interval when it's adaptive, the one set with setCommitInterval is the first one
+     */
+    IChunkStepBuilder<T,K> setCommitIntervalBounds(int min, int max);
+
+    /**
+     * Makes the commit interval adaptive, resizing the chunks so each one takes at most these millis
+     */
+    IChunkStepBuilder<T,K> setTargetLatency(long millis);
+
+    /**
+     * With an adaptive commit interval the chunks stop growing once this throughput is reached
+     */
+    IChunkStepBuilder<T,K> setTargetThroughput(int itemsPerSecond);
+
     IChunkStepBuilder<T,K> setTransactionManager(TransactionManager transactionManager);
 
+    /**
+     * Items that fail on their own are skipped up to this limit, the rest of their chunk is written
+     */
+    IChunkStepBuilder<T,K> setSkipLimit(int limit);
+
+    /**
+     * Tries of a failed chunk before looking for the items that fail
+     */
+    IChunkStepBuilder<T,K> setRetryLimit(int retries);
+
+    /**
+     * Failures that allow to skip an item, by default any Exception
+     */
+    IChunkStepBuilder<T,K> addSkippableException(Class<? extends Throwable> exception);
+
+    /**
+     * Saves the position of the reader with each chunk committed, a step that didn't complete restarts from it
+     */
+    IChunkStepBuilder<T,K> setRepository(IJobRepository repository);
+
+    /**
+     * Processes the items of each chunk in parallel, in tasks of at least these items. The processor must be thread safe
+     */
+    IChunkStepBuilder<T,K> setParallelProcessing(int minItemsPerTask);
+
+    /**
+     * Limits of an async processor, the items of a chunk waiting for their result at the same time and the millis
+     * each one can take, 0 to wait forever
+     */
+    IChunkStepBuilder<T,K> setAsyncProcessing(int maxInFlight, long timeoutMillis);
+
     static <T,K> IChunkStepBuilder<T,K> instance()
     {
         return new IChunkStepBuilder<>()
@@ -30,8 +81,19 @@ public interface IChunkStepBuilder<T,K> extends IStepBuilder<IChunkStepBuilder<T
             private IProcessor<T,K> processor = null;
             private IWriter<K> writer = null;
             private int commitInterval = 1;
+            private int minCommitInterval = 1;
+            private int maxCommitInterval = Integer.MAX_VALUE;
+            private long targetLatency = 0;
+            private int targetThroughput = 0;
             private boolean throwExceptions = true;
             private TransactionManager transactionManager;
+            private int skipLimit = 0;
+            private int retryLimit = 0;
+            private final List<Class<? extends Throwable>> skippableExceptions = new ArrayList<>();
+            private IJobRepository repository;
+            private int parallelProcessing = 0;
+            private int maxInFlight = ProcessorResource.DEFAULT_MAX_IN_FLIGHT;
+            private long asyncTimeout = 0;
 
             @Override
             public IChunkStepBuilder<T,K> setName(String name)
@@ -68,6 +130,28 @@ public interface IChunkStepBuilder<T,K> extends IStepBuilder<IChunkStepBuilder<T
                 return this;
             }
 
+            @Override
+            public IChunkStepBuilder<T,K> setCommitIntervalBounds(int min, int max)
+            {
+                this.minCommitInterval = min;
+                this.maxCommitInterval = max;
+                return this;
+            }
+
+            @Override
+            public IChunkStepBuilder<T,K> setTargetLatency(long millis)
+            {
+                this.targetLatency = millis;
+                return this;
+            }
+
+            @Override
+            public IChunkStepBuilder<T,K> setTargetThroughput(int itemsPerSecond)
+            {
+                this.targetThroughput = itemsPerSecond;
+                return this;
+            }
+
             @Override
             public IChunkStepBuilder<T, K> setTransactionManager(TransactionManager transactionManager)
             {
@@ -82,18 +166,74 @@ public interface IChunkStepBuilder<T,K> extends IStepBuilder<IChunkStepBuilder<T
                 return this;
             }
 
+            @Override
+            public IChunkStepBuilder<T,K> setSkipLimit(int limit)
+            {
+                this.skipLimit = limit;
+                return this;
+            }
+
+            @Override
+            public IChunkStepBuilder<T,K> setRetryLimit(int retries)
+            {
+                this.retryLimit = retries;
+                return this;
+            }
+
+            @Override
+            public IChunkStepBuilder<T,K> addSkippableException(Class<? extends Throwable> exception)
+            {
+                this.skippableExceptions.add(exception);
+                return this;
+            }
+
+            @Override
+            public IChunkStepBuilder<T,K> setRepository(IJobRepository repository)
+            {
+                this.repository = repository;
+                return this;
+            }
+
+            @Override
+            public IChunkStepBuilder<T,K> setParallelProcessing(int minItemsPerTask)
+            {
+                this.parallelProcessing = minItemsPerTask;
+                return this;
+            }
+
+            @Override
+            public IChunkStepBuilder<T,K> setAsyncProcessing(int maxInFlight, long timeoutMillis)
+            {
+                this.maxInFlight = maxInFlight;
+                this.asyncTimeout = timeoutMillis;
+                return this;
+            }
+
             @Override
             public IStep build()
             {
                 validate();
                 final ChunkStep<T,K> step = new ChunkStep<>();
-                step.setStatus(new ChunkStepStatus(name));
+                final ChunkStepStatus status = new ChunkStepStatus(name);
+                status.setRepository(repository);
+                step.setStatus(status);
                 step.setReader(reader);
                 step.setProcessor(processor);
                 step.setWriter(writer);
                 step.setCommitInterval(commitInterval);
+                if (targetLatency > 0)
+                {
+                    step.setAdaptiveCommitInterval(new AdaptiveCommitInterval(commitInterval, minCommitInterval, maxCommitInterval,
+                            targetLatency, targetThroughput));
+                }
                 step.setThrowExceptions(throwExceptions);
                 step.setTransactionManager(null == transactionManager ? BatchTransactionManager.getInstance() : transactionManager);
+                step.setParallelProcessing(parallelProcessing);
+                step.setAsyncLimits(maxInFlight, asyncTimeout);
+                if (skipLimit > 0 || retryLimit > 0)
+                {
+                    step.setFaultTolerance(new FaultTolerance(skipLimit, retryLimit, skippableExceptions));
+                }
                 return step;
             }
 
@@ -111,6 +251,46 @@ public interface IChunkStepBuilder<T,K> extends IStepBuilder<IChunkStepBuilder<T
                 {
                     throw new ValidationException("The writer cannot be null");
                 }
+                if (minCommitInterval <= 0 || maxCommitInterval < minCommitInterval)
+                {
+                    throw new ValidationException("The commit interval bounds must be positive and min not greater than max");
+                }
+                if (null != repository && !(reader instanceof ICheckpointable))
+                {
+                    throw new ValidationException("The restart needs a checkpointable reader");
+                }
+                if (parallelProcessing < 0)
+                {
+                    throw new ValidationException("The items per parallel task must be greater or equals to zero");
+                }
+                if (maxInFlight <= 0)
+                {
+                    throw new ValidationException("The items in flight must be positive");
+                }
+                if (asyncTimeout < 0)
+                {
+                    throw new ValidationException("The async timeout must be greater or equals to zero");
+                }
+                if (skipLimit < 0)
+                {
+                    throw new ValidationException("The skip limit must be greater or equals to zero");
+                }
+                if (retryLimit < 0)
+                {
+                    throw new ValidationException("The retry limit must be greater or equals to zero");
+                }
+                if (skippableExceptions.contains(null))
+                {
+                    throw new ValidationException("The skippable exceptions cannot be null");
+                }
+                if (targetLatency < 0)
+                {
+                    throw new ValidationException("The target latency must be greater or equals to zero");
+                }
+                if (targetThroughput < 0)
+                {
+                    throw new ValidationException("The target throughput must be greater or equals to zero");
+                }
             }
         };
     }
@@ -0,0 +1,189 @@
+package com.ango.batch;
+
+import com.ango.batch.chunk.flow.FlowStep;
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import com.ango.batch.exceptions.ValidationException;
+import com.ango.batch.thread.ThreadMode;
+import com.ango.batch.tx.BatchTransactionManager;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.transaction.TransactionManager;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+public interface IFlowStepBuilder<T,K> extends IStepBuilder<IFlowStepBuilder<T,K>>
+{
+    /**
+     * The source of the items, they are requested two chunks per consumer at a time
+     */
+    IFlowStepBuilder<T,K> setPublisher(Flow.Publisher<T> publisher);
+
+    IFlowStepBuilder<T,K> setProcessorFactory(Supplier<IProcessor<T,K>> factory);
+
+    IFlowStepBuilder<T,K> setWriterFactory(Supplier<IWriter<K>> factory);
+
+    /**
+     * Receives each chunk once committed, a chunk for each one requested
+     */
+    IFlowStepBuilder<T,K> setSubscriber(Flow.Subscriber<? super List<K>> subscriber);
+
+    IFlowStepBuilder<T,K> setCommitInterval(int size);
+
+    IFlowStepBuilder<T,K> setConsumers(int consumers);
+
+    /**
+     * Max seconds a consumer waits for a chunk or for the subscriber to request one, 0 to wait forever
+     */
+    IFlowStepBuilder<T,K> setWaitTimeout(int timeout);
+
+    IFlowStepBuilder<T,K> setTransactionManager(TransactionManager transactionManager);
+
+    IFlowStepBuilder<T,K> setThreadMode(ThreadMode threadMode);
+
+    static <T,K> IFlowStepBuilder<T,K> instance()
+    {
+        return new IFlowStepBuilder<>()
+        {
+            private String name = null;
+            private Flow.Publisher<T> publisher = null;
+            private Supplier<IProcessor<T,K>> processorFactory = null;
+            private Supplier<IWriter<K>> writerFactory = null;
+            private Flow.Subscriber<? super List<K>> subscriber = null;
+            private int commitInterval = 1;
+            private int consumers = 1;
+            private int waitTimeout = 0;
+            private boolean throwExceptions = true;
+            private TransactionManager transactionManager;
+            private ThreadMode threadMode = ThreadMode.Platform;
+
+            @Override
+            public IFlowStepBuilder<T,K> setName(String name)
+            {
+                this.name = name;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setPublisher(Flow.Publisher<T> publisher)
+            {
+                this.publisher = publisher;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setProcessorFactory(Supplier<IProcessor<T,K>> factory)
+            {
+                this.processorFactory = factory;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setWriterFactory(Supplier<IWriter<K>> factory)
+            {
+                this.writerFactory = factory;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setSubscriber(Flow.Subscriber<? super List<K>> subscriber)
+            {
+                this.subscriber = subscriber;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setCommitInterval(int size)
+            {
+                this.commitInterval = size;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setConsumers(int consumers)
+            {
+                this.consumers = consumers;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setWaitTimeout(int timeout)
+            {
+                this.waitTimeout = timeout;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setTransactionManager(TransactionManager transactionManager)
+            {
+                this.transactionManager = transactionManager;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setThreadMode(ThreadMode threadMode)
+            {
+                this.threadMode = threadMode;
+                return this;
+            }
+
+            @Override
+            public IFlowStepBuilder<T,K> setThrowExceptions(boolean value)
+            {
+                this.throwExceptions = value;
+                return this;
+            }
+
+            @Override
+            public IStep build()
+            {
+                validate();
+                final FlowStep<T,K> step = new FlowStep<>();
+                step.setStatus(new ChunkStepStatus(name));
+                step.setPublisher(publisher);
+                step.setProcessorFactory(processorFactory);
+                step.setWriterFactory(writerFactory);
+                step.setSubscriber(subscriber);
+                step.setCommitInterval(commitInterval);
+                step.setConsumers(consumers);
+                step.setWaitTimeout(waitTimeout);
+                step.setThrowExceptions(throwExceptions);
+                step.setThreadMode(threadMode);
+                step.setTransactionManager(null == transactionManager ? BatchTransactionManager.getInstance() : transactionManager);
+                return step;
+            }
+
+            private void validate()
+            {
+                if (StringUtils.isBlank(name))
+                {
+                    throw new ValidationException("The step must have a name");
+                }
+                if (null == publisher)
+                {
+                    throw new ValidationException("The publisher cannot be null");
+                }
+                if (null == writerFactory && null == subscriber)
+                {
+                    throw new ValidationException("The step needs a writer factory or a subscriber");
+                }
+                if (commitInterval <= 0)
+                {
+                    throw new ValidationException("The commit interval must be positive");
+                }
+                if (consumers <= 0)
+                {
+                    throw new ValidationException("The threads must be positive");
+                }
+                if (waitTimeout < 0)
+                {
+                    throw new ValidationException("The wait timeout must be greater or equals to zero");
+                }
+                if (null == threadMode)
+                {
+                    throw new ValidationException("The thread mode cannot be null");
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.ango.batch;
+
+import java.util.function.Function;
+
+public interface IItemRouter<T>
+{
+    /**
+     * Chooses the consumer of an item, between 0 and consumers - 1. The items routed to the same consumer are
+     * written in order by one thread
+     */
+    int route(T item, int consumers);
+
+    /**
+     * Routes all the items with the same key to the same consumer
+     */
+    static <T> IItemRouter<T> byKey(Function<? super T, ?> keyExtractor)
+    {
+        return (item, consumers) -> {
+            final Object key = keyExtractor.apply(item);
+            final int hash = (null == key) ? 0 : key.hashCode();
+            //Spread the high bits, keys with a common stride collide less
+            return Math.floorMod(hash ^ (hash >>> 16), consumers);
+        };
+    }
+}
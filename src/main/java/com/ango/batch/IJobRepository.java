@@ -0,0 +1,18 @@
+package com.ango.batch;
+
+import com.ango.batch.status.StepCheckpoint;
+
+public interface IJobRepository
+{
+    /**
+     * Replaces the last checkpoint of the step
+     */
+    void save(StepCheckpoint checkpoint);
+
+    /**
+     * @return The last checkpoint of the step, null if it was never saved
+     */
+    StepCheckpoint load(String stepName);
+
+    void remove(String stepName);
+}
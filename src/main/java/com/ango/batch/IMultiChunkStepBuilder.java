@@ -1,14 +1,24 @@
 package com.ango.batch;
 
+import com.ango.batch.chunk.multi.CommitMode;
+import com.ango.batch.chunk.multi.MultiChunkMode;
 import com.ango.batch.chunk.multi.MultiChunkStatus;
 import com.ango.batch.chunk.multi.MultiChunkStep;
+import com.ango.batch.chunk.AdaptiveCommitInterval;
+import com.ango.batch.chunk.FaultTolerance;
+import com.ango.batch.chunk.ItemCache;
 import com.ango.batch.exceptions.ValidationException;
+import com.ango.batch.resource.ProcessorResource;
+import com.ango.batch.thread.ExecutorPool;
+import com.ango.batch.thread.ThreadMode;
 import com.ango.batch.tx.BatchTransactionManager;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.transaction.TransactionManager;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkStepBuilder<T,K>>
 {
@@ -18,14 +28,104 @@ public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkSte
 
     IMultiChunkStepBuilder<T,K> addWriter(IWriter<K> writer);
 
+    /**
+     * Creates the processor of each consumer instead of adding them one by one
+     */
+    IMultiChunkStepBuilder<T,K> setProcessorFactory(Supplier<IProcessor<T,K>> factory);
+
+    /**
+     * Creates the writer of each consumer instead of adding them one by one
+     */
+    IMultiChunkStepBuilder<T,K> setWriterFactory(Supplier<IWriter<K>> factory);
+
     IMultiChunkStepBuilder<T,K> setCommitInterval(int size);
 
+    /**
+     * Limits of the commit interval when it's adaptive, the one set with setCommitInterval is the first one
+     */
+    IMultiChunkStepBuilder<T,K> setCommitIntervalBounds(int min, int max);
+
+    /**
+     * Makes the commit interval adaptive, resizing the chunks so each one takes at most these millis
+     */
+    IMultiChunkStepBuilder<T,K> setTargetLatency(long millis);
+
+    /**
+     * With an adaptive commit interval the chunks stop growing once this throughput is reached
+     */
+    IMultiChunkStepBuilder<T,K> setTargetThroughput(int itemsPerSecond);
+
     IMultiChunkStepBuilder<T,K> setConsumers(int consumers);
 
+    /**
+     * In work pulling mode the consumers are added and retired while the step runs, with the backlog of chunks read
+     * and the time the consumers wait for data. It needs the factories
+     */
+    IMultiChunkStepBuilder<T,K> setElasticConsumers(int min, int max);
+
     IMultiChunkStepBuilder<T,K> setWaitTimeout(int timeout);
 
     IMultiChunkStepBuilder<T,K> setTransactionManager(TransactionManager transactionManager);
 
+    /**
+     * Items that fail on their own are skipped up to this limit, the rest of their chunk is written
+     */
+    IMultiChunkStepBuilder<T,K> setSkipLimit(int limit);
+
+    /**
+     * Tries of a failed chunk before looking for the items that fail
+     */
+    IMultiChunkStepBuilder<T,K> setRetryLimit(int retries);
+
+    /**
+     * Failures that allow to skip an item, by default any Exception
+     */
+    IMultiChunkStepBuilder<T,K> addSkippableException(Class<? extends Throwable> exception);
+
+    /**
+     * Saves the position of the reader with each chunk committed, a step that didn't complete restarts from it
+     */
+    IMultiChunkStepBuilder<T,K> setRepository(IJobRepository repository);
+
+    /**
+     * Processes the items of each chunk in parallel, in tasks of at least these items. The processor must be thread safe
+     */
+    IMultiChunkStepBuilder<T,K> setParallelProcessing(int minItemsPerTask);
+
+    /**
+     * Limits of an async processor, the items of a chunk waiting for their result at the same time and the millis
+     * each one can take, 0 to wait forever
+     */
+    IMultiChunkStepBuilder<T,K> setAsyncProcessing(int maxInFlight, long timeoutMillis);
+
+    /**
+     * Processes the items through a cache shared by all the consumers, keyed by the whole item
+     *
+     * @param ttlMillis Millis a result is valid, 0 to keep it while there's room
+     */
+    IMultiChunkStepBuilder<T,K> setProcessorCache(int maxSize, long ttlMillis);
+
+    /**
+     * Processes the items through a cache shared by all the consumers, keyed by the part of the item the result depends on
+     */
+    IMultiChunkStepBuilder<T,K> setProcessorCache(int maxSize, long ttlMillis, Function<? super T, ?> key);
+
+    IMultiChunkStepBuilder<T,K> setMode(MultiChunkMode mode);
+
+    IMultiChunkStepBuilder<T,K> setReadAhead(int depth);
+
+    /**
+     * How the consumers of a lockstep round commit, in work pulling mode each consumer commits on its own
+     */
+    IMultiChunkStepBuilder<T,K> setCommitMode(CommitMode commitMode);
+
+    IMultiChunkStepBuilder<T,K> setThreadMode(ThreadMode threadMode);
+
+    /**
+     * Sends the items with the same route to the same consumer, so they are never written at the same time
+     */
+    IMultiChunkStepBuilder<T,K> setRouter(IItemRouter<T> router);
+
     static <T,K> IMultiChunkStepBuilder<T,K> instance()
     {
         return new IMultiChunkStepBuilder<>()
@@ -35,10 +135,32 @@ public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkSte
             private final List<IProcessor<T,K>> processors = new ArrayList<>();
             private final List<IWriter<K>> writers = new ArrayList<>();
             private int commitInterval = 1;
+            private int minCommitInterval = 1;
+            private int maxCommitInterval = Integer.MAX_VALUE;
+            private long targetLatency = 0;
+            private int targetThroughput = 0;
+            private Supplier<IProcessor<T,K>> processorFactory;
+            private Supplier<IWriter<K>> writerFactory;
             private int consumers;
+            private int maxConsumers;
             private int waitTimeout;
             private boolean throwExceptions = true;
             private TransactionManager transactionManager;
+            private int skipLimit = 0;
+            private int retryLimit = 0;
+            private final List<Class<? extends Throwable>> skippableExceptions = new ArrayList<>();
+            private IJobRepository repository;
+            private int parallelProcessing = 0;
+            private int maxInFlight = ProcessorResource.DEFAULT_MAX_IN_FLIGHT;
+            private long asyncTimeout = 0;
+            private int cacheSize = 0;
+            private long cacheTtl = 0;
+            private Function<? super T, ?> cacheKey = Function.identity();
+            private ThreadMode threadMode = ThreadMode.Platform;
+            private MultiChunkMode mode = MultiChunkMode.Lockstep;
+            private int readAhead = 1;
+            private CommitMode commitMode = CommitMode.Sequential;
+            private IItemRouter<T> router;
 
             @Override
             public IMultiChunkStepBuilder<T,K> setName(String name)
@@ -68,6 +190,20 @@ public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkSte
                 return this;
             }
 
+            @Override
+            public IMultiChunkStepBuilder<T,K> setProcessorFactory(Supplier<IProcessor<T,K>> factory)
+            {
+                this.processorFactory = factory;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setWriterFactory(Supplier<IWriter<K>> factory)
+            {
+                this.writerFactory = factory;
+                return this;
+            }
+
             @Override
             public IMultiChunkStepBuilder<T,K> setCommitInterval(int size)
             {
@@ -75,6 +211,28 @@ public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkSte
                 return this;
             }
 
+            @Override
+            public IMultiChunkStepBuilder<T,K> setCommitIntervalBounds(int min, int max)
+            {
+                this.minCommitInterval = min;
+                this.maxCommitInterval = max;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setTargetLatency(long millis)
+            {
+                this.targetLatency = millis;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setTargetThroughput(int itemsPerSecond)
+            {
+                this.targetThroughput = itemsPerSecond;
+                return this;
+            }
+
             @Override
             public IMultiChunkStepBuilder<T, K> setConsumers(int consumers)
             {
@@ -82,6 +240,14 @@ public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkSte
                 return this;
             }
 
+            @Override
+            public IMultiChunkStepBuilder<T, K> setElasticConsumers(int min, int max)
+            {
+                this.consumers = min;
+                this.maxConsumers = max;
+                return this;
+            }
+
             @Override
             public IMultiChunkStepBuilder<T, K> setWaitTimeout(int timeout)
             {
@@ -96,6 +262,27 @@ public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkSte
                 return this;
             }
 
+            @Override
+            public IMultiChunkStepBuilder<T, K> setMode(MultiChunkMode mode)
+            {
+                this.mode = mode;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T, K> setReadAhead(int depth)
+            {
+                this.readAhead = depth;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T, K> setCommitMode(CommitMode commitMode)
+            {
+                this.commitMode = commitMode;
+                return this;
+            }
+
             @Override
             public IMultiChunkStepBuilder<T,K> setThrowExceptions(boolean value)
             {
@@ -103,13 +290,91 @@ public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkSte
                 return this;
             }
 
+            @Override
+            public IMultiChunkStepBuilder<T,K> setThreadMode(ThreadMode threadMode)
+            {
+                this.threadMode = threadMode;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setRouter(IItemRouter<T> router)
+            {
+                this.router = router;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setSkipLimit(int limit)
+            {
+                this.skipLimit = limit;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setRetryLimit(int retries)
+            {
+                this.retryLimit = retries;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> addSkippableException(Class<? extends Throwable> exception)
+            {
+                this.skippableExceptions.add(exception);
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setRepository(IJobRepository repository)
+            {
+                this.repository = repository;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setParallelProcessing(int minItemsPerTask)
+            {
+                this.parallelProcessing = minItemsPerTask;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setAsyncProcessing(int maxInFlight, long timeoutMillis)
+            {
+                this.maxInFlight = maxInFlight;
+                this.asyncTimeout = timeoutMillis;
+                return this;
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setProcessorCache(int maxSize, long ttlMillis)
+            {
+                return setProcessorCache(maxSize, ttlMillis, Function.identity());
+            }
+
+            @Override
+            public IMultiChunkStepBuilder<T,K> setProcessorCache(int maxSize, long ttlMillis, Function<? super T, ?> key)
+            {
+                this.cacheSize = maxSize;
+                this.cacheTtl = ttlMillis;
+                this.cacheKey = key;
+                return this;
+            }
+
             @Override
             public IStep build()
             {
                 validate();
                 final MultiChunkStep<T,K> step = new MultiChunkStep<>();
-                step.setStatus(new MultiChunkStatus(name));
+                final MultiChunkStatus status = new MultiChunkStatus(name);
+                status.setRepository(repository);
+                step.setStatus(status);
                 step.setReader(reader);
+                if (cacheSize > 0)
+                {
+                    step.setProcessorCache(new ItemCache<>(cacheSize, cacheTtl), cacheKey);
+                }
                 for (final IProcessor<T,K> processor : processors)
                 {
                     step.addProcessor(processor);
@@ -119,10 +384,29 @@ public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkSte
                     step.addWriter(writer);
                 }
                 step.setCommitInterval(commitInterval);
+                if (targetLatency > 0)
+                {
+                    step.setAdaptiveCommitInterval(new AdaptiveCommitInterval(commitInterval, minCommitInterval, maxCommitInterval,
+                            targetLatency, targetThroughput));
+                }
                 step.setThrowExceptions(throwExceptions);
+                step.setThreadMode(threadMode);
                 step.setTransactionManager(null == transactionManager ? BatchTransactionManager.getInstance() : transactionManager);
+                step.setParallelProcessing(parallelProcessing);
+                step.setAsyncLimits(maxInFlight, asyncTimeout);
+                if (skipLimit > 0 || retryLimit > 0)
+                {
+                    step.setFaultTolerance(new FaultTolerance(skipLimit, retryLimit, skippableExceptions));
+                }
+                step.setProcessorFactory(processorFactory);
+                step.setWriterFactory(writerFactory);
                 step.setConsumers(consumers);
+                step.setMaxConsumers(maxConsumers);
                 step.setWaitTimeout(waitTimeout);
+                step.setMode(mode);
+                step.setReadAhead(readAhead);
+                step.setCommitMode(commitMode);
+                step.setRouter(router);
                 return step;
             }
 
@@ -140,21 +424,147 @@ public interface IMultiChunkStepBuilder<T,K> extends IStepBuilder<IMultiChunkSte
                 {
                     throw new ValidationException("The threads must be positive");
                 }
-                if (writers.size() != consumers)
+                if (null != writerFactory)
+                {
+                    if (!writers.isEmpty() || !processors.isEmpty())
+                    {
+                        throw new ValidationException("The processors and writers must be added or created by the factories, not both");
+                    }
+                }
+                else
+                {
+                    if (null != processorFactory)
+                    {
+                        throw new ValidationException("The processor factory needs a writer factory");
+                    }
+                    if (writers.size() != consumers)
+                    {
+                        throw new ValidationException("The writers must be the same number as threads");
+                    }
+                    if (!processors.isEmpty())
+                    {
+                        if (processors.size() != consumers)
+                        {
+                            throw new ValidationException("The processors must be 0 or the same number as threads");
+                        }
+                    }
+                }
+                if (maxConsumers > 0)
+                {
+                    if (maxConsumers < consumers)
+                    {
+                        throw new ValidationException("The max consumers cannot be lower than the min");
+                    }
+                    if (MultiChunkMode.WorkPulling != mode)
+                    {
+                        throw new ValidationException("The elastic consumers need the work pulling mode");
+                    }
+                    if (null == writerFactory)
+                    {
+                        throw new ValidationException("The elastic consumers need a writer factory");
+                    }
+                    if (null != router)
+                    {
+                        throw new ValidationException("The routed items need a fixed number of consumers");
+                    }
+                }
+                if (null == mode)
+                {
+                    throw new ValidationException("The mode cannot be null");
+                }
+                if (null == commitMode)
+                {
+                    throw new ValidationException("The commit mode cannot be null");
+                }
+                if (CommitMode.Sequential != commitMode && MultiChunkMode.Lockstep != mode)
                 {
-                    throw new ValidationException("The writers must be the same number as threads");
+                    throw new ValidationException("The commit mode only applies to the lockstep mode");
                 }
-                if (!processors.isEmpty())
+                if (readAhead <= 0)
                 {
-                    if (processors.size() != consumers)
+                    throw new ValidationException("The read ahead depth must be positive");
+                }
+                if (minCommitInterval <= 0 || maxCommitInterval < minCommitInterval)
+                {
+                    throw new ValidationException("The commit interval bounds must be positive and min not greater than max");
+                }
+                if (null != repository && !(reader instanceof ICheckpointable))
+                {
+                    throw new ValidationException("The restart needs a checkpointable reader");
+                }
+                if (null != repository && MultiChunkMode.Lockstep != mode)
+                {
+                    throw new ValidationException("The restart needs the lockstep mode, its rounds are committed in order");
+                }
+                if (parallelProcessing < 0)
+                {
+                    throw new ValidationException("The items per parallel task must be greater or equals to zero");
+                }
+                if (cacheSize < 0 || cacheTtl < 0)
+                {
+                    throw new ValidationException("The cache size and time to live must be greater or equals to zero");
+                }
+                if (cacheSize > 0)
+                {
+                    if (null == cacheKey)
+                    {
+                        throw new ValidationException("The cache key cannot be null");
+                    }
+                    if (processors.isEmpty() && null == processorFactory)
                     {
-                        throw new ValidationException("The processors must be 0 or the same number as threads");
+                        throw new ValidationException("The cache needs processors");
                     }
                 }
+                if (maxInFlight <= 0)
+                {
+                    throw new ValidationException("The items in flight must be positive");
+                }
+                if (asyncTimeout < 0)
+                {
+                    throw new ValidationException("The async timeout must be greater or equals to zero");
+                }
+                if (skipLimit < 0)
+                {
+                    throw new ValidationException("The skip limit must be greater or equals to zero");
+                }
+                if (retryLimit < 0)
+                {
+                    throw new ValidationException("The retry limit must be greater or equals to zero");
+                }
+                if (skippableExceptions.contains(null))
+                {
+                    throw new ValidationException("The skippable exceptions cannot be null");
+                }
+                if (targetLatency < 0)
+                {
+                    throw new ValidationException("The target latency must be greater or equals to zero");
+                }
+                if (targetThroughput < 0)
+                {
+                    throw new ValidationException("The target throughput must be greater or equals to zero");
+                }
+                if (targetLatency > 0 && MultiChunkMode.WorkPulling != mode)
+                {
+                    throw new ValidationException("The adaptive commit interval needs the work pulling mode");
+                }
                 if (waitTimeout < 0)
                 {
                     throw new ValidationException("The timeout for consumers must be greater or equals to zero");
                 }
+                if (null == threadMode)
+                {
+                    throw new ValidationException("The thread mode cannot be null");
+                }
+                if (!threadMode.isSupported())
+                {
+                    throw new ValidationException("Virtual threads need Java 21 or later");
+                }
+                //The consumers and the producer are leased together
+                final int budget = ExecutorPool.getInstance().budget();
+                if (ThreadMode.Platform == threadMode && Math.max(consumers, maxConsumers) + 1 > budget)
+                {
+                    throw new ValidationException("The consumers and the producer exceed the thread budget [" + budget + "]");
+                }
             }
         };
     }
@@ -0,0 +1,188 @@
+package com.ango.batch;
+
+import com.ango.batch.chunk.multi.MultiChunkStatus;
+import com.ango.batch.chunk.partition.PartitionStep;
+import com.ango.batch.exceptions.ValidationException;
+import com.ango.batch.thread.ThreadMode;
+import com.ango.batch.tx.BatchTransactionManager;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.transaction.TransactionManager;
+import java.util.ArrayList;
+import java.util.List;
+
+public interface IPartitionStepBuilder<T,K> extends IStepBuilder<IPartitionStepBuilder<T,K>>
+{
+    IPartitionStepBuilder<T,K> setPartitioner(IPartitioner<T> partitioner);
+
+    IPartitionStepBuilder<T,K> addProcessor(IProcessor<T,K> processor);
+
+    IPartitionStepBuilder<T,K> addWriter(IWriter<K> writer);
+
+    IPartitionStepBuilder<T,K> setCommitInterval(int size);
+
+    IPartitionStepBuilder<T,K> setPartitions(int partitions);
+
+    IPartitionStepBuilder<T,K> setTransactionManager(TransactionManager transactionManager);
+
+    IPartitionStepBuilder<T,K> setThreadMode(ThreadMode threadMode);
+
+    /**
+     * Max seconds waiting for free threads in the shared pool, 0 to wait forever
+     */
+    IPartitionStepBuilder<T,K> setWaitTimeout(int timeout);
+
+    static <T,K> IPartitionStepBuilder<T,K> instance()
+    {
+        return new IPartitionStepBuilder<>()
+        {
+            private String name = null;
+            private IPartitioner<T> partitioner = null;
+            private final List<IProcessor<T,K>> processors = new ArrayList<>();
+            private final List<IWriter<K>> writers = new ArrayList<>();
+            private int commitInterval = 1;
+            private int partitions;
+            private boolean throwExceptions = true;
+            private TransactionManager transactionManager;
+            private ThreadMode threadMode = ThreadMode.Platform;
+            private int waitTimeout = 0;
+
+            @Override
+            public IPartitionStepBuilder<T,K> setName(String name)
+            {
+                this.name = name;
+                return this;
+            }
+
+            @Override
+            public IPartitionStepBuilder<T,K> setPartitioner(IPartitioner<T> partitioner)
+            {
+                this.partitioner = partitioner;
+                return this;
+            }
+
+            @Override
+            public IPartitionStepBuilder<T,K> addProcessor(IProcessor<T, K> processor)
+            {
+                this.processors.add(processor);
+                return this;
+            }
+
+            @Override
+            public IPartitionStepBuilder<T,K> addWriter(IWriter<K> writer)
+            {
+                this.writers.add(writer);
+                return this;
+            }
+
+            @Override
+            public IPartitionStepBuilder<T,K> setCommitInterval(int size)
+            {
+                this.commitInterval = size;
+                return this;
+            }
+
+            @Override
+            public IPartitionStepBuilder<T, K> setPartitions(int partitions)
+            {
+                this.partitions = partitions;
+                return this;
+            }
+
+            @Override
+            public IPartitionStepBuilder<T, K> setTransactionManager(TransactionManager transactionManager)
+            {
+                this.transactionManager = transactionManager;
+                return this;
+            }
+
+            @Override
+            public IPartitionStepBuilder<T,K> setThrowExceptions(boolean value)
+            {
+                this.throwExceptions = value;
+                return this;
+            }
+
+            @Override
+            public IPartitionStepBuilder<T,K> setThreadMode(ThreadMode threadMode)
+            {
+                this.threadMode = threadMode;
+                return this;
+            }
+
+            @Override
+            public IPartitionStepBuilder<T,K> setWaitTimeout(int timeout)
+            {
+                this.waitTimeout = timeout;
+                return this;
+            }
+
+            @Override
+            public IStep build()
+            {
+                validate();
+                final PartitionStep<T,K> step = new PartitionStep<>();
+                step.setStatus(new MultiChunkStatus(name));
+                step.setPartitioner(partitioner);
+                for (final IProcessor<T,K> processor : processors)
+                {
+                    step.addProcessor(processor);
+                }
+                for (final IWriter<K> writer : writers)
+                {
+                    step.addWriter(writer);
+                }
+                step.setCommitInterval(commitInterval);
+                step.setThrowExceptions(throwExceptions);
+                step.setThreadMode(threadMode);
+                step.setWaitTimeout(waitTimeout);
+                step.setTransactionManager(null == transactionManager ? BatchTransactionManager.getInstance() : transactionManager);
+                step.setPartitions(partitions);
+                return step;
+            }
+
+            private void validate()
+            {
+                if (StringUtils.isBlank(name))
+                {
+                    throw new ValidationException("The step must have a name");
+                }
+                if (null == partitioner)
+                {
+                    throw new ValidationException("The partitioner cannot be null");
+                }
+                if (partitions <= 0)
+                {
+                    throw new ValidationException("The partitions must be positive");
+                }
+                if (writers.size() != partitions)
+                {
+                    throw new ValidationException("The writers must be the same number as partitions");
+                }
+                if (!processors.isEmpty())
+                {
+                    if (processors.size() != partitions)
+                    {
+                        throw new ValidationException("The processors must be 0 or the same number as partitions");
+                    }
+                }
+                if (commitInterval <= 0)
+                {
+                    throw new ValidationException("The commit interval must be positive");
+                }
+                if (waitTimeout < 0)
+                {
+                    throw new ValidationException("The wait timeout must be greater or equals to zero");
+                }
+                if (null == threadMode)
+                {
+                    throw new ValidationException("The thread mode cannot be null");
+                }
+                if (!threadMode.isSupported())
+                {
+                    throw new ValidationException("Virtual threads need Java 21 or later");
+                }
+            }
+        };
+    }
+}
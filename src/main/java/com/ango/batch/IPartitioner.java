@@ -0,0 +1,11 @@
+package com.ango.batch;
+
+import java.util.List;
+
+public interface IPartitioner<T>
+{
+    /**
+     * Splits the input in independent ranges, one reader for each one. It can return fewer readers than requested
+     */
+    List<IReader<T>> partition(int partitions);
+}
@@ -0,0 +1,9 @@
+package com.ango.batch;
+
+/**
+ * A writer that doesn't keep the list it gets once write returns, the steps can give it the list they reuse for the
+ * next chunks. Other writers get a copy when the list read would reach them
+ */
+public interface IReusedChunks
+{
+}
@@ -4,6 +4,7 @@ import com.ango.batch.tx.BatchTransactionManager;
 import org.apache.commons.lang3.StringUtils;
 
 import com.ango.batch.exceptions.ValidationException;
+import com.ango.batch.thread.ThreadMode;
 import com.ango.batch.tasklet.TaskletStep;
 import com.ango.batch.tasklet.TaskletStepStatus;
 
@@ -17,6 +18,13 @@ public interface ITaskletStepBuilder extends IStepBuilder<ITaskletStepBuilder>
 
     ITaskletStepBuilder setTransactionManager(TransactionManager transactionManager);
 
+    ITaskletStepBuilder setThreadMode(ThreadMode threadMode);
+
+    /**
+     * Max seconds waiting for free threads in the shared pool, 0 to wait forever
+     */
+    ITaskletStepBuilder setWaitTimeout(int timeout);
+
     static ITaskletStepBuilder instance()
     {
         return new ITaskletStepBuilder()
@@ -26,6 +34,8 @@ public interface ITaskletStepBuilder extends IStepBuilder<ITaskletStepBuilder>
             private boolean throwExceptions = false;
             private boolean isTransactional = true;
             private TransactionManager transactionManager;
+            private ThreadMode threadMode = ThreadMode.Platform;
+            private int waitTimeout = 0;
 
             @Override
             public ITaskletStepBuilder setName(String name)
@@ -62,6 +72,20 @@ public interface ITaskletStepBuilder extends IStepBuilder<ITaskletStepBuilder>
                 return this;
             }
 
+            @Override
+            public ITaskletStepBuilder setThreadMode(ThreadMode threadMode)
+            {
+                this.threadMode = threadMode;
+                return this;
+            }
+
+            @Override
+            public ITaskletStepBuilder setWaitTimeout(int timeout)
+            {
+                this.waitTimeout = timeout;
+                return this;
+            }
+
             @Override
             public IStep build()
             {
@@ -70,6 +94,8 @@ public interface ITaskletStepBuilder extends IStepBuilder<ITaskletStepBuilder>
                 step.setStatus(new TaskletStepStatus(name));
                 step.setTasklet(tasklet);
                 step.setThrowExceptions(throwExceptions);
+                step.setThreadMode(threadMode);
+                step.setWaitTimeout(waitTimeout);
                 step.setTransactional(isTransactional);
                 if (isTransactional)
                 {
@@ -92,6 +118,18 @@ public interface ITaskletStepBuilder extends IStepBuilder<ITaskletStepBuilder>
                 {
                     throw new ValidationException("The tasklet is not transactional");
                 }
+                if (waitTimeout < 0)
+                {
+                    throw new ValidationException("The wait timeout must be greater or equals to zero");
+                }
+                if (null == threadMode)
+                {
+                    throw new ValidationException("The thread mode cannot be null");
+                }
+                if (!threadMode.isSupported())
+                {
+                    throw new ValidationException("Virtual threads need Java 21 or later");
+                }
             }
         };
     }
@@ -4,5 +4,9 @@ import java.util.List;
 
 public interface IWriter<T>
 {
+    /**
+     * The list belongs to the writer, unless it implements IReusedChunks: then the list is reused for other chunks
+     * once this one is resolved, copy the items to keep them
+     */
     void write(List<T> items);
 }
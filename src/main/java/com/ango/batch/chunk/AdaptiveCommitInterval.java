@@ -0,0 +1,87 @@
+package com.ango.batch.chunk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resizes the chunks between commits to keep each one under a target latency. When a target throughput is
+ * set it stops growing once the throughput is reached, so the chunks are as short as possible
+ */
+public class AdaptiveCommitInterval
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveCommitInterval.class);
+
+    //Weight of the last chunk in the estimated time per item
+    private static final double SMOOTHING = 0.5;
+
+    //Max growth between two chunks, the time per item of a short chunk is not reliable
+    private static final int MAX_GROWTH = 2;
+
+    private final int initial;
+    private final int min;
+    private final int max;
+    private final long targetLatency;
+    private final int targetThroughput;
+    private int current;
+    private double millisPerItem;
+
+    /**
+     * @param targetLatency Max millis of a chunk
+     * @param targetThroughput Items per second, 0 to only target the latency
+     */
+    public AdaptiveCommitInterval(int initial, int min, int max, long targetLatency, int targetThroughput)
+    {
+        this.initial = Math.max(min, Math.min(max, initial));
+        this.min = min;
+        this.max = max;
+        this.targetLatency = targetLatency;
+        this.targetThroughput = targetThroughput;
+        reset();
+    }
+
+    public synchronized void reset()
+    {
+        current = initial;
+        millisPerItem = -1;
+    }
+
+    public synchronized int next()
+    {
+        return current;
+    }
+
+    /**
+     * Chooses the size of the next chunk with the time spent in the last one, since read until commit
+     */
+    public synchronized void chunkDone(int items, long elapsed)
+    {
+        if (items <= 0)
+        {
+            return;
+        }
+        //Below the clock resolution the chunk took at most one milli
+        final double itemMillis = (double) Math.max(elapsed, 1) / items;
+        millisPerItem = (millisPerItem < 0) ? itemMillis : SMOOTHING * itemMillis + (1 - SMOOTHING) * millisPerItem;
+
+        final int forLatency = (int) Math.min(Integer.MAX_VALUE, targetLatency / millisPerItem);
+        int size;
+        if (elapsed > targetLatency)
+        {
+            size = forLatency;
+        }
+        else if (targetThroughput > 0 && items * 1000.0 / Math.max(elapsed, 1) >= targetThroughput)
+        {
+            size = Math.min(current, forLatency);
+        }
+        else
+        {
+            size = Math.min(forLatency, current * MAX_GROWTH);
+        }
+        size = Math.max(min, Math.min(max, size));
+        if (size != current && LOGGER.isDebugEnabled())
+        {
+            LOGGER.debug("Commit interval from {} to {}, {} items in {} ms", current, size, items, elapsed);
+        }
+        current = size;
+    }
+}
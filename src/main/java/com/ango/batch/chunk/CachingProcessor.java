@@ -0,0 +1,63 @@
+package com.ango.batch.chunk;
+
+import com.ango.batch.IProcessor;
+import com.ango.batch.IResource;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Processes each item through a cache, the consumers of a step wrap their own processors around the same cache
+ * so a value is computed once for all of them. Null results are cached too, the item is filtered every time.
+ * The items are processed one by one even if the processor wrapped works with whole chunks
+ */
+public class CachingProcessor<T,K> implements IProcessor<T,K>, IResource
+{
+    private final IProcessor<T,K> processor;
+    private final ItemCache<Object,K> cache;
+    private final Function<? super T, ?> key;
+
+    public CachingProcessor(IProcessor<T,K> processor, ItemCache<Object,K> cache)
+    {
+        this(processor, cache, Function.identity());
+    }
+
+    /**
+     * @param key The part of the item the result depends on
+     */
+    public CachingProcessor(IProcessor<T,K> processor, ItemCache<Object,K> cache, Function<? super T, ?> key)
+    {
+        this.processor = processor;
+        this.cache = cache;
+        this.key = key;
+    }
+
+    public IProcessor<T,K> processor()
+    {
+        return processor;
+    }
+
+    @Override
+    public void open() throws IOException
+    {
+        if (processor instanceof IResource)
+        {
+            ((IResource) processor).open();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (processor instanceof IResource)
+        {
+            ((IResource) processor).close();
+        }
+    }
+
+    @Override
+    public K process(T item)
+    {
+        return cache.get(key.apply(item), k -> processor.process(item));
+    }
+}
@@ -0,0 +1,169 @@
+package com.ango.batch.chunk;
+
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import com.ango.batch.exceptions.SkipLimitExceededException;
+import com.ango.batch.resource.ProcessorResource;
+import com.ango.batch.resource.WriterResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.transaction.TransactionManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Isolates the items that make a chunk fail instead of failing the step. The failed chunk is tried again and, if it
+ * keeps failing, it's split in halves until the items that fail on their own are found. Those are skipped, up to a
+ * limit for the whole execution.
+ * Every try runs in a transaction that is rolled back, the caller writes the items left once in the transaction of
+ * the chunk, so they commit or roll back with it. The writers must take part in the transaction to undo the tries
+ */
+public class FaultTolerance
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FaultTolerance.class);
+
+    private final int skipLimit;
+    private final int retryLimit;
+    private final List<Class<? extends Throwable>> skippableExceptions;
+    private final AtomicInteger skips = new AtomicInteger(0);
+
+    /**
+     * @param skipLimit Max items skipped in an execution, 0 to only retry
+     * @param retryLimit Tries of the whole chunk before splitting it
+     * @param skippableExceptions Failures that allow to skip an item, empty for any Exception
+     */
+    public FaultTolerance(int skipLimit, int retryLimit, List<Class<? extends Throwable>> skippableExceptions)
+    {
+        this.skipLimit = skipLimit;
+        this.retryLimit = retryLimit;
+        this.skippableExceptions = new ArrayList<>(skippableExceptions);
+    }
+
+    public void reset()
+    {
+        skips.set(0);
+    }
+
+    public int skips()
+    {
+        return skips.get();
+    }
+
+    public boolean isSkippable(Throwable t)
+    {
+        if (skippableExceptions.isEmpty())
+        {
+            return t instanceof Exception;
+        }
+        for (final Class<? extends Throwable> skippable : skippableExceptions)
+        {
+            if (skippable.isInstance(t))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the items of a failed chunk that can be written, the transaction of the chunk must be rolled back before
+     *
+     * @param failure The exception of the chunk, thrown again when it can't be skipped
+     * @return The items not skipped, in the order of the chunk
+     */
+    public <T,K> List<T> isolate(TransactionManager tm, ProcessorResource<T,K> processor, WriterResource<K> writer,
+                                 List<T> items, Throwable failure, ChunkStepStatus status) throws Throwable
+    {
+        if (!isSkippable(failure))
+        {
+            throw failure;
+        }
+        for (int retry = 0; retry < retryLimit; retry++)
+        {
+            final Throwable retryFailure = probe(tm, processor, writer, items);
+            if (null == retryFailure)
+            {
+                if (LOGGER.isDebugEnabled()) LOGGER.debug("Chunk of {} items done at retry {}", items.size(), retry + 1);
+                return items;
+            }
+            if (!isSkippable(retryFailure))
+            {
+                throw retryFailure;
+            }
+            failure = retryFailure;
+        }
+        if (skipLimit == 0)
+        {
+            throw failure;
+        }
+        final List<T> clean = new ArrayList<>(items.size());
+        bisect(tm, processor, writer, items, failure, clean, status);
+        return clean;
+    }
+
+    private <T,K> void bisect(TransactionManager tm, ProcessorResource<T,K> processor, WriterResource<K> writer,
+                              List<T> items, Throwable failure, List<T> clean, ChunkStepStatus status) throws Throwable
+    {
+        if (!isSkippable(failure))
+        {
+            throw failure;
+        }
+        if (items.size() == 1)
+        {
+            skip(items.get(0), failure, status);
+            return;
+        }
+        final int half = items.size() / 2;
+        for (final List<T> part : List.of(items.subList(0, half), items.subList(half, items.size())))
+        {
+            final Throwable partFailure = probe(tm, processor, writer, part);
+            if (null == partFailure)
+            {
+                clean.addAll(part);
+            }
+            else
+            {
+                bisect(tm, processor, writer, part, partFailure, clean, status);
+            }
+        }
+    }
+
+    private void skip(Object item, Throwable failure, ChunkStepStatus status) throws SkipLimitExceededException
+    {
+        if (skips.incrementAndGet() > skipLimit)
+        {
+            throw new SkipLimitExceededException("Skip limit [" + skipLimit + "] exceeded by item [" + item + "]", failure);
+        }
+        LOGGER.warn("Skipping item [{}]", item, failure);
+        status.skippedItem(new SkippedItem(item, failure));
+    }
+
+    /**
+     * Processes and writes the items in a transaction rolled back at the end
+     *
+     * @return The failure, null if the items can be written
+     */
+    private static <T,K> Throwable probe(TransactionManager tm, ProcessorResource<T,K> processor, WriterResource<K> writer,
+                                         List<T> items) throws Exception
+    {
+        tm.begin();
+        try
+        {
+            final List<K> itemsProcessed = processor.process(items);
+            if (!itemsProcessed.isEmpty())
+            {
+                writer.write(itemsProcessed, items);
+            }
+            return null;
+        }
+        catch (Throwable t)
+        {
+            return t;
+        }
+        finally
+        {
+            tm.rollback();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.ango.batch.chunk;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache shared by the threads of a step. The keys are spread in stripes with their own lock, each one
+ * evicts its least recently used entry when full, and the entries expire a while after being loaded
+ */
+public class ItemCache<K,V>
+{
+    //Marks a null value loaded, so it's cached too
+    private static final Object NULL = new Object();
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param ttlMillis Millis an entry is valid since loaded, 0 to never expire
+     */
+    public ItemCache(int maxSize, long ttlMillis)
+    {
+        this(maxSize, ttlMillis, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public ItemCache(int maxSize, long ttlMillis, int concurrency)
+    {
+        //Power of two stripes, not more than entries
+        int count = 1;
+        while (count < concurrency && count * 2 <= maxSize)
+        {
+            count *= 2;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++)
+        {
+            stripes[i] = new Stripe((maxSize + count - 1) / count, evictions);
+        }
+        this.mask = count - 1;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * The value cached for the key, loaded if it's missing or expired. The loader runs without lock, two threads
+     * missing the same key at once both load it. A failure of the loader is not cached
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key, Function<? super K, ? extends V> loader)
+    {
+        final Stripe stripe = stripe(key);
+        synchronized (stripe)
+        {
+            final Entry entry = stripe.get(key);
+            if (null != entry)
+            {
+                if (ttlNanos == 0 || System.nanoTime() - entry.loaded < ttlNanos)
+                {
+                    hits.increment();
+                    return (entry.value == NULL) ? null : (V) entry.value;
+                }
+                stripe.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        final V value = loader.apply(key);
+        synchronized (stripe)
+        {
+            stripe.put(key, new Entry((null == value) ? NULL : value, System.nanoTime()));
+        }
+        return value;
+    }
+
+    /**
+     * Empties the cache and its counters
+     */
+    public void clear()
+    {
+        for (final Stripe stripe : stripes)
+        {
+            synchronized (stripe)
+            {
+                stripe.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (final Stripe stripe : stripes)
+        {
+            synchronized (stripe)
+            {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    public long misses()
+    {
+        return misses.sum();
+    }
+
+    public long evictions()
+    {
+        return evictions.sum();
+    }
+
+    private Stripe stripe(Object key)
+    {
+        final int hash = Objects.hashCode(key);
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private static class Entry
+    {
+        private final Object value;
+        private final long loaded;
+
+        private Entry(Object value, long loaded)
+        {
+            this.value = value;
+            this.loaded = loaded;
+        }
+    }
+
+    private static class Stripe extends LinkedHashMap<Object, Entry>
+    {
+        private final int capacity;
+        private final LongAdder evictions;
+
+        private Stripe(int capacity, LongAdder evictions)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest)
+        {
+            if (size() > capacity)
+            {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ango.batch.chunk;
+
+/**
+ * An item left out of its chunk because it failed on its own
+ */
+public class SkippedItem
+{
+    private final Object item;
+    private final Throwable exception;
+
+    public SkippedItem(Object item, Throwable exception)
+    {
+        this.item = item;
+        this.exception = exception;
+    }
+
+    public Object getItem()
+    {
+        return item;
+    }
+
+    public Throwable getException()
+    {
+        return exception;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "item [" + item + "] exception [" + exception + "]";
+    }
+}
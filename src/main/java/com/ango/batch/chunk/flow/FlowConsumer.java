@@ -0,0 +1,167 @@
+package com.ango.batch.chunk.flow;
+
+import com.ango.batch.chunk.multi.ConsumerPhase;
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import com.ango.batch.exceptions.ConsumerException;
+import com.ango.batch.exceptions.HandShakeException;
+import com.ango.batch.resource.ProcessorResource;
+import com.ango.batch.resource.WriterResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.transaction.TransactionManager;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+
+class FlowConsumer<T,K> implements Runnable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlowConsumer.class);
+
+    private final TransactionManager tm;
+    private final ProcessorResource<T,K> processor;
+    private final WriterResource<K> writer;
+    private final FlowSource<T> source;
+    private final FlowSink<K> sink;
+    private final ChunkStepStatus status;
+    private final int index;
+    private final CountDownLatch finished;
+    private ConsumerPhase phase;
+
+    /**
+     * @param writer Null when the chunks are only delivered to the sink
+     * @param sink Null when the chunks are only written
+     */
+    public FlowConsumer(TransactionManager tm, ProcessorResource<T,K> processor, WriterResource<K> writer,
+                        FlowSource<T> source, FlowSink<K> sink, ChunkStepStatus status, int index, CountDownLatch finished)
+    {
+        this.tm = tm;
+        this.processor = processor;
+        this.writer = writer;
+        this.source = source;
+        this.sink = sink;
+        this.status = status;
+        this.index = index;
+        this.finished = finished;
+        this.phase = ConsumerPhase.WaitForData;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            ///***************************
+            ///     WAIT FOR DATA
+            ///***************************
+            List<T> readItems;
+            while (null != (readItems = source.take()))
+            {
+                if (!consume(readItems))
+                {
+                    source.finish();
+                    break;
+                }
+                phase = ConsumerPhase.WaitForData;
+            }
+            phase = ConsumerPhase.Finished;
+        }
+        catch (InterruptedException | TimeoutException e)
+        {
+            LOGGER.error("Exception waiting for data {}", e.getClass());
+            status.stop(new HandShakeException(e));
+            source.finish();
+            if (e instanceof InterruptedException)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        finally
+        {
+            finished.countDown();
+        }
+    }
+
+    private boolean consume(List<T> readItems)
+    {
+        final long initChunkTime = System.currentTimeMillis();
+        final int read = readItems.size();
+        int skipped = 0;
+        int written = 0;
+        boolean isTransactionPending = false;
+        boolean isRecorded = false;
+        boolean isCommitted = false;
+        try
+        {
+            ///***************************
+            ///     PROCESS
+            ///***************************
+            phase = ConsumerPhase.Preprocess;
+            status.commitInterval(read);
+            tm.begin();
+            isTransactionPending = true;
+
+            phase = ConsumerPhase.Process;
+            final List<K> itemsProcessed = processor.process(readItems);
+            written = itemsProcessed.size();
+            if (written > 0 && null != writer)
+            {
+                writer.write(itemsProcessed);
+            }
+            skipped = read - written;
+
+            ///***************************
+            ///     DO COMMIT
+            ///***************************
+            phase = ConsumerPhase.Commit;
+            status.commit(skipped, written, System.currentTimeMillis() - initChunkTime);
+            isRecorded = true;
+            status.save();
+            tm.commit();
+            isTransactionPending = false;
+            isCommitted = true;
+
+            ///***************************
+            ///     DELIVER
+            ///***************************
+            phase = ConsumerPhase.Deliver;
+            if (null != sink && written > 0)
+            {
+                sink.deliver(itemsProcessed);
+            }
+            source.request(read);
+            return true;
+        }
+        catch (Throwable t)
+        {
+            LOGGER.error("Error in thread: [{}] phase: [{}]", index, phase, t);
+            status.stop(new ConsumerException(index, phase, t));
+            if (isRecorded && !isCommitted)
+            {
+                status.undo(skipped, written);
+            }
+
+            ///***************************
+            ///     DO ROLLBACK
+            ///***************************
+            if (isTransactionPending)
+            {
+                phase = ConsumerPhase.Rollback;
+                try
+                {
+                    tm.rollback();
+                }
+                catch (Throwable t2)
+                {
+                    LOGGER.error("Error in thread: [{}] phase: [{}]", index, phase, t2);
+                    status.stop(new ConsumerException(index, phase, t2));
+                }
+            }
+            if (t instanceof InterruptedException)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+}
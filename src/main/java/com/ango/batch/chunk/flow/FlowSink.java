@@ -0,0 +1,97 @@
+package com.ango.batch.chunk.flow;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Delivers the chunks committed to the subscriber of the step, one chunk for each one requested. The consumers
+ * wait for its demand before asking the publisher for more items, so a slow subscriber slows the whole step
+ */
+class FlowSink<K> implements Flow.Subscription
+{
+    private final Flow.Subscriber<? super List<K>> subscriber;
+    private final long waitMillis;
+    private long demand = 0;
+    private boolean isCancelled = false;
+    private boolean isDone = false;
+
+    public FlowSink(Flow.Subscriber<? super List<K>> subscriber, int waitSeconds)
+    {
+        this.subscriber = subscriber;
+        this.waitMillis = TimeUnit.SECONDS.toMillis(waitSeconds);
+    }
+
+    public synchronized void start()
+    {
+        subscriber.onSubscribe(this);
+    }
+
+    @Override
+    public synchronized void request(long n)
+    {
+        if (n <= 0)
+        {
+            cancel();
+            subscriber.onError(new IllegalArgumentException("Non positive request [" + n + "]"));
+            return;
+        }
+        demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void cancel()
+    {
+        isCancelled = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the subscriber wants another chunk, a cancelled subscriber doesn't get more chunks
+     */
+    public synchronized void deliver(List<K> items) throws InterruptedException, TimeoutException
+    {
+        final long deadline = System.currentTimeMillis() + waitMillis;
+        while (demand == 0 && !isCancelled)
+        {
+            if (waitMillis > 0)
+            {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                {
+                    throw new TimeoutException();
+                }
+                wait(remaining);
+            }
+            else
+            {
+                wait();
+            }
+        }
+        if (!isCancelled && !isDone)
+        {
+            demand--;
+            subscriber.onNext(items);
+        }
+    }
+
+    public synchronized void complete()
+    {
+        if (!isCancelled && !isDone)
+        {
+            isDone = true;
+            subscriber.onComplete();
+        }
+    }
+
+    public synchronized void error(Throwable t)
+    {
+        if (!isCancelled && !isDone)
+        {
+            isDone = true;
+            subscriber.onError(t);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.ango.batch.chunk.flow;
+
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import com.ango.batch.exceptions.ProducerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Subscribes to the publisher of the step and groups its items in chunks for the consumers. The items requested
+ * are two chunks per consumer, one being committed and one ready, and each chunk committed requests its items again
+ */
+class FlowSource<T> implements Flow.Subscriber<T>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlowSource.class);
+
+    //Marks the end of data, one for each consumer
+    private final List<T> endOfData = new ArrayList<>(0);
+
+    private final BlockingQueue<List<T>> chunks = new LinkedBlockingQueue<>();
+    private final ChunkStepStatus status;
+    private final int commitInterval;
+    private final int consumers;
+    private final int waitSeconds;
+    private Flow.Subscription subscription;
+    private boolean isCancelled = false;
+    private volatile boolean isFinished = false;
+    private List<T> chunk;
+
+    public FlowSource(ChunkStepStatus status, int commitInterval, int consumers, int waitSeconds)
+    {
+        this.status = status;
+        this.commitInterval = commitInterval;
+        this.consumers = consumers;
+        this.waitSeconds = waitSeconds;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription)
+    {
+        synchronized (this)
+        {
+            if (null != this.subscription || isCancelled)
+            {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+        }
+        chunk = new ArrayList<>(commitInterval);
+        request(2L * commitInterval * consumers);
+    }
+
+    @Override
+    public void onNext(T item)
+    {
+        if (isFinished)
+        {
+            return;
+        }
+        chunk.add(item);
+        if (chunk.size() == commitInterval)
+        {
+            publish(chunk);
+            chunk = new ArrayList<>(commitInterval);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t)
+    {
+        //The chunks already complete are still committed, the partial one is lost
+        LOGGER.error("Error in publisher", t);
+        status.stop(new ProducerException(t));
+        endOfData();
+    }
+
+    @Override
+    public void onComplete()
+    {
+        if (null != chunk && !chunk.isEmpty() && !isFinished)
+        {
+            publish(chunk);
+        }
+        chunk = null;
+        endOfData();
+    }
+
+    private void publish(List<T> items)
+    {
+        status.read(items.size());
+        chunks.add(items);
+    }
+
+    private void endOfData()
+    {
+        for (int i = 0; i < consumers; i++)
+        {
+            chunks.add(endOfData);
+        }
+    }
+
+    /**
+     * Asks the publisher for the items of the chunks committed
+     */
+    public synchronized void request(long items)
+    {
+        if (null != subscription && !isCancelled)
+        {
+            subscription.request(items);
+        }
+    }
+
+    public synchronized void cancel()
+    {
+        if (!isCancelled)
+        {
+            isCancelled = true;
+            if (null != subscription)
+            {
+                subscription.cancel();
+            }
+        }
+    }
+
+    /**
+     * Stops the consumers after their current chunk, the chunks waiting are discarded
+     */
+    public void finish()
+    {
+        isFinished = true;
+        cancel();
+        chunks.clear();
+        endOfData();
+    }
+
+    /**
+     * @return The next chunk, null at the end of data
+     */
+    public List<T> take() throws InterruptedException, TimeoutException
+    {
+        final List<T> items = (waitSeconds > 0) ? chunks.poll(waitSeconds, TimeUnit.SECONDS) : chunks.take();
+        if (null == items)
+        {
+            throw new TimeoutException();
+        }
+        return (items == endOfData) ? null : items;
+    }
+}
@@ -0,0 +1,253 @@
+package com.ango.batch.chunk.flow;
+
+import com.ango.batch.*;
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import com.ango.batch.resource.ProcessorResource;
+import com.ango.batch.resource.WriterResource;
+import com.ango.batch.step.CommonStep;
+import com.ango.batch.thread.ExecutorPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+/**
+ * Chunks of the items of a publisher, each one processed, written and committed in its own transaction by one of
+ * the consumers and then delivered to the subscriber of the step. No thread waits for the publisher, its items
+ * are requested as the chunks are committed
+ */
+public class FlowStep<T,K> extends CommonStep<ChunkStepStatus> implements IStep
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlowStep.class);
+
+    private Flow.Publisher<T> publisher;
+
+    private Flow.Subscriber<? super List<K>> subscriber;
+
+    private Supplier<IProcessor<T,K>> processorFactory;
+
+    private Supplier<IWriter<K>> writerFactory;
+
+    private final List<ProcessorResource<T,K>> processors = new ArrayList<>();
+
+    private final List<WriterResource<K>> writers = new ArrayList<>();
+
+    private int consumers;
+
+    private int commitInterval;
+
+    private int waitTimeout;
+
+    public FlowStep()
+    {
+    }
+
+    public void setPublisher(Flow.Publisher<T> publisher)
+    {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Receives the items of each chunk once committed, null to only write them
+     */
+    public void setSubscriber(Flow.Subscriber<? super List<K>> subscriber)
+    {
+        this.subscriber = subscriber;
+    }
+
+    /**
+     * The processor of each consumer is created at the start of each execution
+     */
+    public void setProcessorFactory(Supplier<IProcessor<T,K>> processorFactory)
+    {
+        this.processorFactory = processorFactory;
+    }
+
+    /**
+     * The writer of each consumer is created at the start of each execution, null to only deliver the chunks
+     */
+    public void setWriterFactory(Supplier<IWriter<K>> writerFactory)
+    {
+        this.writerFactory = writerFactory;
+    }
+
+    public void setConsumers(int consumers)
+    {
+        this.consumers = consumers;
+    }
+
+    public void setCommitInterval(int interval)
+    {
+        this.commitInterval = interval;
+    }
+
+    public void setWaitTimeout(int timeout)
+    {
+        this.waitTimeout = timeout;
+    }
+
+    @Override
+    public String name()
+    {
+        return status().name();
+    }
+
+    @Override
+    public IStepStatus execute()
+    {
+        status().reset();
+        createResources();
+        doExecute();
+        long affectedRows = 0;
+        for (WriterResource<K> writer : writers)
+        {
+            affectedRows += (null == writer) ? 0 : writer.affectedRows();
+        }
+        status().affectedRows(affectedRows);
+        return checkStatus();
+    }
+
+    private void doExecute()
+    {
+        FlowSource<T> source = null;
+        FlowSink<K> sink = null;
+        ExecutorPool.Lease lease = null;
+        try
+        {
+            status().start();
+            status().save();
+
+            openResources();
+            source = new FlowSource<>(status(), commitInterval, consumers, waitTimeout);
+            if (null != subscriber)
+            {
+                sink = new FlowSink<>(subscriber, waitTimeout);
+                sink.start();
+            }
+
+            final CountDownLatch finished = new CountDownLatch(consumers);
+            lease = ExecutorPool.getInstance().lease(consumers, "consumer", threadMode(), waitTimeout);
+            for (int i = 0; i < consumers; i++)
+            {
+                lease.execute(new FlowConsumer<>(transactionManager(), processors.get(i), writers.get(i), source, sink,
+                        status(), i, finished));
+            }
+            publisher.subscribe(source);
+            finished.await();
+            //A consumer failed before the publisher completed
+            source.cancel();
+
+            closeResources();
+            if (StepState.Executing.equals(status().state()))
+            {
+                status().stop();
+                status().save();
+            }
+            else
+            {
+                status().saveProtected();
+            }
+            finishSink(sink);
+        }
+        catch (Throwable t)
+        {
+            LOGGER.error("Error executing step [{}]", status().name(), t);
+            status().stop(t);
+            if (null != source)
+            {
+                source.finish();
+            }
+            tryCloseResources();
+            status().saveProtected();
+            finishSink(sink);
+            if (t instanceof InterruptedException)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        finally
+        {
+            if (null != lease)
+            {
+                lease.close();
+            }
+        }
+    }
+
+    private void finishSink(FlowSink<K> sink)
+    {
+        if (null == sink)
+        {
+            return;
+        }
+        if (status().state().isFailed())
+        {
+            sink.error(status().exceptions().get(0));
+        }
+        else
+        {
+            sink.complete();
+        }
+    }
+
+    private void createResources()
+    {
+        processors.clear();
+        writers.clear();
+        for (int i = 0; i < consumers; i++)
+        {
+            processors.add(new ProcessorResource<>((null == processorFactory) ? null : processorFactory.get()));
+            writers.add((null == writerFactory) ? null : new WriterResource<>(writerFactory.get()));
+        }
+    }
+
+    private void openResources() throws IOException
+    {
+        for (IResource resource : processors)
+        {
+            resource.open();
+        }
+        for (IResource resource : writers)
+        {
+            if (null != resource)
+            {
+                resource.open();
+            }
+        }
+    }
+
+    private void closeResources() throws IOException
+    {
+        for (IResource resource : processors)
+        {
+            resource.close();
+        }
+        for (IResource resource : writers)
+        {
+            if (null != resource)
+            {
+                resource.close();
+            }
+        }
+    }
+
+    private void tryCloseResources()
+    {
+        for (ProcessorResource<T,K> resource : processors)
+        {
+            resource.tryClose(status());
+        }
+        for (WriterResource<K> resource : writers)
+        {
+            if (null != resource)
+            {
+                resource.tryClose(status());
+            }
+        }
+    }
+}
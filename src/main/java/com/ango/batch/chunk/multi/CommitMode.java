@@ -0,0 +1,31 @@
+package com.ango.batch.chunk.multi;
+
+public enum CommitMode
+{
+    /**
+     * The consumers of a round commit one after another, after a failure the rest roll back
+     */
+    Sequential("Sequential"),
+    /**
+     * The consumers of a round commit at the same time, a failure in one of them doesn't undo the others
+     */
+    Parallel("Parallel"),
+    /**
+     * Every consumer checks its transaction can still commit before any of them commits, then they commit at the
+     * same time. A transaction marked for rollback rolls back the whole round
+     */
+    TwoPhase("Prepare all, then commit all");
+
+    private final String description;
+
+    CommitMode(String description)
+    {
+        this.description = description;
+    }
+
+    @Override
+    public String toString()
+    {
+        return description;
+    }
+}
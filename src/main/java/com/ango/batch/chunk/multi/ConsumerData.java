@@ -1,13 +1,13 @@
 package com.ango.batch.chunk.multi;
 
 import com.ango.batch.exceptions.HandShakeException;
+import com.ango.batch.thread.Handshake;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -16,13 +16,15 @@ class ConsumerData<T>
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerData.class);
 
     private ConsumerPhase phase;
-    private final CyclicBarrier barrier = new CyclicBarrier(2);
+    private final Handshake barrier = new Handshake();
     private boolean isError = false;
     private final MultiChunkStatus status;
     private final int index;
-    private final List<T> items;
+    private List<T> items;
     private boolean doFinish;
     private boolean doCommit;
+    private boolean doPrepare;
+    private final CommitMode commitMode;
     private final int waitSeconds;
     private final OrchestratorActions orchestratorActions;
     private final ConsumerActions consumerActions;
@@ -30,13 +32,22 @@ class ConsumerData<T>
 
     public ConsumerData(MultiChunkStatus status, int index, int commitInterval, int waitSeconds)
     {
+        this(status, index, waitSeconds, CommitMode.Sequential, new ArrayList<>(commitInterval));
+    }
+
+    /**
+     * @param items The list of the first chunk, the next ones are swapped with the producer
+     */
+    public ConsumerData(MultiChunkStatus status, int index, int waitSeconds, CommitMode commitMode, List<T> items)
+    {
+        this.commitMode = commitMode;
         this.status = status;
         this.index = index;
         this.phase = ConsumerPhase.WaitForData;
         this.doFinish = false;
         this.doCommit = false;
         this.waitSeconds = waitSeconds;
-        this.items = new ArrayList<>(commitInterval);
+        this.items = items;
         this.orchestratorActions = new OrchestratorActions();
         this.consumerActions = new ConsumerActions();
     }
@@ -83,11 +94,17 @@ class ConsumerData<T>
     {
         private OrchestratorActions() { }
 
-        public void addItems(List<T> newItems)
+        /**
+         * Hands the items of the next chunk to the consumer
+         *
+         * @return The list of the last chunk, the consumer doesn't use it anymore
+         */
+        public List<T> swapItems(List<T> newItems)
         {
-            items.clear();
-            items.addAll(newItems);
-        };
+            final List<T> previous = items;
+            items = newItems;
+            return previous;
+        }
 
         public boolean isError() { return isError; }
 
@@ -121,6 +138,14 @@ class ConsumerData<T>
             handShakeForNextPhase();
         }
 
+        public void doPrepare()
+        {
+            if (LOGGER.isDebugEnabled()) LOGGER.debug("Order prepare {}", index);
+            doCommit = false;
+            doPrepare = true;
+            handShakeForNextPhase();
+        }
+
         public void waitForResolution()
         {
             if (LOGGER.isDebugEnabled()) LOGGER.debug("Waiting for resolution {}", index);
@@ -162,6 +187,13 @@ class ConsumerData<T>
 
         public boolean doCommit() { return doCommit; }
 
+        public boolean doPrepare() { return doPrepare; }
+
+        /**
+         * Other consumers may be committing at the same time
+         */
+        public boolean isConcurrentCommit() { return CommitMode.Sequential != commitMode; }
+
         public boolean stopChunk() { return stopChunk; }
 
         public boolean waitForData()
@@ -186,6 +218,7 @@ class ConsumerData<T>
         {
             if (LOGGER.isDebugEnabled()) LOGGER.debug("Finish resolution {}", index);
             doCommit = false;
+            doPrepare = false;
             handShakeForNextPhase();
         }
     }
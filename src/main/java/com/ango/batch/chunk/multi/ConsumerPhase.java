@@ -3,10 +3,13 @@ package com.ango.batch.chunk.multi;
 public enum ConsumerPhase
 {
     WaitForData("Waiting for data"),
+    Read("Reading"),
     Preprocess("Pre-processing"),
     Process("Processing"),
     WaitForCommitOrRollback("Waiting for commit or rollback"),
+    Prepare("Preparing"),
     Commit("Committing"),
+    Deliver("Delivering"),
     Rollback("Rolling back"),
     WaitForFinish("Waiting for finish"),
     Finished("Finished");
@@ -1,10 +1,12 @@
 package com.ango.batch.chunk.multi;
 
+import com.ango.batch.chunk.FaultTolerance;
 import com.ango.batch.resource.ProcessorResource;
 import com.ango.batch.resource.WriterResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.transaction.Status;
 import javax.transaction.TransactionManager;
 import java.util.List;
 
@@ -16,11 +18,22 @@ class MultiChunkConsumer<T,K> implements Runnable
     private final ConsumerData<T> data;
     private final ProcessorResource<T,K> processor;
     private final WriterResource<K> writer;
+    private final FaultTolerance faultTolerance;
 
     public MultiChunkConsumer(TransactionManager tm, ProcessorResource<T, K> processor,
                               WriterResource<K> writer, ConsumerData<T> data)
+    {
+        this(tm, processor, writer, data, null);
+    }
+
+    /**
+     * @param faultTolerance Skips the items that fail on their own before voting, null to fail the round
+     */
+    public MultiChunkConsumer(TransactionManager tm, ProcessorResource<T, K> processor,
+                              WriterResource<K> writer, ConsumerData<T> data, FaultTolerance faultTolerance)
     {
         this.tm = tm;
+        this.faultTolerance = faultTolerance;
         this.data = data;
         this.processor = processor;
         this.writer = writer;
@@ -47,25 +60,35 @@ class MultiChunkConsumer<T,K> implements Runnable
             boolean isTransactionPending = false;
             try
             {
-                tm.begin();
-                isTransactionPending = true;
+                //A routed consumer can have no items in a round, it has nothing to commit
                 if (read > 0)
                 {
+                    tm.begin();
+                    isTransactionPending = true;
                     try
                     {
                         data.consumerActions().setPhase(ConsumerPhase.Process);
-                        final List<K> itemsProcessed = processor.process(readItems);
-                        written = itemsProcessed.size();
+                        written = processAndWrite(readItems);
                         skipped = read - written;
-                        if (written > 0)
-                        {
-                            writer.write(itemsProcessed);
-                        }
                     }
                     catch (Throwable t)
                     {
-                        LOGGER.error("Error in thread: [{}] phase: [{}]", data.consumerActions().index(), data.consumerActions().phase(), t);
-                        data.consumerActions().add(t);
+                        if (null == faultTolerance)
+                        {
+                            LOGGER.error("Error in thread: [{}] phase: [{}]", data.consumerActions().index(), data.consumerActions().phase(), t);
+                            data.consumerActions().add(t);
+                        }
+                        else
+                        {
+                            //The chunk starts again without the items that fail, the round is not affected
+                            isTransactionPending = false;
+                            tm.rollback();
+                            final List<T> itemsLeft = faultTolerance.isolate(tm, processor, writer, readItems, t, data.status());
+                            tm.begin();
+                            isTransactionPending = true;
+                            written = processAndWrite(itemsLeft);
+                            skipped = read - written;
+                        }
                     }
                 }
             }
@@ -85,6 +108,20 @@ class MultiChunkConsumer<T,K> implements Runnable
             ///***************************
             data.consumerActions().waitForDoingCommitOrRollback();
 
+            ///***************************
+            ///     DO PREPARE
+            ///***************************
+            if (data.consumerActions().doPrepare())
+            {
+                if (read > 0)
+                {
+                    prepare(isTransactionPending);
+                }
+                data.consumerActions().finishResolution();
+                data.consumerActions().waitForDoingCommitOrRollback();
+            }
+
+            boolean isRecorded = false;
             try
             {
                 ///***************************
@@ -93,12 +130,26 @@ class MultiChunkConsumer<T,K> implements Runnable
                 if (data.consumerActions().doCommit())
                 {
                     data.consumerActions().setPhase(ConsumerPhase.Commit);
+                    if (read == 0)
+                    {
+                        if (!data.consumerActions().isConcurrentCommit() && data.consumerActions().stopChunk())
+                        {
+                            data.status().stopChunk();
+                        }
+                    }
                     //Something went wrong, de transaction was rolled back
-                    if (!isTransactionPending)
+                    else if (!isTransactionPending)
                     {
                         LOGGER.error("Error in thread: [{}] phase: [{}] The transaction was already rolled back", data.consumerActions().index(), data.consumerActions().phase());
                         data.consumerActions().add(new Exception("The transaction was already rolled back"));
                     }
+                    else if (data.consumerActions().isConcurrentCommit())
+                    {
+                        data.status().commit(skipped, written);
+                        isRecorded = true;
+                        data.status().save();
+                        tm.commit();
+                    }
                     else
                     {
                         data.status().skip(skipped);
@@ -129,7 +180,14 @@ class MultiChunkConsumer<T,K> implements Runnable
             {
                 LOGGER.error("Error in thread: [{}] phase: [{}]", data.consumerActions().index(), data.consumerActions().phase());
                 data.consumerActions().add(t);
-                data.status().undo();
+                if (!data.consumerActions().isConcurrentCommit())
+                {
+                    data.status().undo();
+                }
+                else if (isRecorded)
+                {
+                    data.status().undo(skipped, written);
+                }
                 //If a commit was failed, try to do rollback
                 if (data.consumerActions().doCommit() && isTransactionPending)
                 {
@@ -153,4 +211,40 @@ class MultiChunkConsumer<T,K> implements Runnable
 
         data.consumerActions().setPhase(ConsumerPhase.Finished);
     }
+
+    private int processAndWrite(List<T> items)
+    {
+        final List<K> itemsProcessed = processor.process(items);
+        final int written = itemsProcessed.size();
+        if (written > 0)
+        {
+            writer.write(itemsProcessed, items);
+        }
+        return written;
+    }
+
+    /**
+     * Votes for the commit of the round, the error tells the orchestrator to roll back every consumer
+     */
+    private void prepare(boolean isTransactionPending)
+    {
+        data.consumerActions().setPhase(ConsumerPhase.Prepare);
+        try
+        {
+            if (!isTransactionPending)
+            {
+                throw new Exception("The transaction was already rolled back");
+            }
+            final int txStatus = tm.getStatus();
+            if (Status.STATUS_ACTIVE != txStatus)
+            {
+                throw new Exception("The transaction cannot commit, status [" + txStatus + "]");
+            }
+        }
+        catch (Throwable t)
+        {
+            LOGGER.error("Error in thread: [{}] phase: [{}]", data.consumerActions().index(), data.consumerActions().phase(), t);
+            data.consumerActions().add(t);
+        }
+    }
 }
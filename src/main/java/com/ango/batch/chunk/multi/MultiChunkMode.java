@@ -0,0 +1,26 @@
+package com.ango.batch.chunk.multi;
+
+public enum MultiChunkMode
+{
+    /**
+     * The orchestrator hands one slice to every consumer and all of them commit in the same round
+     */
+    Lockstep("Lockstep"),
+    /**
+     * Consumers pull chunks from a bounded queue filled by the producer and commit on their own
+     */
+    WorkPulling("Work pulling");
+
+    private final String description;
+
+    MultiChunkMode(String description)
+    {
+        this.description = description;
+    }
+
+    @Override
+    public String toString()
+    {
+        return description;
+    }
+}
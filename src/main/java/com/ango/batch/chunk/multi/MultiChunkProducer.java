@@ -1,5 +1,6 @@
 package com.ango.batch.chunk.multi;
 
+import com.ango.batch.IItemRouter;
 import com.ango.batch.resource.ReaderResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,65 +13,154 @@ class MultiChunkProducer<T> implements Runnable
 
     private final ProducerData<T> data;
     private final ReaderResource<T> reader;
+    private final IItemRouter<T> router;
 
     public MultiChunkProducer(ReaderResource<T> reader, ProducerData<T> data)
+    {
+        this(reader, data, null);
+    }
+
+    /**
+     * @param router Chooses the consumer of each item, null to split the items read in contiguous blocks
+     */
+    public MultiChunkProducer(ReaderResource<T> reader, ProducerData<T> data, IItemRouter<T> router)
     {
         this.reader = reader;
         this.data = data;
+        this.router = router;
     }
 
     @Override
     public void run()
     {
-        final int maxItemsToRead = data.producerActions().consumersCount() * data.producerActions().commitInterval();
+        try
+        {
+            if (null == router)
+            {
+                produce();
+            }
+            else
+            {
+                produceRouted();
+            }
+        }
+        catch (Throwable t)
+        {
+            LOGGER.error("Error in producer", t);
+            data.producerActions().add(t);
+        }
+        finally
+        {
+            data.producerActions().finished();
+        }
+        if (LOGGER.isDebugEnabled()) LOGGER.debug("Finished");
+    }
+
+    /**
+     * Reads the chunk of each consumer straight into the lists of the round
+     */
+    private void produce()
+    {
+        final int commitInterval = data.producerActions().commitInterval();
 
         ///***************************
-        ///     WAIT FOR QUERY DATA
+        ///     READ AHEAD UNTIL THE RING IS FULL
         ///***************************
-        while (data.producerActions().waitForQueryData())
+        while (!data.producerActions().isFinished())
         {
+            final List<List<T>> round = data.producerActions().nextRound();
+            if (null == round)
+            {
+                break;
+            }
+
             if (LOGGER.isDebugEnabled()) LOGGER.debug("reading data");
             ///***************************
             ///     READING DATA
             ///***************************
-            try
+            int read = 0;
+            boolean isLast = false;
+            for (int consumerIndex = 0; consumerIndex < round.size(); consumerIndex++)
             {
-                final List<T> readItems = reader.read(maxItemsToRead);
-                putData(readItems);
-            }
-            catch (Throwable t)
-            {
-                LOGGER.error("Error in consumer", t);
-                data.producerActions().add(t);
+                final int chunkRead = reader.read(round.get(consumerIndex), commitInterval);
+                read += chunkRead;
+                data.producerActions().slicePosition(consumerIndex, reader.checkpoint());
+                if (chunkRead < commitInterval)
+                {
+                    isLast = true;
+                    break;
+                }
             }
+            data.status().read(read);
 
             ///***************************
             ///     DATA READY
             ///***************************
-            data.producerActions().dataReady();
+            if (!data.producerActions().putRound(read, isLast, reader.checkpoint()) || isLast)
+            {
+                break;
+            }
         }
-        if (LOGGER.isDebugEnabled()) LOGGER.debug("Finished");
     }
 
-    private void putData(List<T> items)
+    /**
+     * Fills the chunk of each consumer with the items routed to it, the round is ready when one of them is full.
+     * It never reads more items than the room left in the fullest chunk, so none of them exceeds the commit interval
+     */
+    private void produceRouted()
     {
-        final int totalSize = items.size();
-        data.status().read(totalSize);
-        data.producerActions().totalRead(totalSize);
-        int globalIndex = 0;
-        for (int idxConsumer = 0; idxConsumer < data.producerActions().consumersCount(); idxConsumer++)
+        final int consumers = data.producerActions().consumers();
+        final int commitInterval = data.producerActions().commitInterval();
+        final List<T> readItems = reader.newBuffer(commitInterval);
+        List<List<T>> round = data.producerActions().nextRound();
+        int fullest = 0;
+        int read = 0;
+
+        while (null != round && !data.producerActions().isFinished())
         {
-            data.producerActions().clear(idxConsumer);
-            for (int idxItem = 0; idxItem < data.producerActions().commitInterval(); idxItem++)
+            ///***************************
+            ///     READING DATA
+            ///***************************
+            final int itemsToRead = commitInterval - fullest;
+            readItems.clear();
+            final int chunkRead = reader.read(readItems, itemsToRead);
+            data.status().read(chunkRead);
+            read += chunkRead;
+
+            ///***************************
+            ///     ROUTING
+            ///***************************
+            for (final T item : readItems)
             {
-                if (globalIndex == totalSize)
+                final List<T> chunk = round.get(route(item, consumers));
+                chunk.add(item);
+                fullest = Math.max(fullest, chunk.size());
+            }
+
+            ///***************************
+            ///     DATA READY
+            ///***************************
+            final boolean isLast = chunkRead < itemsToRead;
+            if (isLast || fullest == commitInterval)
+            {
+                if (!data.producerActions().putRound(read, isLast, reader.checkpoint()) || isLast)
                 {
                     break;
                 }
-                final T item = items.get(globalIndex++);
-                data.producerActions().addData(idxConsumer, item);
+                round = data.producerActions().nextRound();
+                fullest = 0;
+                read = 0;
             }
         }
     }
 
+    private int route(T item, int consumers)
+    {
+        final int index = router.route(item, consumers);
+        if (index < 0 || index >= consumers)
+        {
+            throw new IndexOutOfBoundsException("Item routed to consumer [" + index + "] of [" + consumers + "]");
+        }
+        return index;
+    }
 }
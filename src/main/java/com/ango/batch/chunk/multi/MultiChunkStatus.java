@@ -3,15 +3,196 @@ package com.ango.batch.chunk.multi;
 import com.ango.batch.chunk.simple.ChunkStepStatus;
 import com.ango.batch.exceptions.ConsumerException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class MultiChunkStatus extends ChunkStepStatus
 {
+    private int bufferCapacity = 0;
+    private int maxBufferOccupancy = 0;
+    private long bufferOccupancy = 0;
+    private long bufferTakes = 0;
+    private long bufferEmptyTakes = 0;
+    private int activeConsumers = 0;
+    private int maxActiveConsumers = 0;
+    private int scaleUps = 0;
+    private int scaleDowns = 0;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+    private long cacheEvictions = 0;
+    private final List<ChunkStepStatus> partitions = new ArrayList<>();
+
     public MultiChunkStatus(String name)
     {
         super(name);
     }
 
+    @Override
+    public void reset()
+    {
+        super.reset();
+        bufferCapacity = 0;
+        maxBufferOccupancy = 0;
+        bufferOccupancy = 0;
+        bufferTakes = 0;
+        bufferEmptyTakes = 0;
+        activeConsumers = 0;
+        maxActiveConsumers = 0;
+        scaleUps = 0;
+        scaleDowns = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+        cacheEvictions = 0;
+        partitions.clear();
+    }
+
     public void add(int index, ConsumerPhase phase, Throwable t)
     {
         stop(new ConsumerException(index, phase, t));
     }
+
+    /**
+     * Creates the counters of each partition, they are updated only by the thread of its partition
+     */
+    public void partitions(int count)
+    {
+        partitions.clear();
+        for (int i = 0; i < count; i++)
+        {
+            partitions.add(new ChunkStepStatus(name() + "-" + i));
+        }
+    }
+
+    public ChunkStepStatus partition(int index)
+    {
+        return partitions.get(index);
+    }
+
+    public List<ChunkStepStatus> partitions()
+    {
+        return Collections.unmodifiableList(partitions);
+    }
+
+    public synchronized void bufferCapacity(int capacity)
+    {
+        bufferCapacity = capacity;
+    }
+
+    /**
+     * Samples how many pre-read chunks were waiting in the buffer when a chunk was requested
+     */
+    public synchronized void bufferTake(int occupancy)
+    {
+        bufferTakes++;
+        bufferOccupancy += occupancy;
+        if (occupancy > maxBufferOccupancy)
+        {
+            maxBufferOccupancy = occupancy;
+        }
+        if (occupancy == 0)
+        {
+            bufferEmptyTakes++;
+        }
+    }
+
+    /**
+     * The consumers running, with elastic consumers it changes while the step runs
+     */
+    public synchronized void consumers(int active)
+    {
+        activeConsumers = active;
+        maxActiveConsumers = Math.max(maxActiveConsumers, active);
+    }
+
+    public synchronized void scaleUp(int active)
+    {
+        scaleUps++;
+        consumers(active);
+    }
+
+    public synchronized void scaleDown(int active)
+    {
+        scaleDowns++;
+        consumers(active);
+    }
+
+    public synchronized int activeConsumers()
+    {
+        return activeConsumers;
+    }
+
+    public synchronized int maxActiveConsumers()
+    {
+        return maxActiveConsumers;
+    }
+
+    public synchronized int scaleUps()
+    {
+        return scaleUps;
+    }
+
+    public synchronized int scaleDowns()
+    {
+        return scaleDowns;
+    }
+
+    /**
+     * Counters of the processor cache shared by the consumers in the execution
+     */
+    public synchronized void cache(long hits, long misses, long evictions)
+    {
+        cacheHits = hits;
+        cacheMisses = misses;
+        cacheEvictions = evictions;
+    }
+
+    public synchronized long cacheHits()
+    {
+        return cacheHits;
+    }
+
+    public synchronized long cacheMisses()
+    {
+        return cacheMisses;
+    }
+
+    public synchronized long cacheEvictions()
+    {
+        return cacheEvictions;
+    }
+
+    public synchronized double cacheHitRatio()
+    {
+        final long requests = cacheHits + cacheMisses;
+        return (requests == 0) ? 0 : (double) cacheHits / requests;
+    }
+
+    public synchronized int bufferCapacity()
+    {
+        return bufferCapacity;
+    }
+
+    public synchronized int maxBufferOccupancy()
+    {
+        return maxBufferOccupancy;
+    }
+
+    public synchronized double avgBufferOccupancy()
+    {
+        return (bufferTakes == 0) ? 0 : (double) bufferOccupancy / bufferTakes;
+    }
+
+    public synchronized long bufferEmptyTakes()
+    {
+        return bufferEmptyTakes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return super.toString() + " bufferCapacity [" + bufferCapacity() + "] maxBufferOccupancy [" + maxBufferOccupancy() +
+         "] avgBufferOccupancy [" + avgBufferOccupancy() + "] bufferEmptyTakes [" + bufferEmptyTakes() + "] maxActiveConsumers [" + maxActiveConsumers() +
+         "] scaleUps [" + scaleUps() + "] scaleDowns [" + scaleDowns() + "] cacheHits [" + cacheHits() + "] cacheMisses [" + cacheMisses() + "]";
+    }
 }
@@ -1,12 +1,16 @@
 package com.ango.batch.chunk.multi;
 
 import com.ango.batch.*;
+import com.ango.batch.chunk.AdaptiveCommitInterval;
+import com.ango.batch.chunk.CachingProcessor;
+import com.ango.batch.chunk.FaultTolerance;
+import com.ango.batch.chunk.ItemCache;
 import com.ango.batch.exceptions.MultiChunkException;
 import com.ango.batch.resource.ProcessorResource;
 import com.ango.batch.resource.ReaderResource;
 import com.ango.batch.resource.WriterResource;
 import com.ango.batch.step.CommonStep;
-import com.ango.batch.thread.ExecutorFactory;
+import com.ango.batch.thread.ExecutorPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,12 +18,24 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implements IStep
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultiChunkStep.class);
 
+    //Time between two checks of backlog and idle time for elastic consumers
+    private static final long SCALE_MILLIS = 200;
+
+    //Idle fractions of the consumers to add or retire one
+    private static final double MAX_IDLE_TO_ADD = 0.1;
+    private static final double MIN_IDLE_TO_RETIRE = 0.5;
+
+    private static final String PRODUCER_THREAD = "producer-0";
+
     private ReaderResource<T> reader;
 
     private final List<ProcessorResource<T,K>> processors = new LinkedList<>();
@@ -30,12 +46,44 @@ public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implement
 
     private ProducerData<T> exchangeProducerData;
 
+    private WorkData<T> exchangeWorkData;
+
+    private final List<ExecutorPool.Lease> leases = new ArrayList<>();
+
+    private MultiChunkMode mode = MultiChunkMode.Lockstep;
+
+    private CommitMode commitMode = CommitMode.Sequential;
+
     private int consumers;
 
     private int commitInterval;
 
     private int waitTimeout;
 
+    private int readAhead = 1;
+
+    private AdaptiveCommitInterval adaptiveCommitInterval;
+
+    private Supplier<IProcessor<T,K>> processorFactory;
+
+    private Supplier<IWriter<K>> writerFactory;
+
+    private int maxConsumers;
+
+    private IItemRouter<T> router;
+
+    private FaultTolerance faultTolerance;
+
+    private int parallelProcessing;
+
+    private int maxInFlight = ProcessorResource.DEFAULT_MAX_IN_FLIGHT;
+
+    private long asyncTimeout = 0;
+
+    private ItemCache<Object,K> processorCache;
+
+    private Function<? super T, ?> cacheKey;
+
     public MultiChunkStep()
     {
     }
@@ -47,7 +95,8 @@ public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implement
 
     public void addProcessor(IProcessor<T,K> processor)
     {
-        processors.add(new ProcessorResource<>(processor));
+        processors.add(new ProcessorResource<>((null == processorCache) ? processor
+                : new CachingProcessor<>(processor, processorCache, cacheKey)));
     }
 
     public void addWriter(IWriter<K> writer)
@@ -55,6 +104,30 @@ public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implement
         writers.add(new WriterResource<>(writer));
     }
 
+    /**
+     * The processor of each consumer is created at the start of each execution, or when an elastic consumer is added
+     */
+    public void setProcessorFactory(Supplier<IProcessor<T,K>> processorFactory)
+    {
+        this.processorFactory = processorFactory;
+    }
+
+    /**
+     * The writer of each consumer is created at the start of each execution, or when an elastic consumer is added
+     */
+    public void setWriterFactory(Supplier<IWriter<K>> writerFactory)
+    {
+        this.writerFactory = writerFactory;
+    }
+
+    /**
+     * In work pulling mode the consumers grow from the ones set until this max, it needs a writer factory
+     */
+    public void setMaxConsumers(int maxConsumers)
+    {
+        this.maxConsumers = maxConsumers;
+    }
+
     public void setCommitInterval(int interval)
     {
         this.commitInterval = interval;
@@ -67,6 +140,74 @@ public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implement
         this.consumers = consumers;
     }
 
+    public void setReadAhead(int readAhead)
+    {
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Changes the commit interval between chunks in work pulling mode, the one set is only the size of the first chunk
+     */
+    public void setAdaptiveCommitInterval(AdaptiveCommitInterval adaptiveCommitInterval)
+    {
+        this.adaptiveCommitInterval = adaptiveCommitInterval;
+    }
+
+    public void setMode(MultiChunkMode mode)
+    {
+        this.mode = mode;
+    }
+
+    public void setCommitMode(CommitMode commitMode)
+    {
+        this.commitMode = commitMode;
+    }
+
+    /**
+     * Sends the items to the consumers chosen by the router instead of splitting them in blocks
+     */
+    public void setRouter(IItemRouter<T> router)
+    {
+        this.router = router;
+    }
+
+    /**
+     * Skips the items that fail on their own instead of failing the step
+     */
+    public void setFaultTolerance(FaultTolerance faultTolerance)
+    {
+        this.faultTolerance = faultTolerance;
+    }
+
+    /**
+     * Processes the items of each consumer chunk in the shared fork-join pool, in tasks of at least these items
+     */
+    public void setParallelProcessing(int minItemsPerTask)
+    {
+        this.parallelProcessing = minItemsPerTask;
+    }
+
+    /**
+     * Limits of an async processor in each consumer, the items waiting for their result and the millis each one can take
+     */
+    public void setAsyncLimits(int maxInFlight, long timeoutMillis)
+    {
+        this.maxInFlight = maxInFlight;
+        this.asyncTimeout = timeoutMillis;
+    }
+
+    /**
+     * Processes the items through a cache shared by all the consumers, it must be set before adding the processors.
+     * The cache is emptied at the start of each execution
+     *
+     * @param key The part of the item the result depends on
+     */
+    public void setProcessorCache(ItemCache<Object,K> cache, Function<? super T, ?> key)
+    {
+        this.processorCache = cache;
+        this.cacheKey = key;
+    }
+
     @Override
     public String name()
     {
@@ -77,7 +218,33 @@ public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implement
     public IStepStatus execute()
     {
         status().reset();
-        doExecute();
+        if (null != faultTolerance)
+        {
+            faultTolerance.reset();
+        }
+        if (null != processorCache)
+        {
+            processorCache.clear();
+        }
+        createResources();
+        if (MultiChunkMode.WorkPulling == mode)
+        {
+            doExecuteWorkPulling();
+        }
+        else
+        {
+            doExecute();
+        }
+        if (null != processorCache)
+        {
+            status().cache(processorCache.hits(), processorCache.misses(), processorCache.evictions());
+        }
+        long affectedRows = 0;
+        for (WriterResource<K> writer : writers)
+        {
+            affectedRows += writer.affectedRows();
+        }
+        status().affectedRows(affectedRows);
         return checkStatus();
     }
 
@@ -85,22 +252,27 @@ public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implement
     {
         try
         {
-            final int maxItemsToRead = commitInterval * consumers;
-
+            final String position = status().restore();
             status().start();
             status().save();
 
             openResources();
-            startConsumers();
-            startProducer();
-
-            exchangeProducerData.orchestratorActions().startRead();
+            if (null != position)
+            {
+                LOGGER.info("Restarting step [{}] from [{}]", status().name(), position);
+                reader.restore(position);
+            }
+            //The producer's thread comes in the same lease, the consumers never hold threads waiting for it
+            final ExecutorPool.Lease lease = leaseThreads(consumers + 1, "consumer");
+            startConsumers(lease);
+            startProducer(lease);
 
             boolean isErrorInProducer;
             boolean isErrorInConsumers = false;
             while (true)
             {
                 status().startChunk();
+                status().commitInterval(commitInterval);
 
                 exchangeProducerData.orchestratorActions().waitForData();
                 isErrorInProducer = exchangeProducerData.orchestratorActions().isError();
@@ -112,38 +284,21 @@ public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implement
                     break;
                 }
 
-                int consumersWithData = putDataToConsumers();
-                if (read < maxItemsToRead)
+                final boolean isLast = exchangeProducerData.orchestratorActions().isLast();
+                final String roundPosition = exchangeProducerData.orchestratorActions().position();
+                final List<ConsumerData<T>> round = putDataToConsumers(isLast);
+                if (isLast)
                 {
                     stopProducer();
                 }
-                else
-                {
-                    exchangeProducerData.orchestratorActions().startRead();
-                }
 
-                for (int consumerIndex = 0; consumerIndex < consumersWithData; consumerIndex++)
+                final List<ConsumerData<T>> committed = new ArrayList<>(round.size());
+                isErrorInConsumers = (CommitMode.Sequential == commitMode)
+                        ? resolveSequentially(round, committed)
+                        : resolveConcurrently(round, committed);
+                if (isErrorInConsumers || isLast) //If the chunk is in error or there's no data for next iteration, finish the consumers
                 {
-                    final ConsumerData<T> data = exchangeConsumersData.get(consumerIndex);
-                    data.orchestratorActions().waitForProcessing();
-                    if (data.orchestratorActions().isError())
-                    {
-                        isErrorInConsumers = true;
-                    }
-                    if (isErrorInConsumers) //Do rollback
-                    {
-                        data.orchestratorActions().doRollback();
-                        data.orchestratorActions().waitForResolution();
-                    }
-                    else //Do commit
-                    {
-                        //Stop chunk if it's the last thread with data
-                        final boolean isLastConsumerWithData = consumerIndex + 1 == consumersWithData;
-                        data.orchestratorActions().doCommit(isLastConsumerWithData);
-                        data.orchestratorActions().waitForResolution();
-                        isErrorInConsumers = data.orchestratorActions().isError();
-                    }
-                    if (isErrorInConsumers || (read < maxItemsToRead)) //If the chunk is in error or there's no data for next iteration, finish the consumer
+                    for (final ConsumerData<T> data : round)
                     {
                         data.orchestratorActions().finishConsumer();
                     }
@@ -151,76 +306,262 @@ public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implement
 
                 if (isErrorInConsumers)
                 {
+                    checkpointCommitted(round, committed);
                     stopProducer();
                     stopConsumers();
                     break;
                 }
+                //Only a round committed by every consumer moves the restart position
+                status().checkpoint(roundPosition);
+                status().save();
 
-                if (read < maxItemsToRead)
+                if (isLast)
                 {
                     break;
                 }
             }
 
             closeResources();
+            stopStep(isErrorInProducer, isErrorInConsumers);
+        }
+        catch (Throwable t)
+        {
+            LOGGER.error("Error executing step [{}]", status().name(), t);
+            status().stop(t);
+            stopProducer();
+            stopConsumers();
+            closeResources();
+            status().saveProtected();
+        }
+        finally
+        {
+            releaseThreads();
+        }
+    }
 
-            if (isErrorInProducer)
+    /**
+     * Commits the consumers one after another, once one fails the rest roll back
+     */
+    private boolean resolveSequentially(List<ConsumerData<T>> round, List<ConsumerData<T>> committed)
+    {
+        boolean isErrorInConsumers = false;
+        for (int consumerIndex = 0; consumerIndex < round.size(); consumerIndex++)
+        {
+            final ConsumerData<T> data = round.get(consumerIndex);
+            data.orchestratorActions().waitForProcessing();
+            if (data.orchestratorActions().isError())
             {
-                status().stop(new MultiChunkException("The producer has failed"));
+                isErrorInConsumers = true;
             }
-            else if (isErrorInConsumers)
+            if (isErrorInConsumers) //Do rollback
             {
-                status().stop(new MultiChunkException("One or more consumers have failed"));
+                data.orchestratorActions().doRollback();
+                data.orchestratorActions().waitForResolution();
+            }
+            else //Do commit
+            {
+                //Stop chunk if it's the last thread with data
+                final boolean isLastConsumerWithData = consumerIndex + 1 == round.size();
+                data.orchestratorActions().doCommit(isLastConsumerWithData);
+                data.orchestratorActions().waitForResolution();
+                isErrorInConsumers = data.orchestratorActions().isError();
+                if (!isErrorInConsumers)
+                {
+                    committed.add(data);
+                }
+            }
+        }
+        return isErrorInConsumers;
+    }
+
+    /**
+     * Orders every consumer before waiting for any of them, so the round takes the slowest commit instead of the sum
+     */
+    private boolean resolveConcurrently(List<ConsumerData<T>> round, List<ConsumerData<T>> committed)
+    {
+        boolean isErrorInConsumers = false;
+        for (final ConsumerData<T> data : round)
+        {
+            data.orchestratorActions().waitForProcessing();
+            isErrorInConsumers |= data.orchestratorActions().isError();
+        }
+        if (!isErrorInConsumers && CommitMode.TwoPhase == commitMode)
+        {
+            for (final ConsumerData<T> data : round)
+            {
+                data.orchestratorActions().doPrepare();
+            }
+            for (final ConsumerData<T> data : round)
+            {
+                data.orchestratorActions().waitForResolution();
+                isErrorInConsumers |= data.orchestratorActions().isError();
+            }
+        }
+        final boolean isCommit = !isErrorInConsumers;
+        for (final ConsumerData<T> data : round)
+        {
+            if (isCommit)
+            {
+                data.orchestratorActions().doCommit(false);
             }
             else
             {
-                status().stop();
+                data.orchestratorActions().doRollback();
             }
-            try
+        }
+        for (final ConsumerData<T> data : round)
+        {
+            data.orchestratorActions().waitForResolution();
+            isErrorInConsumers |= data.orchestratorActions().isError();
+            if (isCommit && !data.orchestratorActions().isError())
             {
-                status().save();
+                committed.add(data);
+            }
+        }
+        if (!isErrorInConsumers)
+        {
+            status().stopChunk();
+        }
+        return isErrorInConsumers;
+    }
+
+    /**
+     * Keeps the consumers that committed before the round failed, the position moves after the last of them that
+     * only follows committed ones. Routed items, or a consumer committed after one that failed, can't be told by a
+     * position: a restart writes them again
+     */
+    private void checkpointCommitted(List<ConsumerData<T>> round, List<ConsumerData<T>> committed)
+    {
+        if (committed.isEmpty())
+        {
+            return;
+        }
+        int prefix = 0;
+        while (prefix < round.size() && committed.contains(round.get(prefix)))
+        {
+            prefix++;
+        }
+        final String position = (prefix == 0) ? null
+                : exchangeProducerData.orchestratorActions().position(exchangeConsumersData.indexOf(round.get(prefix - 1)));
+        if (null != position)
+        {
+            status().checkpoint(position);
+        }
+        if (null == position || prefix < committed.size())
+        {
+            LOGGER.warn("Step [{}] has consumers committed in the failed round after the checkpoint, a restart writes them again",
+                    status().name());
+        }
+    }
+
+    private void doExecuteWorkPulling()
+    {
+        try
+        {
+            status().start();
+            status().save();
+
+            openResources();
+            if (null != adaptiveCommitInterval)
+            {
+                adaptiveCommitInterval.reset();
+            }
+            exchangeWorkData = new WorkData<>(status(), maxConsumers(), commitInterval, adaptiveCommitInterval, readAhead, waitTimeout,
+                    null != router);
+            final ExecutorPool.Lease consumersLease = leaseThreads(maxConsumers() + 1, "consumer");
+            startWorkConsumers(consumersLease);
+            startWorkProducer(consumersLease);
+            exchangeWorkData.orchestratorActions().started();
+
+            if (isElastic())
+            {
+                scaleConsumers(consumersLease);
             }
-            catch (Throwable t)
+            else
             {
-                status().stop();
-                status().saveProtected();
+                exchangeWorkData.orchestratorActions().waitForFinish();
             }
+
+            closeResources();
+            stopStep(exchangeWorkData.orchestratorActions().isErrorInProducer(),
+                    exchangeWorkData.orchestratorActions().isErrorInConsumers());
         }
         catch (Throwable t)
         {
             LOGGER.error("Error executing step [{}]", status().name(), t);
             status().stop(t);
-            stopProducer();
-            stopConsumers();
+            if (null != exchangeWorkData)
+            {
+                exchangeWorkData.orchestratorActions().finish();
+            }
             closeResources();
             status().saveProtected();
         }
+        finally
+        {
+            releaseThreads();
+        }
     }
 
-    private int putDataToConsumers()
+    private void stopStep(boolean isErrorInProducer, boolean isErrorInConsumers)
     {
-        int consumersWithDataCounter = 0;
+        if (isErrorInProducer)
+        {
+            status().stop(new MultiChunkException("The producer has failed"));
+        }
+        else if (isErrorInConsumers)
+        {
+            status().stop(new MultiChunkException("One or more consumers have failed"));
+        }
+        else
+        {
+            status().stop();
+        }
+        try
+        {
+            status().save();
+        }
+        catch (Throwable t)
+        {
+            status().stop();
+            status().saveProtected();
+        }
+    }
+
+    /**
+     * A consumer without data in the last round finishes. With a router it can have no data in any round, then it
+     * stays in step with the others without a transaction and without counting a commit
+     *
+     * @return The consumers of the round
+     */
+    private List<ConsumerData<T>> putDataToConsumers(boolean isLast)
+    {
+        final List<ConsumerData<T>> round = new ArrayList<>(consumers);
         for (int consumerIndex = 0; consumerIndex < consumers; consumerIndex++)
         {
             final ConsumerData<T> exchangeDataI = exchangeConsumersData.get(consumerIndex);
             final List<T> dataForConsumerI = exchangeProducerData.orchestratorActions().data(consumerIndex);
-            if (dataForConsumerI.isEmpty())
+            if (dataForConsumerI.isEmpty() && isLast)
             {
                 exchangeDataI.orchestratorActions().finishConsumer();
             }
             else
             {
-                consumersWithDataCounter++;
-                exchangeDataI.orchestratorActions().addItems(dataForConsumerI);
+                round.add(exchangeDataI);
+                exchangeProducerData.orchestratorActions().replaceData(consumerIndex,
+                        exchangeDataI.orchestratorActions().swapItems(dataForConsumerI));
                 exchangeDataI.orchestratorActions().dataReady();
             }
         }
-        return consumersWithDataCounter;
+        return round;
     }
 
     private void stopProducer()
     {
-        exchangeProducerData.orchestratorActions().finishProducer();
+        if (null != exchangeProducerData)
+        {
+            exchangeProducerData.orchestratorActions().finishProducer();
+        }
     }
 
     private void stopConsumers()
@@ -231,24 +572,168 @@ public class MultiChunkStep <T,K> extends CommonStep<MultiChunkStatus> implement
         }
     }
 
-    private void startProducer()
+    private void startProducer(ExecutorPool.Lease lease)
     {
-        final Executor executor = ExecutorFactory.getInstance(consumers, "producer");
-        exchangeProducerData = new ProducerData<>(status(), consumers, commitInterval, waitTimeout);
-        final MultiChunkProducer<T> producer = new MultiChunkProducer<>(reader, exchangeProducerData);
-        executor.execute(producer);
+        exchangeProducerData = new ProducerData<>(status(), consumers, commitInterval, readAhead, waitTimeout, reader::newBuffer);
+        final MultiChunkProducer<T> producer = new MultiChunkProducer<>(reader, exchangeProducerData, router);
+        lease.execute(consumers, PRODUCER_THREAD, producer);
     }
 
-    private void startConsumers()
+    private void startConsumers(ExecutorPool.Lease lease)
     {
-        final Executor executor = ExecutorFactory.getInstance(consumers, "consumer");
+        exchangeConsumersData.clear();
         for (int i = 0; i < consumers; i++)
         {
-            exchangeConsumersData.add(new ConsumerData<>(status(), i, commitInterval, waitTimeout));
+            exchangeConsumersData.add(new ConsumerData<>(status(), i, waitTimeout, commitMode, reader.newBuffer(commitInterval)));
             final MultiChunkConsumer<T,K> consumer = new MultiChunkConsumer<>(transactionManager(),
-                    processors.get(i), writers.get(i), exchangeConsumersData.get(i));
-            executor.execute(consumer);
+                    processor(i), writers.get(i), exchangeConsumersData.get(i), faultTolerance);
+            lease.execute(consumer);
+        }
+    }
+
+    private void startWorkProducer(ExecutorPool.Lease lease)
+    {
+        exchangeWorkData.orchestratorActions().starting(false);
+        lease.execute(maxConsumers(), PRODUCER_THREAD, new WorkProducer<>(reader, exchangeWorkData, router));
+    }
+
+    /**
+     * Elastic consumers reserve the threads of the max, so adding one never waits for other steps
+     */
+    private void startWorkConsumers(ExecutorPool.Lease lease) throws IOException
+    {
+        for (int i = 0; i < consumers; i++)
+        {
+            startWorkConsumer(lease, i);
+        }
+        status().consumers(consumers);
+    }
+
+    private void startWorkConsumer(ExecutorPool.Lease lease, int index) throws IOException
+    {
+        if (exchangeWorkData.orchestratorActions().starting(true))
+        {
+            addResources(index);
+            lease.execute(index, new WorkConsumer<>(transactionManager(), processor(index), writers.get(index), exchangeWorkData, index,
+                    faultTolerance));
+        }
+    }
+
+    /**
+     * Adds a consumer when chunks wait in the buffer and the consumers are always busy, retires one when they wait
+     * for data most of the time, until the step ends
+     */
+    private void scaleConsumers(ExecutorPool.Lease lease) throws InterruptedException, IOException
+    {
+        final WorkData<T>.OrchestratorActions actions = exchangeWorkData.orchestratorActions();
+        long lastIdleNanos = actions.idleNanos();
+        while (!actions.waitForFinish(SCALE_MILLIS))
+        {
+            final long idleNanos = actions.idleNanos();
+            final int active = actions.activeConsumers();
+            final double idle = (double) (idleNanos - lastIdleNanos) / (Math.max(active, 1) * TimeUnit.MILLISECONDS.toNanos(SCALE_MILLIS));
+            lastIdleNanos = idleNanos;
+
+            final int backlog = actions.backlog();
+            if (backlog > 0 && idle < MAX_IDLE_TO_ADD && active < maxConsumers)
+            {
+                //The last slot is the producer's, free once it ends
+                final int slot = lease.freeSlot();
+                if (slot >= 0 && slot < maxConsumers)
+                {
+                    if (LOGGER.isDebugEnabled()) LOGGER.debug("Adding consumer {}, backlog {} idle {}", slot, backlog, idle);
+                    startWorkConsumer(lease, slot);
+                    status().scaleUp(actions.activeConsumers());
+                }
+            }
+            else if (backlog == 0 && idle > MIN_IDLE_TO_RETIRE && active > consumers)
+            {
+                if (LOGGER.isDebugEnabled()) LOGGER.debug("Retiring consumer, idle {}", idle);
+                actions.retireConsumer();
+                status().scaleDown(actions.activeConsumers());
+            }
+        }
+    }
+
+    private boolean isElastic()
+    {
+        return MultiChunkMode.WorkPulling == mode && maxConsumers > consumers;
+    }
+
+    private int maxConsumers()
+    {
+        return isElastic() ? maxConsumers : consumers;
+    }
+
+    private ExecutorPool.Lease leaseThreads(int threads, String threadNamePrefix) throws InterruptedException, TimeoutException
+    {
+        final ExecutorPool.Lease lease = ExecutorPool.getInstance().lease(threads, threadNamePrefix, threadMode(), waitTimeout);
+        leases.add(lease);
+        return lease;
+    }
+
+    /**
+     * The threads still running give back their lease when they end
+     */
+    private void releaseThreads()
+    {
+        for (final ExecutorPool.Lease lease : leases)
+        {
+            lease.close();
+        }
+        leases.clear();
+    }
+
+    /**
+     * With factories each execution has its own processors and writers
+     */
+    private void createResources()
+    {
+        if (null != writerFactory)
+        {
+            writers.clear();
+            processors.clear();
+            for (int i = 0; i < consumers; i++)
+            {
+                addConsumerResources();
+            }
+        }
+    }
+
+    private void addConsumerResources()
+    {
+        if (null != processorFactory)
+        {
+            addProcessor(processorFactory.get());
+        }
+        addWriter(writerFactory.get());
+    }
+
+    /**
+     * Creates and opens the resources of an elastic consumer the first time its slot is used
+     */
+    private void addResources(int index) throws IOException
+    {
+        while (writers.size() <= index)
+        {
+            addConsumerResources();
+            if (null != processorFactory)
+            {
+                processors.get(processors.size() - 1).open();
+            }
+            writers.get(writers.size() - 1).open();
+        }
+    }
+
+    private ProcessorResource<T,K> processor(int index)
+    {
+        final ProcessorResource<T,K> processor = processors.isEmpty() ? new ProcessorResource<>(null) : processors.get(index);
+        if (parallelProcessing > 0)
+        {
+            processor.setParallelism(ExecutorPool.getInstance().forkJoinPool(), parallelProcessing);
         }
+        processor.setAsyncLimits(maxInFlight, asyncTimeout);
+        return processor;
     }
 
     private void openResources() throws IOException
@@ -6,43 +6,61 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
 
 class ProducerData<T>
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProducerData.class);
 
-    private final CyclicBarrier barrier = new CyclicBarrier(2);
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<SuperChunk> ring;
+    private final BlockingQueue<SuperChunk> free;
+    private final CountDownLatch running = new CountDownLatch(1);
     private final int consumersCount;
-    private boolean isError = false;
+    private volatile boolean isError = false;
     private final MultiChunkStatus status;
-    private final List<List<T>> dataArray ;
     private final int commitInterval;
+    private final int readAhead;
     private final int waitSeconds;
-    private boolean doFinish;
-    private int read;
+    private final IntFunction<List<T>> newChunk;
+    private volatile boolean doFinish;
+    private SuperChunk current;
+    private SuperChunk filling;
     private final OrchestratorActions orchestratorActions;
     private final ProducerActions producerActions;
 
-    public ProducerData(MultiChunkStatus status, int consumersCount, int commitInterval, int waitSeconds)
+    /**
+     * @param newChunk Creates the lists of the rounds, with the capacity of a chunk
+     */
+    public ProducerData(MultiChunkStatus status, int consumersCount, int commitInterval, int readAhead, int waitSeconds,
+                        IntFunction<List<T>> newChunk)
     {
+        this.newChunk = newChunk;
         this.status = status;
         this.consumersCount = consumersCount;
         this.commitInterval = commitInterval;
+        this.readAhead = readAhead;
         this.waitSeconds = waitSeconds;
         orchestratorActions = new OrchestratorActions();
         producerActions = new ProducerActions();
         this.doFinish = false;
-        this.read = 0;
-        dataArray = new ArrayList<>(consumersCount);
-        for (int i = 0; i < consumersCount; i++)
+        this.ring = new ArrayBlockingQueue<>(readAhead);
+        //The rounds in the ring, the one being filled and the one delivered, they are reused instead of created
+        this.free = new ArrayBlockingQueue<>(readAhead + 2);
+        for (int i = 0; i <= readAhead; i++)
         {
-            dataArray.add(new ArrayList<>(commitInterval));
+            free.add(new SuperChunk());
         }
+        this.current = new SuperChunk();
+        status.bufferCapacity(readAhead);
     }
 
     public MultiChunkStatus status()
@@ -50,26 +68,83 @@ class ProducerData<T>
         return status;
     }
 
-    private boolean handShakeForNextPhase()
+    private boolean put(SuperChunk superChunk)
     {
         try
         {
-            if (waitSeconds > 0)
+            while (!doFinish)
             {
-                barrier.await(waitSeconds, TimeUnit.SECONDS);
+                if (ring.offer(superChunk, POLL_MILLIS, TimeUnit.MILLISECONDS))
+                {
+                    return true;
+                }
             }
-            else
+            return false;
+        }
+        catch (InterruptedException e)
+        {
+            LOGGER.error("Exception putting data {}", e.getClass());
+            isError = true;
+            status.add(new HandShakeException(e));
+            return false;
+        }
+    }
+
+    private SuperChunk acquire()
+    {
+        try
+        {
+            while (!doFinish)
             {
-                barrier.await();
+                final SuperChunk superChunk = free.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (null != superChunk)
+                {
+                    return superChunk;
+                }
             }
-            return true;
+            return null;
         }
-        catch (InterruptedException | BrokenBarrierException | TimeoutException e)
+        catch (InterruptedException e)
         {
-            LOGGER.error("Exception in handshake {}", e.getClass());
+            LOGGER.error("Exception acquiring buffer {}", e.getClass());
             isError = true;
             status.add(new HandShakeException(e));
-            return false;
+            return null;
+        }
+    }
+
+    private void recycle(SuperChunk superChunk)
+    {
+        for (final List<T> items : superChunk.dataArray)
+        {
+            items.clear();
+        }
+        superChunk.read = 0;
+        superChunk.position = null;
+        Arrays.fill(superChunk.positions, null);
+        superChunk.isLast = true;
+        superChunk.isError = false;
+        free.offer(superChunk);
+    }
+
+    private SuperChunk take()
+    {
+        try
+        {
+            status.bufferTake(ring.size());
+            final SuperChunk superChunk = (waitSeconds > 0) ? ring.poll(waitSeconds, TimeUnit.SECONDS) : ring.take();
+            if (null == superChunk)
+            {
+                throw new TimeoutException();
+            }
+            return superChunk;
+        }
+        catch (InterruptedException | TimeoutException e)
+        {
+            LOGGER.error("Exception taking data {}", e.getClass());
+            isError = true;
+            status.add(new HandShakeException(e));
+            return new SuperChunk();
         }
     }
 
@@ -80,6 +155,30 @@ class ProducerData<T>
 
     public ProducerActions producerActions() { return producerActions; }
 
+    /**
+     * The items read in one go for all the consumers of a round. The lists are handed to the consumers in exchange
+     * for the ones they processed in the last round, so the items are never copied
+     */
+    private class SuperChunk
+    {
+        private final List<List<T>> dataArray;
+        private int read = 0;
+        private String position = null;
+        private final String[] positions;
+        private boolean isLast = true;
+        private boolean isError = false;
+
+        private SuperChunk()
+        {
+            positions = new String[consumersCount];
+            dataArray = new ArrayList<>(consumersCount);
+            for (int i = 0; i < consumersCount; i++)
+            {
+                dataArray.add(newChunk.apply(commitInterval));
+            }
+        }
+    }
+
     public class OrchestratorActions
     {
         private OrchestratorActions() { }
@@ -87,23 +186,45 @@ class ProducerData<T>
         public List<T> data(int index)
         {
             checkIndex(index);
-            return dataArray.get(index);
+            return current.dataArray.get(index);
+        }
+
+        /**
+         * Leaves in the round the list a consumer gives back for the one it has taken, it's emptied when the
+         * round is reused
+         */
+        public void replaceData(int index, List<T> items)
+        {
+            checkIndex(index);
+            current.dataArray.set(index, items);
         }
 
-        public boolean isError() { return isError; }
+        public boolean isError() { return isError || current.isError; }
+
+        public int read() { return current.read; }
 
-        public int read() { return read; }
+        /**
+         * Position of the reader after the items of the round
+         */
+        public String position() { return current.position; }
 
-        public void startRead()
+        /**
+         * Position of the reader after the items of a consumer, null when the items are routed
+         */
+        public String position(int index)
         {
-            if (LOGGER.isDebugEnabled()) LOGGER.debug("Order producer to read data");
-            handShakeForNextPhase();
+            checkIndex(index);
+            return current.positions[index];
         }
 
+        public boolean isLast() { return current.isLast; }
+
         public void waitForData()
         {
             if (LOGGER.isDebugEnabled()) LOGGER.debug("Waiting for data");
-            handShakeForNextPhase();
+            //The consumers have resolved the last round, its lists are free again
+            recycle(current);
+            current = take();
         }
 
         public void finishProducer()
@@ -112,7 +233,27 @@ class ProducerData<T>
             {
                 if (LOGGER.isDebugEnabled()) LOGGER.debug("Order producer to finish");
                 doFinish = true;
-                handShakeForNextPhase();
+                ring.clear();
+                try
+                {
+                    if (waitSeconds > 0)
+                    {
+                        if (!running.await(waitSeconds, TimeUnit.SECONDS))
+                        {
+                            throw new TimeoutException();
+                        }
+                    }
+                    else
+                    {
+                        running.await();
+                    }
+                }
+                catch (InterruptedException | TimeoutException e)
+                {
+                    LOGGER.error("Exception waiting for producer {}", e.getClass());
+                    isError = true;
+                    status.add(new HandShakeException(e));
+                }
             }
         }
     }
@@ -121,43 +262,57 @@ class ProducerData<T>
     {
         private ProducerActions() { }
 
-        public void clear(int index)
-        {
-            checkIndex(index);
-            dataArray.get(index).clear();
-        }
-        
-        public void addData(int index, T data)
+        public int consumers() { return consumersCount; }
+
+        public int commitInterval() { return commitInterval; }
+
+        public int readAhead() { return readAhead; }
+
+        public boolean isFinished() { return doFinish; }
+
+        /**
+         * The empty lists of the next round, one per consumer, null if the producer must finish
+         */
+        public List<List<T>> nextRound()
         {
-            checkIndex(index);
-            dataArray.get(index).add(data);
+            filling = acquire();
+            return (null == filling) ? null : filling.dataArray;
         }
 
-        public void add(Throwable t)
+        /**
+         * Keeps where the items of a consumer end, so a round committed in part can restart after them
+         */
+        public void slicePosition(int index, String position)
         {
-            isError = true;
-            status.add(new ProducerException(t));
+            filling.positions[index] = position;
         }
 
-        public void totalRead(int size)
+        /**
+         * Delivers the round filled, some consumers may have no items
+         */
+        public boolean putRound(int read, boolean isLast, String position)
         {
-            read = size;
+            final SuperChunk superChunk = filling;
+            filling = null;
+            superChunk.read = read;
+            superChunk.position = position;
+            superChunk.isLast = isLast;
+            if (LOGGER.isDebugEnabled()) LOGGER.debug("Data ready");
+            return put(superChunk);
         }
 
-        public int commitInterval() { return  commitInterval; }
-
-        public int consumersCount() { return consumersCount; }
-
-        public boolean waitForQueryData()
+        public void add(Throwable t)
         {
-            if (LOGGER.isDebugEnabled()) LOGGER.debug("Waiting for querying data");
-            return handShakeForNextPhase() && !doFinish;
+            status.add(new ProducerException(t));
+            //The rounds already read are still delivered, the failed one is empty
+            final SuperChunk superChunk = new SuperChunk();
+            superChunk.isError = true;
+            put(superChunk);
         }
 
-        public void dataReady()
+        public void finished()
         {
-            if (LOGGER.isDebugEnabled()) LOGGER.debug("Data ready");
-            handShakeForNextPhase();
+            running.countDown();
         }
     }
 
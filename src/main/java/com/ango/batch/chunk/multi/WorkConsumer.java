@@ -0,0 +1,153 @@
+package com.ango.batch.chunk.multi;
+
+import com.ango.batch.chunk.FaultTolerance;
+import com.ango.batch.resource.ProcessorResource;
+import com.ango.batch.resource.WriterResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.transaction.TransactionManager;
+import java.util.List;
+
+class WorkConsumer<T,K> implements Runnable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkConsumer.class);
+
+    private final TransactionManager tm;
+    private final WorkData<T> data;
+    private final ProcessorResource<T,K> processor;
+    private final WriterResource<K> writer;
+    private final int index;
+    private final FaultTolerance faultTolerance;
+    private ConsumerPhase phase;
+
+    public WorkConsumer(TransactionManager tm, ProcessorResource<T, K> processor,
+                        WriterResource<K> writer, WorkData<T> data, int index)
+    {
+        this(tm, processor, writer, data, index, null);
+    }
+
+    /**
+     * @param faultTolerance Skips the items that fail on their own, null to fail the chunk
+     */
+    public WorkConsumer(TransactionManager tm, ProcessorResource<T, K> processor,
+                        WriterResource<K> writer, WorkData<T> data, int index, FaultTolerance faultTolerance)
+    {
+        this.tm = tm;
+        this.faultTolerance = faultTolerance;
+        this.data = data;
+        this.processor = processor;
+        this.writer = writer;
+        this.index = index;
+        this.phase = ConsumerPhase.WaitForData;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            ///***************************
+            ///     WAIT FOR DATA
+            ///***************************
+            List<T> readItems;
+            while (null != (readItems = data.consumerActions().takeData(index)))
+            {
+                consume(readItems);
+                phase = ConsumerPhase.WaitForData;
+            }
+            phase = ConsumerPhase.Finished;
+        }
+        finally
+        {
+            data.consumerActions().finished();
+        }
+    }
+
+    private void consume(List<T> readItems)
+    {
+        final long initChunkTime = System.currentTimeMillis();
+        final int read = readItems.size();
+        int skipped = 0;
+        int written = 0;
+        boolean isTransactionPending = false;
+        boolean isRecorded = false;
+        try
+        {
+            ///***************************
+            ///     PROCESS
+            ///***************************
+            phase = ConsumerPhase.Preprocess;
+            tm.begin();
+            isTransactionPending = true;
+
+            phase = ConsumerPhase.Process;
+            try
+            {
+                written = processAndWrite(readItems);
+            }
+            catch (Throwable t)
+            {
+                if (null == faultTolerance)
+                {
+                    throw t;
+                }
+                //The chunk starts again without the items that fail
+                isTransactionPending = false;
+                tm.rollback();
+                final List<T> itemsLeft = faultTolerance.isolate(tm, processor, writer, readItems, t, data.status());
+                tm.begin();
+                isTransactionPending = true;
+                written = processAndWrite(itemsLeft);
+            }
+            skipped = read - written;
+
+            ///***************************
+            ///     DO COMMIT
+            ///***************************
+            phase = ConsumerPhase.Commit;
+            data.status().commit(skipped, written, System.currentTimeMillis() - initChunkTime);
+            isRecorded = true;
+            data.status().save();
+            tm.commit();
+            data.consumerActions().chunkDone(read, System.currentTimeMillis() - initChunkTime);
+        }
+        catch (Throwable t)
+        {
+            LOGGER.error("Error in thread: [{}] phase: [{}]", index, phase, t);
+            data.consumerActions().add(index, phase, t);
+            if (isRecorded)
+            {
+                data.status().undo(skipped, written);
+            }
+
+            ///***************************
+            ///     DO ROLLBACK
+            ///***************************
+            if (isTransactionPending)
+            {
+                phase = ConsumerPhase.Rollback;
+                try
+                {
+                    tm.rollback();
+                }
+                catch (Throwable t2)
+                {
+                    LOGGER.error("Error in thread: [{}] phase: [{}]", index, phase, t2);
+                    data.consumerActions().add(index, phase, t2);
+                }
+            }
+        }
+    }
+
+    private int processAndWrite(List<T> items)
+    {
+        final List<K> itemsProcessed = processor.process(items);
+        final int written = itemsProcessed.size();
+        if (written > 0)
+        {
+            writer.write(itemsProcessed);
+        }
+        return written;
+    }
+}
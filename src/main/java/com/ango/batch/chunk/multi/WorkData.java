@@ -0,0 +1,392 @@
+package com.ango.batch.chunk.multi;
+
+import com.ango.batch.chunk.AdaptiveCommitInterval;
+import com.ango.batch.exceptions.HandShakeException;
+import com.ango.batch.exceptions.ProducerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class WorkData<T>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkData.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    //One queue shared by all the consumers, or one for each consumer when the items are routed
+    private final List<BlockingQueue<List<T>>> queues;
+    private final List<T> endOfData = new ArrayList<>(0);
+    private final MultiChunkStatus status;
+    private final int consumersCount;
+    private final int commitInterval;
+    private final AdaptiveCommitInterval adaptiveCommitInterval;
+    private final int waitSeconds;
+    //Threads running plus one while the orchestrator is starting them
+    private final AtomicInteger running = new AtomicInteger(1);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicInteger consumers = new AtomicInteger(0);
+    private final AtomicInteger retirements = new AtomicInteger(0);
+    private final AtomicLong idleNanos = new AtomicLong(0);
+    private volatile boolean isErrorInProducer = false;
+    private volatile boolean isErrorInConsumers = false;
+    private volatile boolean doFinish = false;
+    private final OrchestratorActions orchestratorActions;
+    private final ProducerActions producerActions;
+    private final ConsumerActions consumerActions;
+
+    public WorkData(MultiChunkStatus status, int consumersCount, int commitInterval, int readAhead, int waitSeconds)
+    {
+        this(status, consumersCount, commitInterval, null, readAhead, waitSeconds);
+    }
+
+    /**
+     * @param consumersCount Max consumers, it sizes the buffer
+     * @param adaptiveCommitInterval Chooses the size of each chunk read, null to always read commitInterval items
+     */
+    public WorkData(MultiChunkStatus status, int consumersCount, int commitInterval, AdaptiveCommitInterval adaptiveCommitInterval,
+                    int readAhead, int waitSeconds)
+    {
+        this(status, consumersCount, commitInterval, adaptiveCommitInterval, readAhead, waitSeconds, false);
+    }
+
+    /**
+     * @param isRouted Each consumer takes only the chunks put for it
+     */
+    public WorkData(MultiChunkStatus status, int consumersCount, int commitInterval, AdaptiveCommitInterval adaptiveCommitInterval,
+                    int readAhead, int waitSeconds, boolean isRouted)
+    {
+        this.status = status;
+        this.consumersCount = consumersCount;
+        this.commitInterval = commitInterval;
+        this.adaptiveCommitInterval = adaptiveCommitInterval;
+        this.waitSeconds = waitSeconds;
+        this.queues = new ArrayList<>();
+        if (isRouted)
+        {
+            for (int i = 0; i < consumersCount; i++)
+            {
+                queues.add(new ArrayBlockingQueue<>(readAhead));
+            }
+        }
+        else
+        {
+            queues.add(new ArrayBlockingQueue<>(consumersCount * readAhead));
+        }
+        this.orchestratorActions = new OrchestratorActions();
+        this.producerActions = new ProducerActions();
+        this.consumerActions = new ConsumerActions();
+        status.bufferCapacity(consumersCount * readAhead);
+    }
+
+    public MultiChunkStatus status()
+    {
+        return status;
+    }
+
+    private BlockingQueue<List<T>> queue(int index)
+    {
+        return (queues.size() == 1) ? queues.get(0) : queues.get(index);
+    }
+
+    private int backlog()
+    {
+        int backlog = 0;
+        for (final BlockingQueue<List<T>> queue : queues)
+        {
+            backlog += queue.size();
+        }
+        return backlog;
+    }
+
+    private boolean put(BlockingQueue<List<T>> queue, List<T> items)
+    {
+        try
+        {
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitSeconds);
+            while (!doFinish)
+            {
+                if (queue.offer(items, POLL_MILLIS, TimeUnit.MILLISECONDS))
+                {
+                    return true;
+                }
+                if (waitSeconds > 0 && System.currentTimeMillis() > deadline)
+                {
+                    throw new TimeoutException();
+                }
+            }
+            return false;
+        }
+        catch (InterruptedException | TimeoutException e)
+        {
+            LOGGER.error("Exception putting data {}", e.getClass());
+            isErrorInProducer = true;
+            doFinish = true;
+            status.add(new HandShakeException(e));
+            return false;
+        }
+    }
+
+    private List<T> take(int index)
+    {
+        final BlockingQueue<List<T>> queue = queue(index);
+        try
+        {
+            status.bufferTake(backlog());
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitSeconds);
+            while (!doFinish)
+            {
+                if (tryRetire())
+                {
+                    return null;
+                }
+                final long initWait = System.nanoTime();
+                final List<T> items = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                idleNanos.addAndGet(System.nanoTime() - initWait);
+                if (endOfData == items)
+                {
+                    //Leave the mark for the rest of consumers
+                    queue.offer(endOfData);
+                    return null;
+                }
+                if (null != items)
+                {
+                    return items;
+                }
+                if (waitSeconds > 0 && System.currentTimeMillis() > deadline)
+                {
+                    throw new TimeoutException();
+                }
+            }
+            return null;
+        }
+        catch (InterruptedException | TimeoutException e)
+        {
+            LOGGER.error("Exception taking data {}", e.getClass());
+            isErrorInConsumers = true;
+            doFinish = true;
+            status.add(new HandShakeException(e));
+            return null;
+        }
+    }
+
+    private boolean tryRetire()
+    {
+        int pending;
+        while ((pending = retirements.get()) > 0)
+        {
+            if (retirements.compareAndSet(pending, pending - 1))
+            {
+                if (LOGGER.isDebugEnabled()) LOGGER.debug("Consumer retired");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void threadFinished()
+    {
+        if (running.decrementAndGet() == 0)
+        {
+            finished.countDown();
+        }
+    }
+
+    public OrchestratorActions orchestratorActions()
+    {
+        return orchestratorActions;
+    }
+
+    public ProducerActions producerActions()
+    {
+        return producerActions;
+    }
+
+    public ConsumerActions consumerActions()
+    {
+        return consumerActions;
+    }
+
+    public class OrchestratorActions
+    {
+        private OrchestratorActions() { }
+
+        public boolean isErrorInProducer() { return isErrorInProducer; }
+
+        public boolean isErrorInConsumers() { return isErrorInConsumers; }
+
+        public void finish()
+        {
+            if (LOGGER.isDebugEnabled()) LOGGER.debug("Order producer and consumers to finish");
+            doFinish = true;
+        }
+
+        public void waitForFinish() throws InterruptedException
+        {
+            if (LOGGER.isDebugEnabled()) LOGGER.debug("Waiting for producer and consumers");
+            finished.await();
+        }
+
+        /**
+         * @return True when the producer and all the consumers have finished
+         */
+        public boolean waitForFinish(long millis) throws InterruptedException
+        {
+            return finished.await(millis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Counts a thread before starting it, false when all of them have already finished
+         */
+        public boolean starting(boolean isConsumer)
+        {
+            int current;
+            do
+            {
+                current = running.get();
+                if (current == 0)
+                {
+                    return false;
+                }
+            }
+            while (!running.compareAndSet(current, current + 1));
+            if (isConsumer)
+            {
+                consumers.incrementAndGet();
+            }
+            return true;
+        }
+
+        /**
+         * Every thread has been started, from now on the last one to finish ends the step
+         */
+        public void started()
+        {
+            threadFinished();
+        }
+
+        /**
+         * The next consumer waiting for data, or ending a chunk, finishes
+         */
+        public void retireConsumer()
+        {
+            retirements.incrementAndGet();
+        }
+
+        public int activeConsumers()
+        {
+            return consumers.get() - retirements.get();
+        }
+
+        public int backlog()
+        {
+            return WorkData.this.backlog();
+        }
+
+        public int capacity()
+        {
+            int capacity = 0;
+            for (final BlockingQueue<List<T>> queue : queues)
+            {
+                capacity += queue.size() + queue.remainingCapacity();
+            }
+            return capacity;
+        }
+
+        /**
+         * Time spent by all the consumers waiting for data
+         */
+        public long idleNanos()
+        {
+            return idleNanos.get();
+        }
+    }
+
+    public class ProducerActions
+    {
+        private ProducerActions() { }
+
+        public int commitInterval()
+        {
+            return (null == adaptiveCommitInterval) ? commitInterval : adaptiveCommitInterval.next();
+        }
+
+        public boolean isFinished() { return doFinish; }
+
+        public int consumers() { return consumersCount; }
+
+        public boolean putData(List<T> items)
+        {
+            return putData(0, items);
+        }
+
+        /**
+         * @param index Consumer of the items when they are routed
+         */
+        public boolean putData(int index, List<T> items)
+        {
+            if (LOGGER.isDebugEnabled()) LOGGER.debug("Data ready {}", index);
+            return put(queue(index), items);
+        }
+
+        public void endOfData()
+        {
+            if (LOGGER.isDebugEnabled()) LOGGER.debug("End of data");
+            for (final BlockingQueue<List<T>> queue : queues)
+            {
+                put(queue, endOfData);
+            }
+        }
+
+        public void add(Throwable t)
+        {
+            isErrorInProducer = true;
+            doFinish = true;
+            status.add(new ProducerException(t));
+        }
+
+        public void finished()
+        {
+            threadFinished();
+        }
+    }
+
+    public class ConsumerActions
+    {
+        private ConsumerActions() { }
+
+        public List<T> takeData(int index)
+        {
+            return take(index);
+        }
+
+        public void chunkDone(int items, long elapsed)
+        {
+            if (null != adaptiveCommitInterval)
+            {
+                adaptiveCommitInterval.chunkDone(items, elapsed);
+            }
+        }
+
+        public void add(int index, ConsumerPhase phase, Throwable t)
+        {
+            isErrorInConsumers = true;
+            doFinish = true;
+            status.add(index, phase, t);
+        }
+
+        public void finished()
+        {
+            consumers.decrementAndGet();
+            threadFinished();
+        }
+    }
+}
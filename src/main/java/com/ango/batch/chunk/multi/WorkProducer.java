@@ -0,0 +1,160 @@
+package com.ango.batch.chunk.multi;
+
+import com.ango.batch.IItemRouter;
+import com.ango.batch.resource.ReaderResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class WorkProducer<T> implements Runnable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkProducer.class);
+
+    private final WorkData<T> data;
+    private final ReaderResource<T> reader;
+    private final IItemRouter<T> router;
+
+    public WorkProducer(ReaderResource<T> reader, WorkData<T> data)
+    {
+        this(reader, data, null);
+    }
+
+    /**
+     * @param router Chooses the consumer of each item, null to let any consumer take any chunk
+     */
+    public WorkProducer(ReaderResource<T> reader, WorkData<T> data, IItemRouter<T> router)
+    {
+        this.reader = reader;
+        this.data = data;
+        this.router = router;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            if (null == router)
+            {
+                produce();
+            }
+            else
+            {
+                produceRouted();
+            }
+        }
+        catch (Throwable t)
+        {
+            LOGGER.error("Error in producer", t);
+            data.producerActions().add(t);
+        }
+        finally
+        {
+            data.producerActions().endOfData();
+            data.producerActions().finished();
+        }
+        if (LOGGER.isDebugEnabled()) LOGGER.debug("Finished");
+    }
+
+    private void produce()
+    {
+        while (!data.producerActions().isFinished())
+        {
+            final int commitInterval = data.producerActions().commitInterval();
+            data.status().commitInterval(commitInterval);
+
+            ///***************************
+            ///     READING DATA
+            ///***************************
+            final List<T> readItems = reader.read(commitInterval);
+            final int read = readItems.size();
+            data.status().read(read);
+
+            ///***************************
+            ///     DATA READY
+            ///***************************
+            if (read > 0 && !data.producerActions().putData(readItems))
+            {
+                break;
+            }
+            if (read < commitInterval)
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Fills the chunk of each consumer with the items routed to it and puts it in its queue when it's full, the
+     * chunks not full are put at the end of data
+     */
+    private void produceRouted()
+    {
+        final int consumers = data.producerActions().consumers();
+        final List<List<T>> chunks = new ArrayList<>(consumers);
+        for (int i = 0; i < consumers; i++)
+        {
+            chunks.add(new ArrayList<>());
+        }
+        int fullest = 0;
+
+        while (!data.producerActions().isFinished())
+        {
+            final int commitInterval = data.producerActions().commitInterval();
+
+            ///***************************
+            ///     READING DATA
+            ///***************************
+            final int itemsToRead = Math.max(commitInterval - fullest, 1);
+            final List<T> readItems = reader.read(itemsToRead);
+            data.status().read(readItems.size());
+
+            ///***************************
+            ///     ROUTING
+            ///***************************
+            for (final T item : readItems)
+            {
+                chunks.get(route(item, consumers)).add(item);
+            }
+
+            ///***************************
+            ///     DATA READY
+            ///***************************
+            final boolean isLast = readItems.size() < itemsToRead;
+            fullest = 0;
+            for (int index = 0; index < consumers; index++)
+            {
+                final List<T> chunk = chunks.get(index);
+                if (chunk.size() >= commitInterval || (isLast && !chunk.isEmpty()))
+                {
+                    data.status().commitInterval(commitInterval);
+                    if (!data.producerActions().putData(index, chunk))
+                    {
+                        return;
+                    }
+                    chunks.set(index, new ArrayList<>(commitInterval));
+                }
+                else
+                {
+                    fullest = Math.max(fullest, chunk.size());
+                }
+            }
+            if (isLast)
+            {
+                break;
+            }
+        }
+    }
+
+    private int route(T item, int consumers)
+    {
+        final int index = router.route(item, consumers);
+        if (index < 0 || index >= consumers)
+        {
+            throw new IndexOutOfBoundsException("Item routed to consumer [" + index + "] of [" + consumers + "]");
+        }
+        return index;
+    }
+}
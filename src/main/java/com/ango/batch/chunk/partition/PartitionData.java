@@ -0,0 +1,65 @@
+package com.ango.batch.chunk.partition;
+
+import com.ango.batch.chunk.multi.ConsumerPhase;
+import com.ango.batch.chunk.multi.MultiChunkStatus;
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+
+class PartitionData
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionData.class);
+
+    private final MultiChunkStatus status;
+    private final int commitInterval;
+    private final CountDownLatch running;
+    private volatile boolean isError = false;
+
+    public PartitionData(MultiChunkStatus status, int partitions, int commitInterval)
+    {
+        this.status = status;
+        this.commitInterval = commitInterval;
+        this.running = new CountDownLatch(partitions);
+        status.partitions(partitions);
+    }
+
+    public MultiChunkStatus status()
+    {
+        return status;
+    }
+
+    public ChunkStepStatus status(int index)
+    {
+        return status.partition(index);
+    }
+
+    public int commitInterval()
+    {
+        return commitInterval;
+    }
+
+    public boolean isError()
+    {
+        return isError;
+    }
+
+    public void add(int index, ConsumerPhase phase, Throwable t)
+    {
+        isError = true;
+        status.add(index, phase, t);
+    }
+
+    public void finished(int index)
+    {
+        if (LOGGER.isDebugEnabled()) LOGGER.debug("Partition finished {}", index);
+        running.countDown();
+    }
+
+    public void waitForFinish() throws InterruptedException
+    {
+        if (LOGGER.isDebugEnabled()) LOGGER.debug("Waiting for partitions");
+        running.await();
+    }
+}
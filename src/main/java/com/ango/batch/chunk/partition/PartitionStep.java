@@ -0,0 +1,201 @@
+package com.ango.batch.chunk.partition;
+
+import com.ango.batch.*;
+import com.ango.batch.chunk.multi.MultiChunkStatus;
+import com.ango.batch.exceptions.MultiChunkException;
+import com.ango.batch.resource.ProcessorResource;
+import com.ango.batch.resource.ReaderResource;
+import com.ango.batch.resource.WriterResource;
+import com.ango.batch.step.CommonStep;
+import com.ango.batch.thread.ExecutorPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+public class PartitionStep<T,K> extends CommonStep<MultiChunkStatus> implements IStep
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionStep.class);
+
+    private IPartitioner<T> partitioner;
+
+    private final List<ReaderResource<T>> readers = new ArrayList<>();
+
+    private final List<ProcessorResource<T,K>> processors = new LinkedList<>();
+
+    private final List<WriterResource<K>> writers = new LinkedList<>();
+
+    private int partitions;
+
+    private int commitInterval;
+
+    private int waitTimeout;
+
+    public PartitionStep()
+    {
+    }
+
+    public void setPartitioner(IPartitioner<T> partitioner)
+    {
+        this.partitioner = partitioner;
+    }
+
+    public void addProcessor(IProcessor<T,K> processor)
+    {
+        processors.add(new ProcessorResource<>(processor));
+    }
+
+    public void addWriter(IWriter<K> writer)
+    {
+        writers.add(new WriterResource<>(writer));
+    }
+
+    public void setCommitInterval(int interval)
+    {
+        this.commitInterval = interval;
+    }
+
+    public void setPartitions(int partitions)
+    {
+        this.partitions = partitions;
+    }
+
+    public void setWaitTimeout(int timeout)
+    {
+        this.waitTimeout = timeout;
+    }
+
+    @Override
+    public String name()
+    {
+        return status().name();
+    }
+
+    @Override
+    public IStepStatus execute()
+    {
+        status().reset();
+        doExecute();
+        long affectedRows = 0;
+        for (int i = 0; i < writers.size(); i++)
+        {
+            final long rows = writers.get(i).affectedRows();
+            if (i < status().partitions().size())
+            {
+                status().partition(i).affectedRows(rows);
+            }
+            affectedRows += rows;
+        }
+        status().affectedRows(affectedRows);
+        return checkStatus();
+    }
+
+    private void doExecute()
+    {
+        try
+        {
+            status().start();
+            status().save();
+
+            createReaders();
+            openResources();
+
+            final PartitionData data = new PartitionData(status(), readers.size(), commitInterval);
+            startPartitions(data);
+            data.waitForFinish();
+
+            closeResources();
+
+            if (data.isError())
+            {
+                status().stop(new MultiChunkException("One or more partitions have failed"));
+            }
+            else
+            {
+                status().stop();
+            }
+            try
+            {
+                status().save();
+            }
+            catch (Throwable t)
+            {
+                status().stop();
+                status().saveProtected();
+            }
+        }
+        catch (Throwable t)
+        {
+            LOGGER.error("Error executing step [{}]", status().name(), t);
+            status().stop(t);
+            closeResources();
+            status().saveProtected();
+        }
+    }
+
+    private void createReaders()
+    {
+        readers.clear();
+        final List<IReader<T>> partitionReaders = partitioner.partition(partitions);
+        if (partitionReaders.size() > partitions)
+        {
+            throw new IndexOutOfBoundsException("Max partitions [" + partitions + "] current [" + partitionReaders.size() + "]");
+        }
+        for (final IReader<T> reader : partitionReaders)
+        {
+            readers.add(new ReaderResource<>(reader));
+        }
+    }
+
+    private void startPartitions(PartitionData data) throws InterruptedException, TimeoutException
+    {
+        try (ExecutorPool.Lease lease = ExecutorPool.getInstance().lease(readers.size(), "partition", threadMode(), waitTimeout))
+        {
+            for (int i = 0; i < readers.size(); i++)
+            {
+                lease.execute(new PartitionWorker<>(transactionManager(), readers.get(i), processor(i), writers.get(i), data, i));
+            }
+        }
+    }
+
+    private ProcessorResource<T,K> processor(int index)
+    {
+        return processors.isEmpty() ? new ProcessorResource<>(null) : processors.get(index);
+    }
+
+    private void openResources() throws IOException
+    {
+        for (IResource resource : readers)
+        {
+            resource.open();
+        }
+        for (IResource resource : processors)
+        {
+            resource.open();
+        }
+        for (IResource resource : writers)
+        {
+            resource.open();
+        }
+    }
+
+    private void closeResources()
+    {
+        for (ReaderResource<T> resource : readers)
+        {
+            resource.tryClose(status());
+        }
+        for (ProcessorResource<T,K> resource : processors)
+        {
+            resource.tryClose(status());
+        }
+        for (WriterResource<K> resource : writers)
+        {
+            resource.tryClose(status());
+        }
+    }
+}
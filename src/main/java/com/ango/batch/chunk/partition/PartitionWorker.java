@@ -0,0 +1,151 @@
+package com.ango.batch.chunk.partition;
+
+import com.ango.batch.chunk.multi.ConsumerPhase;
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import com.ango.batch.resource.ProcessorResource;
+import com.ango.batch.resource.ReaderResource;
+import com.ango.batch.resource.WriterResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.transaction.TransactionManager;
+import java.util.List;
+
+class PartitionWorker<T,K> implements Runnable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionWorker.class);
+
+    private final TransactionManager tm;
+    private final PartitionData data;
+    private final ReaderResource<T> reader;
+    private final ProcessorResource<T,K> processor;
+    private final WriterResource<K> writer;
+    private final int index;
+    private ConsumerPhase phase;
+
+    public PartitionWorker(TransactionManager tm, ReaderResource<T> reader, ProcessorResource<T,K> processor,
+                           WriterResource<K> writer, PartitionData data, int index)
+    {
+        this.tm = tm;
+        this.data = data;
+        this.reader = reader;
+        this.processor = processor;
+        this.writer = writer;
+        this.index = index;
+        this.phase = ConsumerPhase.Read;
+    }
+
+    @Override
+    public void run()
+    {
+        final ChunkStepStatus partitionStatus = data.status(index);
+        partitionStatus.start();
+        try
+        {
+            //Stop at the chunk boundary if another partition has failed
+            while (!data.isError() && doChunk(partitionStatus))
+            {
+                phase = ConsumerPhase.Read;
+            }
+            if (!partitionStatus.state().isFailed())
+            {
+                phase = ConsumerPhase.Finished;
+                partitionStatus.stop();
+            }
+        }
+        finally
+        {
+            data.finished(index);
+        }
+    }
+
+    /**
+     * Reads, processes, writes and commits one chunk
+     * @return true if there could be more data to read
+     */
+    private boolean doChunk(ChunkStepStatus partitionStatus)
+    {
+        final int commitInterval = data.commitInterval();
+        int read = 0;
+        int skipped = 0;
+        int written = 0;
+        boolean isTransactionPending = false;
+        boolean isRecorded = false;
+        try
+        {
+            ///***************************
+            ///     READ
+            ///***************************
+            partitionStatus.startChunk();
+            phase = ConsumerPhase.Read;
+            final List<T> readItems = reader.read(commitInterval);
+            read = readItems.size();
+            partitionStatus.read(read);
+            data.status().read(read);
+            if (read == 0)
+            {
+                return false;
+            }
+
+            ///***************************
+            ///     PROCESS
+            ///***************************
+            phase = ConsumerPhase.Preprocess;
+            tm.begin();
+            isTransactionPending = true;
+
+            phase = ConsumerPhase.Process;
+            final List<K> itemsProcessed = processor.process(readItems);
+            written = itemsProcessed.size();
+            skipped = read - written;
+            if (written > 0)
+            {
+                writer.write(itemsProcessed);
+            }
+
+            ///***************************
+            ///     DO COMMIT
+            ///***************************
+            phase = ConsumerPhase.Commit;
+            partitionStatus.skip(skipped);
+            partitionStatus.write(written);
+            partitionStatus.commit();
+            partitionStatus.stopChunk();
+            data.status().commit(skipped, written, partitionStatus.lastElapsed());
+            isRecorded = true;
+            data.status().save();
+            tm.commit();
+            partitionStatus.consolidate();
+            return read == commitInterval;
+        }
+        catch (Throwable t)
+        {
+            LOGGER.error("Error in partition: [{}] phase: [{}]", index, phase, t);
+            data.add(index, phase, t);
+            partitionStatus.stop(t);
+            partitionStatus.undo();
+            if (isRecorded)
+            {
+                data.status().undo(skipped, written);
+            }
+
+            ///***************************
+            ///     DO ROLLBACK
+            ///***************************
+            if (isTransactionPending)
+            {
+                phase = ConsumerPhase.Rollback;
+                try
+                {
+                    tm.rollback();
+                }
+                catch (Throwable t2)
+                {
+                    LOGGER.error("Error in partition: [{}] phase: [{}]", index, phase, t2);
+                    data.add(index, phase, t2);
+                }
+            }
+            return false;
+        }
+    }
+}
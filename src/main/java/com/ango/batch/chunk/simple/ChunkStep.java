@@ -3,6 +3,8 @@ package com.ango.batch.chunk.simple;
 import java.util.List;
 
 import com.ango.batch.*;
+import com.ango.batch.chunk.AdaptiveCommitInterval;
+import com.ango.batch.chunk.FaultTolerance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,6 +12,7 @@ import com.ango.batch.step.CommonStep;
 import com.ango.batch.resource.ProcessorResource;
 import com.ango.batch.resource.ReaderResource;
 import com.ango.batch.resource.WriterResource;
+import com.ango.batch.thread.ExecutorPool;
 
 public class ChunkStep<T,K> extends CommonStep<ChunkStepStatus> implements IStep
 {
@@ -18,6 +21,11 @@ public class ChunkStep<T,K> extends CommonStep<ChunkStepStatus> implements IStep
     private ProcessorResource<T,K> processor;
     private WriterResource<K> writer;
     private int commitInterval;
+    private AdaptiveCommitInterval adaptiveCommitInterval;
+    private FaultTolerance faultTolerance;
+    private int parallelProcessing;
+    private int maxInFlight = ProcessorResource.DEFAULT_MAX_IN_FLIGHT;
+    private long asyncTimeout = 0;
 
     public ChunkStep()
     {
@@ -43,6 +51,40 @@ public class ChunkStep<T,K> extends CommonStep<ChunkStepStatus> implements IStep
         this.commitInterval = interval;
     }
 
+    /**
+     * Changes the commit interval between chunks, the one set is only the size of the first chunk
+     */
+    public void setAdaptiveCommitInterval(AdaptiveCommitInterval adaptiveCommitInterval)
+    {
+        this.adaptiveCommitInterval = adaptiveCommitInterval;
+    }
+
+    /**
+     * Skips the items that fail on their own instead of failing the step
+     */
+    public void setFaultTolerance(FaultTolerance faultTolerance)
+    {
+        this.faultTolerance = faultTolerance;
+    }
+
+    /**
+     * Processes the items of each chunk in the shared fork-join pool, in tasks of at least these items. The write
+     * and the commit stay in the step thread
+     */
+    public void setParallelProcessing(int minItemsPerTask)
+    {
+        this.parallelProcessing = minItemsPerTask;
+    }
+
+    /**
+     * Limits of an async processor, the items of a chunk waiting for their result and the millis each one can take
+     */
+    public void setAsyncLimits(int maxInFlight, long timeoutMillis)
+    {
+        this.maxInFlight = maxInFlight;
+        this.asyncTimeout = timeoutMillis;
+    }
+
     @Override
     public String name()
     {
@@ -54,6 +96,7 @@ public class ChunkStep<T,K> extends CommonStep<ChunkStepStatus> implements IStep
     {
         status().reset();
         doExecute();
+        status().affectedRows(writer.affectedRows());
         return checkStatus();
     }
 
@@ -61,52 +104,98 @@ public class ChunkStep<T,K> extends CommonStep<ChunkStepStatus> implements IStep
     {
         try
         {
+            final String position = status().restore();
             status().start();
             status().save();
 
             reader.open();
+            if (null != position)
+            {
+                LOGGER.info("Restarting step [{}] from [{}]", status().name(), position);
+                reader.restore(position);
+            }
             processor.open();
             writer.open();
+            if (parallelProcessing > 0)
+            {
+                processor.setParallelism(ExecutorPool.getInstance().forkJoinPool(), parallelProcessing);
+            }
+            processor.setAsyncLimits(maxInFlight, asyncTimeout);
 
+            if (null != adaptiveCommitInterval)
+            {
+                adaptiveCommitInterval.reset();
+            }
+            if (null != faultTolerance)
+            {
+                faultTolerance.reset();
+            }
+            //The chunk is done before reading the next one, its buffer is reused, writers that keep lists get a copy
+            final List<T> readItems = reader.newBuffer(commitInterval);
             while (true)
             {
                 status().startChunk();
 
-                final List<T> readItems = reader.read(commitInterval);
-                final int read = readItems.size();
+                final int chunkSize = (null == adaptiveCommitInterval) ? commitInterval : adaptiveCommitInterval.next();
+                status().commitInterval(chunkSize);
+                readItems.clear();
+                final int read = reader.read(readItems, chunkSize);
                 status().read(read);
 
                 transactionManager().begin();
+                boolean isTransactionPending = true;
                 try
                 {
                     if (read > 0)
                     {
-                        final List<K> itemsProcessed = processor.process(readItems);
-                        final int written = itemsProcessed.size();
-                        status().skip(read - written);
-                        if (written > 0)
+                        int written;
+                        try
                         {
-                            writer.write(itemsProcessed);
+                            written = processAndWrite(readItems);
                         }
+                        catch (Throwable t)
+                        {
+                            if (null == faultTolerance)
+                            {
+                                throw t;
+                            }
+                            //The chunk starts again without the items that fail
+                            isTransactionPending = false;
+                            transactionManager().rollback();
+                            final List<T> itemsLeft = faultTolerance.isolate(transactionManager(), processor, writer, readItems, t, status());
+                            transactionManager().begin();
+                            isTransactionPending = true;
+                            written = processAndWrite(itemsLeft);
+                        }
+                        status().skip(read - written);
                         status().write(written);
                     }
                     status().stopChunk();
                     status().commit();
-                    status().save();
                 }
                 catch (Throwable t)
                 {
                     status().stop(t);
                     status().undo();
-                    transactionManager().rollback();
+                    if (isTransactionPending)
+                    {
+                        transactionManager().rollback();
+                    }
                     status().saveProtected();
                     break;
                 }
 
                 transactionManager().commit();
                 status().consolidate();
+                //Saved once the chunk is committed, a restart after a crash reads again at most this chunk
+                status().checkpoint(reader.checkpoint());
+                status().save();
+                if (null != adaptiveCommitInterval)
+                {
+                    adaptiveCommitInterval.chunkDone(read, status().lastElapsed());
+                }
 
-                if (read < commitInterval || read == 0)
+                if (read < chunkSize || read == 0)
                 {
                     break;
                 }
@@ -135,4 +224,15 @@ public class ChunkStep<T,K> extends CommonStep<ChunkStepStatus> implements IStep
             status().saveProtected();
         }
     }
+
+    private int processAndWrite(List<T> items)
+    {
+        final List<K> itemsProcessed = processor.process(items);
+        final int written = itemsProcessed.size();
+        if (written > 0)
+        {
+            writer.write(itemsProcessed, items);
+        }
+        return written;
+    }
 }
@@ -1,6 +1,11 @@
 package com.ango.batch.chunk.simple;
 
+import com.ango.batch.chunk.SkippedItem;
 import com.ango.batch.status.CommonStatus;
+import com.ango.batch.status.StepCheckpoint;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ChunkStepStatus extends CommonStatus
 {
@@ -14,6 +19,17 @@ public class ChunkStepStatus extends CommonStatus
     private boolean commitPending = false;
     private int committed = 0;
     private boolean isConsolidated = true;
+    private int lastCommitInterval = 0;
+    private int minCommitInterval = 0;
+    private int maxCommitInterval = 0;
+    private long commitIntervals = 0;
+    private long chunks = 0;
+    private final List<SkippedItem> skippedItems = new CopyOnWriteArrayList<>();
+    private String position = null;
+    private int checkpointSkipped = 0;
+    private int checkpointWritten = 0;
+    private int checkpointCommitted = 0;
+    private long affectedRows = 0;
 
     public ChunkStepStatus(String name)
     {
@@ -34,6 +50,55 @@ public class ChunkStepStatus extends CommonStatus
         committed = 0;
         commitPending = false;
         isConsolidated = true;
+        lastCommitInterval = 0;
+        minCommitInterval = 0;
+        maxCommitInterval = 0;
+        commitIntervals = 0;
+        chunks = 0;
+        skippedItems.clear();
+        position = null;
+        checkpointSkipped = 0;
+        checkpointWritten = 0;
+        checkpointCommitted = 0;
+        affectedRows = 0;
+    }
+
+    /**
+     * Continues from the last checkpoint saved of a step that didn't complete
+     *
+     * @return The position of the reader, null to start from the beginning
+     */
+    public synchronized String restore()
+    {
+        final StepCheckpoint checkpoint = (null == repository()) ? null : repository().load(name());
+        if (null == checkpoint || !checkpoint.isRestartable())
+        {
+            return null;
+        }
+        position = checkpoint.position();
+        checkpointSkipped = skipped = checkpoint.skipped();
+        checkpointWritten = written = checkpoint.written();
+        checkpointCommitted = committed = checkpoint.committed();
+        read = skipped + written;
+        return position;
+    }
+
+    /**
+     * Every chunk read until the position is committed, the next save keeps them. Items read after it are
+     * read again if the step restarts
+     */
+    public synchronized void checkpoint(String position)
+    {
+        this.position = position;
+        checkpointSkipped = skipped;
+        checkpointWritten = written;
+        checkpointCommitted = committed;
+    }
+
+    @Override
+    protected synchronized StepCheckpoint checkpoint()
+    {
+        return new StepCheckpoint(name(), state(), position, checkpointSkipped, checkpointWritten, checkpointCommitted);
     }
 
     public void startChunk()
@@ -59,7 +124,7 @@ public class ChunkStepStatus extends CommonStatus
         super.stop(e);
     }
 
-    public void read(int size)
+    public synchronized void read(int size)
     {
         read += size;
     }
@@ -104,6 +169,93 @@ public class ChunkStepStatus extends CommonStatus
         }
     }
 
+    /**
+     * Records a whole chunk at once, for consumers that commit concurrently
+     */
+    public synchronized void commit(int skipped, int written, long elapsed)
+    {
+        commit(skipped, written);
+        this.elapsedChunkTime = elapsed;
+    }
+
+    /**
+     * Records a whole chunk at once, the chunk time is measured by who started it
+     */
+    public synchronized void commit(int skipped, int written)
+    {
+        this.skipped += skipped;
+        this.written += written;
+        committed++;
+    }
+
+    /**
+     * Reverts a chunk recorded with {@link #commit(int, int, long)}
+     */
+    public synchronized void undo(int skipped, int written)
+    {
+        this.skipped -= skipped;
+        this.written -= written;
+        committed--;
+    }
+
+    /**
+     * Records the size chosen for a chunk, it changes between chunks with an adaptive commit interval
+     */
+    public synchronized void commitInterval(int size)
+    {
+        lastCommitInterval = size;
+        minCommitInterval = (chunks == 0) ? size : Math.min(minCommitInterval, size);
+        maxCommitInterval = Math.max(maxCommitInterval, size);
+        commitIntervals += size;
+        chunks++;
+    }
+
+    public synchronized int lastCommitInterval()
+    {
+        return lastCommitInterval;
+    }
+
+    public synchronized int minCommitInterval()
+    {
+        return minCommitInterval;
+    }
+
+    public synchronized int maxCommitInterval()
+    {
+        return maxCommitInterval;
+    }
+
+    public synchronized double avgCommitInterval()
+    {
+        return (chunks == 0) ? 0 : (double) commitIntervals / chunks;
+    }
+
+    /**
+     * Records an item that failed on its own, it's counted in the skipped items of its chunk
+     */
+    public void skippedItem(SkippedItem item)
+    {
+        skippedItems.add(item);
+    }
+
+    public List<SkippedItem> skippedItems()
+    {
+        return skippedItems;
+    }
+
+    /**
+     * Rows changed by the writers in the chunks committed, when they count them
+     */
+    public synchronized void affectedRows(long rows)
+    {
+        affectedRows = rows;
+    }
+
+    public synchronized long affectedRows()
+    {
+        return affectedRows;
+    }
+
     public void consolidate()
     {
         lastWritten = 0;
@@ -141,4 +293,11 @@ public class ChunkStepStatus extends CommonStatus
     {
         return committed;
     }
+
+    @Override
+    public String toString()
+    {
+        return super.toString() + " lastCommitInterval [" + lastCommitInterval() + "] minCommitInterval [" + minCommitInterval() +
+         "] maxCommitInterval [" + maxCommitInterval() + "] avgCommitInterval [" + avgCommitInterval() + "] skippedItems [" + skippedItems.size() + "] affectedRows [" + affectedRows() + "]";
+    }
 }
@@ -0,0 +1,9 @@
+package com.ango.batch.exceptions;
+
+public class AsyncProcessorException extends RuntimeException
+{
+    public AsyncProcessorException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+}
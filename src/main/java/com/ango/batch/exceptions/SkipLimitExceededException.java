@@ -0,0 +1,9 @@
+package com.ango.batch.exceptions;
+
+public class SkipLimitExceededException extends Exception
+{
+    public SkipLimitExceededException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+}
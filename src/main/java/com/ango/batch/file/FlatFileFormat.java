@@ -0,0 +1,111 @@
+package com.ango.batch.file;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * How the records of a flat file are split in fields, one record per line. Delimited fields may be quoted, but a
+ * quoted field can't contain a line break, the files are split by lines
+ */
+public class FlatFileFormat
+{
+    private static final byte NO_QUOTE = 0;
+
+    private final byte delimiter;
+    private final byte quote;
+    private final int[] widths;
+    private final boolean hasHeader;
+    private final Charset charset;
+
+    private FlatFileFormat(byte delimiter, byte quote, int[] widths, boolean hasHeader, Charset charset)
+    {
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.widths = widths;
+        this.hasHeader = hasHeader;
+        this.charset = charset;
+    }
+
+    /**
+     * Fields separated by commas, optionally quoted with double quotes
+     */
+    public static FlatFileFormat csv()
+    {
+        return new FlatFileFormat((byte) ',', (byte) '"', null, false, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Fields separated by a single byte character, without quotes
+     */
+    public static FlatFileFormat delimited(char delimiter)
+    {
+        if (delimiter > 0x7F)
+        {
+            throw new IllegalArgumentException("The delimiter must be an ASCII character");
+        }
+        return new FlatFileFormat((byte) delimiter, NO_QUOTE, null, false, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Fields of a fixed number of bytes, the spaces around them are trimmed
+     */
+    public static FlatFileFormat fixedWidth(int... widths)
+    {
+        for (final int width : widths)
+        {
+            if (width <= 0)
+            {
+                throw new IllegalArgumentException("The widths must be positive");
+            }
+        }
+        return new FlatFileFormat((byte) 0, NO_QUOTE, widths.clone(), false, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The first line has the names of the fields, it's skipped
+     */
+    public FlatFileFormat withHeader()
+    {
+        return new FlatFileFormat(delimiter, quote, widths, true, charset);
+    }
+
+    public FlatFileFormat withCharset(Charset charset)
+    {
+        return new FlatFileFormat(delimiter, quote, widths, hasHeader, charset);
+    }
+
+    public boolean hasHeader()
+    {
+        return hasHeader;
+    }
+
+    public Charset charset()
+    {
+        return charset;
+    }
+
+    boolean isFixedWidth()
+    {
+        return null != widths;
+    }
+
+    boolean isQuoted()
+    {
+        return NO_QUOTE != quote;
+    }
+
+    byte delimiter()
+    {
+        return delimiter;
+    }
+
+    byte quote()
+    {
+        return quote;
+    }
+
+    int[] widths()
+    {
+        return widths;
+    }
+}
@@ -0,0 +1,58 @@
+package com.ango.batch.file;
+
+import com.ango.batch.IPartitioner;
+import com.ango.batch.IReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a file in byte ranges of the same size, each reader moves its start to the next line when it's opened
+ */
+public class FlatFilePartitioner<T> implements IPartitioner<T>
+{
+    private final Path file;
+    private final FlatFileFormat format;
+    private final IRecordMapper<T> mapper;
+    private final int windowSize;
+
+    public FlatFilePartitioner(Path file, FlatFileFormat format, IRecordMapper<T> mapper)
+    {
+        this(file, format, mapper, FlatFileReader.DEFAULT_WINDOW_SIZE);
+    }
+
+    public FlatFilePartitioner(Path file, FlatFileFormat format, IRecordMapper<T> mapper, int windowSize)
+    {
+        this.file = file;
+        this.format = format;
+        this.mapper = mapper;
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public List<IReader<T>> partition(int partitions)
+    {
+        final long size;
+        try
+        {
+            size = Files.size(file);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        final int ranges = (int) Math.max(1, Math.min(partitions, size));
+        final List<IReader<T>> readers = new ArrayList<>(ranges);
+        for (int i = 0; i < ranges; i++)
+        {
+            final long start = size * i / ranges;
+            final long end = (i == ranges - 1) ? Long.MAX_VALUE : size * (i + 1) / ranges;
+            readers.add(new FlatFileReader<>(file, format, mapper, start, end, windowSize));
+        }
+        return readers;
+    }
+}
@@ -0,0 +1,216 @@
+package com.ango.batch.file;
+
+import com.ango.batch.IBulkReader;
+import com.ango.batch.ICheckpointable;
+import com.ango.batch.IResource;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads the lines of a file mapped in memory, a window at a time. A reader of a byte range reads the records that
+ * start inside it, so the readers of contiguous ranges read each record once wherever the ranges split the lines.
+ * Empty lines are skipped
+ */
+public class FlatFileReader<T> implements IBulkReader<T>, IResource, ICheckpointable
+{
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final FlatFileFormat format;
+    private final IRecordMapper<T> mapper;
+    private final long start;
+    private final long end;
+    private final int windowSize;
+    private final FlatRecord record;
+    private FileChannel channel;
+    private long fileSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    public FlatFileReader(Path file, FlatFileFormat format, IRecordMapper<T> mapper)
+    {
+        this(file, format, mapper, 0, Long.MAX_VALUE, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param start First byte of the range, the record it's in belongs to the range before
+     * @param end Byte after the range, the record that starts before it is read whole
+     * @param windowSize Bytes mapped at a time, a record can't be longer
+     */
+    public FlatFileReader(Path file, FlatFileFormat format, IRecordMapper<T> mapper, long start, long end, int windowSize)
+    {
+        if (start < 0 || end < start || windowSize <= 0)
+        {
+            throw new IllegalArgumentException("Wrong range [" + start + ", " + end + "] or window [" + windowSize + "]");
+        }
+        this.file = file;
+        this.format = format;
+        this.mapper = mapper;
+        this.start = start;
+        this.end = end;
+        this.windowSize = windowSize;
+        this.record = new FlatRecord(format);
+    }
+
+    @Override
+    public void open() throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        fileSize = channel.size();
+        window = null;
+        position = Math.min(start, fileSize);
+        if (position > 0)
+        {
+            //Starts after the line the byte before the range is in, it's the last one of the range before
+            position--;
+            skipLine();
+        }
+        else if (format.hasHeader())
+        {
+            skipLine();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        window = null;
+        if (null != channel)
+        {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    public T read()
+    {
+        try
+        {
+            return nextRecord() ? mapper.map(record) : null;
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Error reading [" + file + "] at [" + position + "]", e);
+        }
+    }
+
+    @Override
+    public int read(List<T> buffer, int max)
+    {
+        int count = 0;
+        T item;
+        while (count < max && null != (item = read()))
+        {
+            buffer.add(item);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The byte where the next record starts
+     */
+    @Override
+    public String checkpoint()
+    {
+        return Long.toString(position);
+    }
+
+    @Override
+    public void restore(String checkpoint)
+    {
+        position = Long.parseLong(checkpoint);
+    }
+
+    private boolean nextRecord() throws IOException
+    {
+        while (position < end && position < fileSize)
+        {
+            final int lineStart = index(position);
+            int lineEnd = newline(lineStart);
+            if (lineEnd < 0)
+            {
+                if (!isLastWindow())
+                {
+                    if (lineStart == 0)
+                    {
+                        throw new IllegalStateException("Record at [" + position + "] longer than the window [" + windowSize + "]");
+                    }
+                    map(position); //The record continues after the window
+                    continue;
+                }
+                lineEnd = window.limit();
+            }
+            position = windowStart + Math.min(lineEnd + 1, window.limit());
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && window.get(contentEnd - 1) == '\r')
+            {
+                contentEnd--;
+            }
+            if (contentEnd > lineStart)
+            {
+                record.parse(window, lineStart, contentEnd);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void skipLine() throws IOException
+    {
+        while (position < fileSize)
+        {
+            final int from = index(position);
+            final int lineEnd = newline(from);
+            if (lineEnd >= 0)
+            {
+                position = windowStart + lineEnd + 1;
+                return;
+            }
+            position = windowStart + window.limit();
+        }
+    }
+
+    /**
+     * @return The index of the next line break in the window, -1 if there's none
+     */
+    private int newline(int from)
+    {
+        final int limit = window.limit();
+        for (int i = from; i < limit; i++)
+        {
+            if (window.get(i) == '\n')
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int index(long offset) throws IOException
+    {
+        if (null == window || offset < windowStart || offset >= windowStart + window.limit())
+        {
+            map(offset);
+        }
+        return (int) (offset - windowStart);
+    }
+
+    private boolean isLastWindow()
+    {
+        return windowStart + window.limit() >= fileSize;
+    }
+
+    private void map(long offset) throws IOException
+    {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, fileSize - offset));
+        windowStart = offset;
+    }
+}
@@ -0,0 +1,232 @@
+package com.ango.batch.file;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A line of the file still in the mapped buffer. It only keeps where each field starts and ends, the bytes are
+ * decoded when a field is asked for, and the numbers are parsed from the bytes without a String
+ */
+public class FlatRecord
+{
+    private final FlatFileFormat format;
+    private ByteBuffer buffer;
+    private int lineStart;
+    private int lineEnd;
+    private int fields;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+
+    FlatRecord(FlatFileFormat format)
+    {
+        this.format = format;
+    }
+
+    void parse(ByteBuffer buffer, int start, int end)
+    {
+        this.buffer = buffer;
+        this.lineStart = start;
+        this.lineEnd = end;
+        this.fields = 0;
+        if (format.isFixedWidth())
+        {
+            parseFixedWidth();
+        }
+        else
+        {
+            parseDelimited();
+        }
+    }
+
+    private void parseFixedWidth()
+    {
+        int start = lineStart;
+        for (final int width : format.widths())
+        {
+            final int end = Math.min(lineEnd, start + width);
+            addField(trimStart(Math.min(start, end), end), trimEnd(Math.min(start, end), end), false);
+            start = end;
+        }
+    }
+
+    private void parseDelimited()
+    {
+        final byte delimiter = format.delimiter();
+        final byte quote = format.quote();
+        int i = lineStart;
+        while (true)
+        {
+            if (format.isQuoted() && i < lineEnd && buffer.get(i) == quote)
+            {
+                //The field ends at the quote not followed by another quote
+                final int start = i + 1;
+                boolean isEscaped = false;
+                i = start;
+                while (i < lineEnd)
+                {
+                    if (buffer.get(i) == quote)
+                    {
+                        if (i + 1 < lineEnd && buffer.get(i + 1) == quote)
+                        {
+                            isEscaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                addField(start, i, isEscaped);
+                i++;
+                while (i < lineEnd && buffer.get(i) != delimiter)
+                {
+                    i++;
+                }
+            }
+            else
+            {
+                final int start = i;
+                while (i < lineEnd && buffer.get(i) != delimiter)
+                {
+                    i++;
+                }
+                addField(start, i, false);
+            }
+            if (i >= lineEnd)
+            {
+                return;
+            }
+            i++; //Delimiter
+        }
+    }
+
+    private void addField(int start, int end, boolean isEscaped)
+    {
+        if (fields == starts.length)
+        {
+            starts = Arrays.copyOf(starts, fields * 2);
+            ends = Arrays.copyOf(ends, fields * 2);
+            escaped = Arrays.copyOf(escaped, fields * 2);
+        }
+        starts[fields] = start;
+        ends[fields] = end;
+        escaped[fields] = isEscaped;
+        fields++;
+    }
+
+    private int trimStart(int start, int end)
+    {
+        while (start < end && buffer.get(start) == ' ')
+        {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int start, int end)
+    {
+        while (end > start && buffer.get(end - 1) == ' ')
+        {
+            end--;
+        }
+        return end;
+    }
+
+    public int fields()
+    {
+        return fields;
+    }
+
+    public boolean isEmpty(int index)
+    {
+        checkIndex(index);
+        return starts[index] == ends[index];
+    }
+
+    public String field(int index)
+    {
+        checkIndex(index);
+        final String value = decode(starts[index], ends[index]);
+        return escaped[index] ? value.replace(quote() + quote(), quote()) : value;
+    }
+
+    /**
+     * The whole line, without its line break
+     */
+    public String line()
+    {
+        return decode(lineStart, lineEnd);
+    }
+
+    public int intField(int index)
+    {
+        final long value = longField(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+        {
+            throw new NumberFormatException("Field [" + index + "] out of int range [" + value + "]");
+        }
+        return (int) value;
+    }
+
+    public long longField(int index)
+    {
+        checkIndex(index);
+        final int end = trimEnd(starts[index], ends[index]);
+        int i = trimStart(starts[index], end);
+        if (i == end)
+        {
+            throw new NumberFormatException("Field [" + index + "] is empty");
+        }
+        final boolean isNegative = buffer.get(i) == '-';
+        if (isNegative || buffer.get(i) == '+')
+        {
+            i++;
+        }
+        if (i == end)
+        {
+            throw new NumberFormatException("Field [" + index + "] is not a number [" + field(index) + "]");
+        }
+        //Accumulated as a negative number, its range is one bigger
+        long value = 0;
+        for (; i < end; i++)
+        {
+            final int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10)
+            {
+                throw new NumberFormatException("Field [" + index + "] is not a long [" + field(index) + "]");
+            }
+            value = value * 10 - digit;
+        }
+        if (!isNegative && value == Long.MIN_VALUE)
+        {
+            throw new NumberFormatException("Field [" + index + "] is not a long [" + field(index) + "]");
+        }
+        return isNegative ? value : -value;
+    }
+
+    public double doubleField(int index)
+    {
+        return Double.parseDouble(field(index).trim());
+    }
+
+    private String quote()
+    {
+        return String.valueOf((char) format.quote());
+    }
+
+    private String decode(int start, int end)
+    {
+        final byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, format.charset());
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= fields)
+        {
+            throw new IndexOutOfBoundsException("Field [" + index + "] fields [" + fields + "]");
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.ango.batch.file;
+
+public interface IRecordFormatter<K>
+{
+    /**
+     * Appends the fields of the item to the line, the builder is reused and the line separator is added after it
+     */
+    void format(K item, StringBuilder line);
+}
@@ -0,0 +1,9 @@
+package com.ango.batch.file;
+
+public interface IRecordMapper<T>
+{
+    /**
+     * Creates the item of a record. The record is reused for the next line, it must not be kept
+     */
+    T map(FlatRecord record);
+}
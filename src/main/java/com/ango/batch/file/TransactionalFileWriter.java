@@ -0,0 +1,268 @@
+package com.ango.batch.file;
+
+import com.ango.batch.IResource;
+import com.ango.batch.IWriter;
+import com.ango.batch.tx.BatchTransactionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes the items as lines of a file in the transaction of the chunk. The lines are buffered and forced to disk
+ * once when the transaction commits, a rollback truncates the file to the end of the last chunk committed.
+ * Without a transaction each write is durable on its own.
+ * A file has only one writer, each consumer of a multi chunk step needs its own file
+ */
+public class TransactionalFileWriter<K> implements IWriter<K>, IResource
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionalFileWriter.class);
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final Path file;
+    private final IRecordFormatter<K> formatter;
+    private final StringBuilder line = new StringBuilder();
+    private final Synchronization synchronization = new ChunkSynchronization();
+    private Charset charset = StandardCharsets.UTF_8;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private TransactionManager transactionManager;
+    private boolean isAppend = false;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private CharsetEncoder encoder;
+    private Transaction registered;
+    private long committed;
+    private long written;
+
+    public TransactionalFileWriter(Path file, IRecordFormatter<K> formatter)
+    {
+        this.file = file;
+        this.formatter = formatter;
+    }
+
+    public TransactionalFileWriter<K> withCharset(Charset charset)
+    {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Bytes kept in memory before writing them to the file, a direct buffer
+     */
+    public TransactionalFileWriter<K> withBufferSize(int bufferSize)
+    {
+        if (bufferSize <= 0)
+        {
+            throw new IllegalArgumentException("Buffer size must be greater than 0");
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * The manager the step is executed with, its transaction is the one of the chunk. Without it the writer joins
+     * the transaction of the thread of the batch managers, local or XA
+     */
+    public TransactionalFileWriter<K> withTransactionManager(TransactionManager transactionManager)
+    {
+        this.transactionManager = transactionManager;
+        return this;
+    }
+
+    /**
+     * Keeps the content of the file and writes after it
+     */
+    public TransactionalFileWriter<K> appending()
+    {
+        this.isAppend = true;
+        return this;
+    }
+
+    @Override
+    public void open() throws IOException
+    {
+        channel = isAppend
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        committed = channel.size();
+        written = committed;
+        if (null == buffer || buffer.capacity() != bufferSize)
+        {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        encoder = charset.newEncoder();
+        registered = null;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (null != channel)
+        {
+            try
+            {
+                //Lines of a chunk not completed are not kept
+                buffer.clear();
+                if (channel.size() > committed)
+                {
+                    channel.truncate(committed);
+                }
+            }
+            finally
+            {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    @Override
+    public void write(List<K> items)
+    {
+        try
+        {
+            final Transaction transaction = (null == transactionManager)
+                    ? BatchTransactionManager.currentTransaction() : transactionManager.getTransaction();
+            if (null != transaction && transaction != registered)
+            {
+                transaction.registerSynchronization(synchronization);
+                registered = transaction;
+            }
+            for (K item : items)
+            {
+                line.setLength(0);
+                formatter.format(item, line);
+                line.append('\n');
+                encode();
+            }
+            if (null == transaction)
+            {
+                force();
+                committed = written;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        catch (RollbackException | SystemException e)
+        {
+            throw new IllegalStateException("Error joining the transaction writing [" + file + "]", e);
+        }
+    }
+
+    /**
+     * End of the last chunk committed
+     */
+    public long committedSize()
+    {
+        return committed;
+    }
+
+    private void encode() throws IOException
+    {
+        final CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        CoderResult result;
+        while ((result = encoder.encode(chars, buffer, true)).isOverflow())
+        {
+            flush();
+        }
+        if (result.isError())
+        {
+            result.throwException();
+        }
+        while (encoder.flush(buffer).isOverflow())
+        {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            written += channel.write(buffer, written);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Makes the lines durable, only once for each chunk
+     */
+    private void force() throws IOException
+    {
+        flush();
+        if (written > committed)
+        {
+            channel.force(false);
+        }
+    }
+
+    private void rollback() throws IOException
+    {
+        buffer.clear();
+        if (written > committed)
+        {
+            channel.truncate(committed);
+            written = committed;
+        }
+    }
+
+    private class ChunkSynchronization implements Synchronization
+    {
+        @Override
+        public void beforeCompletion()
+        {
+            try
+            {
+                force();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status)
+        {
+            registered = null;
+            if (Status.STATUS_COMMITTED == status)
+            {
+                committed = written;
+            }
+            else
+            {
+                try
+                {
+                    rollback();
+                }
+                catch (IOException e)
+                {
+                    LOGGER.error("Error truncating [" + file + "] to [" + committed + "]", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.ango.batch.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public interface IRowMapper<T>
+{
+    /**
+     * Maps the current row, the result set must not be moved
+     */
+    T map(ResultSet row) throws SQLException;
+}
@@ -0,0 +1,14 @@
+package com.ango.batch.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+public interface IStatementSetter<K>
+{
+    /**
+     * Sets the parameters of one item
+     *
+     * @param first Index of the first parameter of the item, a statement with several rows has the items one after other
+     */
+    void set(K item, PreparedStatement statement, int first) throws SQLException;
+}
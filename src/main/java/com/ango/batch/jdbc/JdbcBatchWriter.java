@@ -0,0 +1,395 @@
+package com.ango.batch.jdbc;
+
+import com.ango.batch.IAffectedRows;
+import com.ango.batch.IResource;
+import com.ango.batch.IWriter;
+import com.ango.batch.tx.BatchTransaction;
+import com.ango.batch.tx.BatchTransactionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+import javax.transaction.xa.XAResource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the items of a chunk with batches of a prepared statement. An insert or upsert with a VALUES list can be
+ * rewritten to put several items in each statement, the rows of a statement are limited by the parameters the driver
+ * accepts.
+ * The connection commits with the transaction of the chunk, as its last resource once the other ones are ready, and
+ * it must be the only resource without XA. With an XADataSource its XAResource is enlisted in the transaction
+ * instead, so it commits with the other resources. Without a transaction each write commits on its own
+ */
+public class JdbcBatchWriter<K> implements IWriter<K>, IResource, IAffectedRows
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcBatchWriter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final Pattern VALUES = Pattern.compile("\\bVALUES\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    private final DataSource dataSource;
+    private final XADataSource xaDataSource;
+    private final String sql;
+    private final IStatementSetter<K> setter;
+    private final Synchronization synchronization = new ChunkSynchronization();
+    private final Map<Integer, PreparedStatement> statements = new HashMap<>();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int rowsPerStatement = 1;
+    private TransactionManager transactionManager;
+    private String prefix;
+    private String row;
+    private String suffix;
+    private int rowParameters;
+    private Connection connection;
+    private XAConnection xaConnection;
+    private XAResource xaResource;
+    private Transaction registered;
+    private long pendingRows;
+    private long affectedRows;
+
+    public JdbcBatchWriter(DataSource dataSource, String sql, IStatementSetter<K> setter)
+    {
+        this(dataSource, null, sql, setter);
+    }
+
+    private JdbcBatchWriter(DataSource dataSource, XADataSource xaDataSource, String sql, IStatementSetter<K> setter)
+    {
+        this.dataSource = dataSource;
+        this.xaDataSource = xaDataSource;
+        this.sql = sql;
+        this.setter = setter;
+    }
+
+    /**
+     * A writer whose connection is enlisted in the transaction of the chunk. In XA mode the data source must be
+     * the one returned by {@link BatchTransactionManager#addResource}
+     */
+    public static <K> JdbcBatchWriter<K> xa(XADataSource xaDataSource, String sql, IStatementSetter<K> setter)
+    {
+        return new JdbcBatchWriter<>(null, xaDataSource, sql, setter);
+    }
+
+    /**
+     * Items sent to the database in each round trip
+     */
+    public JdbcBatchWriter<K> withBatchSize(int batchSize)
+    {
+        if (batchSize <= 0)
+        {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Repeats the row after VALUES to write several items with one statement, the rest of the statement is kept
+     * so it works with the upserts that add a clause after the values
+     */
+    public JdbcBatchWriter<K> withMultiRowValues(int rowsPerStatement)
+    {
+        final Matcher matcher = VALUES.matcher(sql);
+        if (rowsPerStatement <= 0 || !matcher.find())
+        {
+            throw new IllegalArgumentException("Rows per statement must be greater than 0 and the statement needs a VALUES list [" + sql + "]");
+        }
+        final int open = matcher.end() - 1;
+        final int close = closingParenthesis(open);
+        this.prefix = sql.substring(0, open);
+        this.row = sql.substring(open, close + 1);
+        this.suffix = sql.substring(close + 1);
+        this.rowParameters = (int) row.chars().filter(c -> c == '?').count();
+        this.rowsPerStatement = rowsPerStatement;
+        return this;
+    }
+
+    /**
+     * The manager the step is executed with, its transaction is the one of the chunk. Without it the writer joins
+     * the transaction of the thread of the batch managers, local or XA
+     */
+    public JdbcBatchWriter<K> withTransactionManager(TransactionManager transactionManager)
+    {
+        this.transactionManager = transactionManager;
+        return this;
+    }
+
+    @Override
+    public void open() throws IOException
+    {
+        try
+        {
+            if (null == xaDataSource)
+            {
+                connection = dataSource.getConnection();
+                connection.setAutoCommit(false);
+            }
+            else
+            {
+                //The transaction manager sets the mode of the connection while it's in a transaction
+                xaConnection = xaDataSource.getXAConnection();
+                xaResource = xaConnection.getXAResource();
+                connection = xaConnection.getConnection();
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IOException("Error opening the connection", e);
+        }
+        registered = null;
+        pendingRows = 0;
+        affectedRows = 0;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        for (PreparedStatement statement : statements.values())
+        {
+            try
+            {
+                statement.close();
+            }
+            catch (SQLException e)
+            {
+                LOGGER.warn("Error closing the statement [{}]", sql, e);
+            }
+        }
+        statements.clear();
+        if (null != connection)
+        {
+            try
+            {
+                if (!connection.getAutoCommit())
+                {
+                    connection.rollback(); //A chunk not completed is not kept
+                }
+                connection.close();
+                if (null != xaConnection)
+                {
+                    xaConnection.close();
+                }
+            }
+            catch (SQLException e)
+            {
+                throw new IOException("Error closing the connection", e);
+            }
+            finally
+            {
+                connection = null;
+                xaConnection = null;
+                xaResource = null;
+            }
+        }
+    }
+
+    @Override
+    public void write(List<K> items)
+    {
+        try
+        {
+            final Transaction transaction = (null == transactionManager)
+                    ? BatchTransactionManager.currentTransaction() : transactionManager.getTransaction();
+            if (null != transaction && transaction != registered)
+            {
+                if (null != xaResource)
+                {
+                    transaction.enlistResource(xaResource);
+                    transaction.registerSynchronization(synchronization);
+                }
+                else if (transaction instanceof BatchTransaction)
+                {
+                    ((BatchTransaction) transaction).registerLastResource(synchronization);
+                }
+                else
+                {
+                    transaction.registerSynchronization(synchronization);
+                }
+                registered = transaction;
+            }
+            final int size = items.size();
+            final int full = size - size % rowsPerStatement;
+            if (full > 0)
+            {
+                final PreparedStatement statement = statement(rowsPerStatement);
+                int batched = 0;
+                for (int i = 0; i < full; i += rowsPerStatement)
+                {
+                    for (int j = 0; j < rowsPerStatement; j++)
+                    {
+                        setter.set(items.get(i + j), statement, j * rowParameters + 1);
+                    }
+                    statement.addBatch();
+                    batched += rowsPerStatement;
+                    if (batched >= batchSize)
+                    {
+                        pendingRows += count(statement.executeBatch());
+                        batched = 0;
+                    }
+                }
+                if (batched > 0)
+                {
+                    pendingRows += count(statement.executeBatch());
+                }
+            }
+            if (full < size)
+            {
+                //The items left don't fill a statement, they go in one with fewer rows
+                final PreparedStatement statement = statement(size - full);
+                for (int j = 0; j < size - full; j++)
+                {
+                    setter.set(items.get(full + j), statement, j * rowParameters + 1);
+                }
+                pendingRows += Math.max(statement.executeUpdate(), 0);
+            }
+            if (null == transaction)
+            {
+                if (!connection.getAutoCommit())
+                {
+                    connection.commit();
+                }
+                synchronized (this)
+                {
+                    affectedRows += pendingRows;
+                    pendingRows = 0;
+                }
+            }
+        }
+        catch (SQLException | RollbackException | SystemException e)
+        {
+            throw new IllegalStateException("Error writing [" + sql + "]", e);
+        }
+    }
+
+    @Override
+    public synchronized long affectedRows()
+    {
+        return affectedRows;
+    }
+
+    private PreparedStatement statement(int rows) throws SQLException
+    {
+        PreparedStatement statement = statements.get(rows);
+        if (null == statement)
+        {
+            statement = connection.prepareStatement(sql(rows));
+            statements.put(rows, statement);
+        }
+        return statement;
+    }
+
+    private String sql(int rows)
+    {
+        if (null == row)
+        {
+            return sql;
+        }
+        final StringBuilder builder = new StringBuilder(prefix.length() + suffix.length() + rows * (row.length() + 2));
+        builder.append(prefix).append(row);
+        for (int i = 1; i < rows; i++)
+        {
+            builder.append(", ").append(row);
+        }
+        return builder.append(suffix).toString();
+    }
+
+    /**
+     * Drivers that don't know the rows of each statement count them as 0
+     */
+    private static long count(int[] updates)
+    {
+        long rows = 0;
+        for (int updated : updates)
+        {
+            if (updated > 0)
+            {
+                rows += updated;
+            }
+        }
+        return rows;
+    }
+
+    private int closingParenthesis(int open)
+    {
+        int depth = 0;
+        boolean isQuoted = false;
+        for (int i = open; i < sql.length(); i++)
+        {
+            final char c = sql.charAt(i);
+            if (c == '\'')
+            {
+                isQuoted = !isQuoted;
+            }
+            else if (!isQuoted && c == '(')
+            {
+                depth++;
+            }
+            else if (!isQuoted && c == ')' && --depth == 0)
+            {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("The VALUES list is not closed [" + sql + "]");
+    }
+
+    private class ChunkSynchronization implements Synchronization
+    {
+        @Override
+        public void beforeCompletion()
+        {
+            if (null != xaResource)
+            {
+                return; //Committed by the transaction manager
+            }
+            try
+            {
+                connection.commit();
+            }
+            catch (SQLException e)
+            {
+                throw new IllegalStateException("Error committing [" + sql + "]", e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status)
+        {
+            registered = null;
+            synchronized (JdbcBatchWriter.this)
+            {
+                if (Status.STATUS_COMMITTED == status)
+                {
+                    affectedRows += pendingRows;
+                }
+                pendingRows = 0;
+            }
+            if (Status.STATUS_COMMITTED != status && null == xaResource)
+            {
+                try
+                {
+                    connection.rollback();
+                }
+                catch (SQLException e)
+                {
+                    LOGGER.error("Error rolling back [" + sql + "]", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.ango.batch.jdbc;
+
+import com.ango.batch.IBulkReader;
+import com.ango.batch.ICheckpointable;
+import com.ango.batch.IResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads the rows of a query with a forward only cursor, the driver brings them in blocks of the fetch size.
+ * The connection is only used by the reader and is not in the transaction of the chunks
+ */
+public class JdbcCursorReader<T> implements IBulkReader<T>, IResource, ICheckpointable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcCursorReader.class);
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private final String sql;
+    private final IRowMapper<T> mapper;
+    private Object[] parameters = new Object[0];
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet rows;
+    private long rowsRead;
+
+    public JdbcCursorReader(DataSource dataSource, String sql, IRowMapper<T> mapper)
+    {
+        this.dataSource = dataSource;
+        this.sql = sql;
+        this.mapper = mapper;
+    }
+
+    public JdbcCursorReader<T> withParameters(Object... parameters)
+    {
+        this.parameters = parameters;
+        return this;
+    }
+
+    /**
+     * Rows brought from the database in each round trip
+     */
+    public JdbcCursorReader<T> withFetchSize(int fetchSize)
+    {
+        if (fetchSize <= 0)
+        {
+            throw new IllegalArgumentException("Fetch size must be greater than 0");
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    @Override
+    public void open() throws IOException
+    {
+        try
+        {
+            connection = dataSource.getConnection();
+            //Some drivers only stream the rows inside a transaction, otherwise they bring all of them at once
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < parameters.length; i++)
+            {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            rows = statement.executeQuery();
+            rows.setFetchSize(fetchSize);
+            rowsRead = 0;
+        }
+        catch (SQLException e)
+        {
+            close();
+            throw new IOException("Error opening the cursor [" + sql + "]", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        SQLException error = null;
+        for (AutoCloseable closeable : new AutoCloseable[]{rows, statement})
+        {
+            try
+            {
+                if (null != closeable) closeable.close();
+            }
+            catch (Exception e)
+            {
+                LOGGER.warn("Error closing the cursor [{}]", sql, e);
+            }
+        }
+        rows = null;
+        statement = null;
+        if (null != connection)
+        {
+            try
+            {
+                connection.rollback(); //Nothing was changed, ends the read only transaction
+                connection.close();
+            }
+            catch (SQLException e)
+            {
+                error = e;
+            }
+            connection = null;
+        }
+        if (null != error)
+        {
+            throw new IOException("Error closing the connection", error);
+        }
+    }
+
+    @Override
+    public T read()
+    {
+        try
+        {
+            if (rows.next())
+            {
+                rowsRead++;
+                return mapper.map(rows);
+            }
+            return null;
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Error reading row [" + (rowsRead + 1) + "] of [" + sql + "]", e);
+        }
+    }
+
+    @Override
+    public int read(List<T> buffer, int max)
+    {
+        int count = 0;
+        T item;
+        while (count < max && null != (item = read()))
+        {
+            buffer.add(item);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Rows read, the query must return them in the same order to restore it
+     */
+    @Override
+    public String checkpoint()
+    {
+        return Long.toString(rowsRead);
+    }
+
+    /**
+     * A forward only cursor can't jump, the rows before the checkpoint are read again and skipped
+     */
+    @Override
+    public void restore(String checkpoint)
+    {
+        final long target = Long.parseLong(checkpoint);
+        try
+        {
+            while (rowsRead < target && rows.next())
+            {
+                rowsRead++;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Error restoring [" + sql + "] to row [" + target + "]", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.ango.batch.jdbc;
+
+import com.ango.batch.IPartitioner;
+import com.ango.batch.IReader;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a table in ranges of a numeric key, each one read with its own cursor in the order of the key.
+ * The ranges have the same width between the min and the max key, they have the same rows when the keys are dense
+ */
+public class KeysetPartitioner<T> implements IPartitioner<T>
+{
+    private final DataSource dataSource;
+    private final String table;
+    private final String key;
+    private final String columns;
+    private final IRowMapper<T> mapper;
+    private int fetchSize = JdbcCursorReader.DEFAULT_FETCH_SIZE;
+
+    /**
+     * @param columns Columns selected for the mapper
+     */
+    public KeysetPartitioner(DataSource dataSource, String table, String key, String columns, IRowMapper<T> mapper)
+    {
+        this.dataSource = dataSource;
+        this.table = table;
+        this.key = key;
+        this.columns = columns;
+        this.mapper = mapper;
+    }
+
+    public KeysetPartitioner<T> withFetchSize(int fetchSize)
+    {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    @Override
+    public List<IReader<T>> partition(int partitions)
+    {
+        final long min;
+        final long max;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet bounds = statement.executeQuery("SELECT MIN(" + key + "), MAX(" + key + ") FROM " + table))
+        {
+            bounds.next();
+            min = bounds.getLong(1);
+            max = bounds.wasNull() ? min - 1 : bounds.getLong(2);
+        }
+        catch (SQLException e)
+        {
+            throw new IllegalStateException("Error reading the keys of [" + table + "]", e);
+        }
+
+        final String sql = "SELECT " + columns + " FROM " + table + " WHERE " + key + " >= ? AND " + key + " <= ? ORDER BY " + key;
+        final List<IReader<T>> readers = new ArrayList<>(partitions);
+        if (max < min)
+        {
+            readers.add(new JdbcCursorReader<>(dataSource, sql, mapper).withParameters(1, 0).withFetchSize(fetchSize));
+            return readers;
+        }
+        final long span = max - min + 1;
+        final int ranges = (span > 0 && span < partitions) ? (int) span : partitions;
+        long from = min;
+        for (int i = 0; i < ranges; i++)
+        {
+            final long to = (i == ranges - 1) ? max : min + (long) ((double) (max - min) * (i + 1) / ranges);
+            readers.add(new JdbcCursorReader<>(dataSource, sql, mapper).withParameters(from, to).withFetchSize(fetchSize));
+            from = to + 1;
+        }
+        return readers;
+    }
+}
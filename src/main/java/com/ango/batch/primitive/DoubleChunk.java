@@ -0,0 +1,113 @@
+package com.ango.batch.primitive;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class DoubleChunk extends PrimitiveChunk<Double>
+{
+    private double[] values;
+
+    public DoubleChunk(int capacity)
+    {
+        this.values = new double[capacity];
+    }
+
+    /**
+     * The same chunk, or a copy of the items when they are not in one
+     */
+    public static DoubleChunk of(List<Double> items)
+    {
+        if (items instanceof DoubleChunk)
+        {
+            return (DoubleChunk) items;
+        }
+        final DoubleChunk chunk = new DoubleChunk(items.size());
+        for (final Double item : items)
+        {
+            chunk.addDouble(item);
+        }
+        return chunk;
+    }
+
+    public double getDouble(int index)
+    {
+        checkIndex(index);
+        return values[index];
+    }
+
+    public void setDouble(int index, double value)
+    {
+        checkIndex(index);
+        values[index] = value;
+    }
+
+    public void addDouble(double value)
+    {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    /**
+     * The array behind the chunk, the values are in [0, size)
+     */
+    public double[] values()
+    {
+        return values;
+    }
+
+    @Override
+    public Double get(int index)
+    {
+        return getDouble(index);
+    }
+
+    @Override
+    public Double set(int index, Double value)
+    {
+        final double previous = getDouble(index);
+        values[index] = value;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Double value)
+    {
+        checkPosition(index);
+        ensureCapacity(size + 1);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Double remove(int index)
+    {
+        final double previous = getDouble(index);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    protected int capacity()
+    {
+        return values.length;
+    }
+
+    @Override
+    protected void resize(int capacity)
+    {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    public DoubleChunk copy()
+    {
+        final DoubleChunk chunk = new DoubleChunk(size);
+        System.arraycopy(values, 0, chunk.values, 0, size);
+        chunk.size = size;
+        return chunk;
+    }
+}
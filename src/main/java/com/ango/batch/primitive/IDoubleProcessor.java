@@ -0,0 +1,24 @@
+package com.ango.batch.primitive;
+
+import com.ango.batch.IBatchProcessor;
+
+import java.util.List;
+
+/**
+ * Processes the double values of a whole chunk without boxing
+ */
+public interface IDoubleProcessor extends IBatchProcessor<Double, Double>
+{
+    /**
+     * Adds the result of each value to out in the same order, a value not added is filtered
+     */
+    void process(DoubleChunk items, DoubleChunk out);
+
+    @Override
+    default List<Double> process(List<Double> items)
+    {
+        final DoubleChunk out = new DoubleChunk(items.size());
+        process(DoubleChunk.of(items), out);
+        return out;
+    }
+}
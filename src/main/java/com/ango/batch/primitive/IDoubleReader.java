@@ -0,0 +1,44 @@
+package com.ango.batch.primitive;
+
+import com.ango.batch.IBulkReader;
+
+import java.util.List;
+
+/**
+ * Reads double values straight into the array of the chunk, without boxing
+ */
+public interface IDoubleReader extends IBulkReader<Double>
+{
+    /**
+     * Appends up to max values to the chunk
+     *
+     * @return Values appended, fewer than max only at the end of data
+     */
+    int read(DoubleChunk chunk, int max);
+
+    @Override
+    default int read(List<Double> buffer, int max)
+    {
+        if (buffer instanceof DoubleChunk)
+        {
+            return read((DoubleChunk) buffer, max);
+        }
+        final DoubleChunk chunk = new DoubleChunk(Math.min(max, 1024));
+        final int read = read(chunk, max);
+        buffer.addAll(chunk);
+        return read;
+    }
+
+    @Override
+    default Double read()
+    {
+        final DoubleChunk chunk = new DoubleChunk(1);
+        return (read(chunk, 1) == 0) ? null : chunk.getDouble(0);
+    }
+
+    @Override
+    default List<Double> newBuffer(int capacity)
+    {
+        return new DoubleChunk(capacity);
+    }
+}
@@ -0,0 +1,23 @@
+package com.ango.batch.primitive;
+
+import com.ango.batch.IReusedChunks;
+import com.ango.batch.IWriter;
+
+import java.util.List;
+
+/**
+ * Writes the double values of a chunk without boxing
+ */
+public interface IDoubleWriter extends IWriter<Double>, IReusedChunks
+{
+    /**
+     * The chunk is reused for other chunks once this one is resolved, copy the values to keep them
+     */
+    void write(DoubleChunk items);
+
+    @Override
+    default void write(List<Double> items)
+    {
+        write(DoubleChunk.of(items));
+    }
+}
@@ -0,0 +1,24 @@
+package com.ango.batch.primitive;
+
+import com.ango.batch.IBatchProcessor;
+
+import java.util.List;
+
+/**
+ * Processes the int values of a whole chunk without boxing
+ */
+public interface IIntProcessor extends IBatchProcessor<Integer, Integer>
+{
+    /**
+     * Adds the result of each value to out in the same order, a value not added is filtered
+     */
+    void process(IntChunk items, IntChunk out);
+
+    @Override
+    default List<Integer> process(List<Integer> items)
+    {
+        final IntChunk out = new IntChunk(items.size());
+        process(IntChunk.of(items), out);
+        return out;
+    }
+}
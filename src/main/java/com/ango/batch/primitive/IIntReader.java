@@ -0,0 +1,44 @@
+package com.ango.batch.primitive;
+
+import com.ango.batch.IBulkReader;
+
+import java.util.List;
+
+/**
+ * Reads int values straight into the array of the chunk, without boxing
+ */
+public interface IIntReader extends IBulkReader<Integer>
+{
+    /**
+     * Appends up to max values to the chunk
+     *
+     * @return Values appended, fewer than max only at the end of data
+     */
+    int read(IntChunk chunk, int max);
+
+    @Override
+    default int read(List<Integer> buffer, int max)
+    {
+        if (buffer instanceof IntChunk)
+        {
+            return read((IntChunk) buffer, max);
+        }
+        final IntChunk chunk = new IntChunk(Math.min(max, 1024));
+        final int read = read(chunk, max);
+        buffer.addAll(chunk);
+        return read;
+    }
+
+    @Override
+    default Integer read()
+    {
+        final IntChunk chunk = new IntChunk(1);
+        return (read(chunk, 1) == 0) ? null : chunk.getInt(0);
+    }
+
+    @Override
+    default List<Integer> newBuffer(int capacity)
+    {
+        return new IntChunk(capacity);
+    }
+}
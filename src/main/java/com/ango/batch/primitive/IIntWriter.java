@@ -0,0 +1,23 @@
+package com.ango.batch.primitive;
+
+import com.ango.batch.IReusedChunks;
+import com.ango.batch.IWriter;
+
+import java.util.List;
+
+/**
+ * Writes the int values of a chunk without boxing
+ */
+public interface IIntWriter extends IWriter<Integer>, IReusedChunks
+{
+    /**
+     * The chunk is reused for other chunks once this one is resolved, copy the values to keep them
+     */
+    void write(IntChunk items);
+
+    @Override
+    default void write(List<Integer> items)
+    {
+        write(IntChunk.of(items));
+    }
+}
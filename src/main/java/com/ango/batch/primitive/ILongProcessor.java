@@ -0,0 +1,24 @@
+package com.ango.batch.primitive;
+
+import com.ango.batch.IBatchProcessor;
+
+import java.util.List;
+
+/**
+ * Processes the long values of a whole chunk without boxing
+ */
+public interface ILongProcessor extends IBatchProcessor<Long, Long>
+{
+    /**
+     * Adds the result of each value to out in the same order, a value not added is filtered
+     */
+    void process(LongChunk items, LongChunk out);
+
+    @Override
+    default List<Long> process(List<Long> items)
+    {
+        final LongChunk out = new LongChunk(items.size());
+        process(LongChunk.of(items), out);
+        return out;
+    }
+}
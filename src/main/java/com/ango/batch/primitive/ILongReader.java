@@ -0,0 +1,44 @@
+package com.ango.batch.primitive;
+
+import com.ango.batch.IBulkReader;
+
+import java.util.List;
+
+/**
+ * Reads long values straight into the array of the chunk, without boxing
+ */
+public interface ILongReader extends IBulkReader<Long>
+{
+    /**
+     * Appends up to max values to the chunk
+     *
+     * @return Values appended, fewer than max only at the end of data
+     */
+    int read(LongChunk chunk, int max);
+
+    @Override
+    default int read(List<Long> buffer, int max)
+    {
+        if (buffer instanceof LongChunk)
+        {
+            return read((LongChunk) buffer, max);
+        }
+        final LongChunk chunk = new LongChunk(Math.min(max, 1024));
+        final int read = read(chunk, max);
+        buffer.addAll(chunk);
+        return read;
+    }
+
+    @Override
+    default Long read()
+    {
+        final LongChunk chunk = new LongChunk(1);
+        return (read(chunk, 1) == 0) ? null : chunk.getLong(0);
+    }
+
+    @Override
+    default List<Long> newBuffer(int capacity)
+    {
+        return new LongChunk(capacity);
+    }
+}
@@ -0,0 +1,23 @@
+package com.ango.batch.primitive;
+
+import com.ango.batch.IReusedChunks;
+import com.ango.batch.IWriter;
+
+import java.util.List;
+
+/**
+ * Writes the long values of a chunk without boxing
+ */
+public interface ILongWriter extends IWriter<Long>, IReusedChunks
+{
+    /**
+     * The chunk is reused for other chunks once this one is resolved, copy the values to keep them
+     */
+    void write(LongChunk items);
+
+    @Override
+    default void write(List<Long> items)
+    {
+        write(LongChunk.of(items));
+    }
+}
@@ -0,0 +1,113 @@
+package com.ango.batch.primitive;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class IntChunk extends PrimitiveChunk<Integer>
+{
+    private int[] values;
+
+    public IntChunk(int capacity)
+    {
+        this.values = new int[capacity];
+    }
+
+    /**
+     * The same chunk, or a copy of the items when they are not in one
+     */
+    public static IntChunk of(List<Integer> items)
+    {
+        if (items instanceof IntChunk)
+        {
+            return (IntChunk) items;
+        }
+        final IntChunk chunk = new IntChunk(items.size());
+        for (final Integer item : items)
+        {
+            chunk.addInt(item);
+        }
+        return chunk;
+    }
+
+    public int getInt(int index)
+    {
+        checkIndex(index);
+        return values[index];
+    }
+
+    public void setInt(int index, int value)
+    {
+        checkIndex(index);
+        values[index] = value;
+    }
+
+    public void addInt(int value)
+    {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    /**
+     * The array behind the chunk, the values are in [0, size)
+     */
+    public int[] values()
+    {
+        return values;
+    }
+
+    @Override
+    public Integer get(int index)
+    {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer value)
+    {
+        final int previous = getInt(index);
+        values[index] = value;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Integer value)
+    {
+        checkPosition(index);
+        ensureCapacity(size + 1);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Integer remove(int index)
+    {
+        final int previous = getInt(index);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    protected int capacity()
+    {
+        return values.length;
+    }
+
+    @Override
+    protected void resize(int capacity)
+    {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    public IntChunk copy()
+    {
+        final IntChunk chunk = new IntChunk(size);
+        System.arraycopy(values, 0, chunk.values, 0, size);
+        chunk.size = size;
+        return chunk;
+    }
+}
@@ -0,0 +1,113 @@
+package com.ango.batch.primitive;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class LongChunk extends PrimitiveChunk<Long>
+{
+    private long[] values;
+
+    public LongChunk(int capacity)
+    {
+        this.values = new long[capacity];
+    }
+
+    /**
+     * The same chunk, or a copy of the items when they are not in one
+     */
+    public static LongChunk of(List<Long> items)
+    {
+        if (items instanceof LongChunk)
+        {
+            return (LongChunk) items;
+        }
+        final LongChunk chunk = new LongChunk(items.size());
+        for (final Long item : items)
+        {
+            chunk.addLong(item);
+        }
+        return chunk;
+    }
+
+    public long getLong(int index)
+    {
+        checkIndex(index);
+        return values[index];
+    }
+
+    public void setLong(int index, long value)
+    {
+        checkIndex(index);
+        values[index] = value;
+    }
+
+    public void addLong(long value)
+    {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    /**
+     * The array behind the chunk, the values are in [0, size)
+     */
+    public long[] values()
+    {
+        return values;
+    }
+
+    @Override
+    public Long get(int index)
+    {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long value)
+    {
+        final long previous = getLong(index);
+        values[index] = value;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Long value)
+    {
+        checkPosition(index);
+        ensureCapacity(size + 1);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Long remove(int index)
+    {
+        final long previous = getLong(index);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    protected int capacity()
+    {
+        return values.length;
+    }
+
+    @Override
+    protected void resize(int capacity)
+    {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    public LongChunk copy()
+    {
+        final LongChunk chunk = new LongChunk(size);
+        System.arraycopy(values, 0, chunk.values, 0, size);
+        chunk.size = size;
+        return chunk;
+    }
+}
@@ -0,0 +1,59 @@
+package com.ango.batch.primitive;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A chunk of primitive values kept in an array. The typed methods of each subclass don't box, the List methods box
+ * each value read or added, they are there for the generic parts of the steps like skipping a failed item
+ */
+public abstract class PrimitiveChunk<T> extends AbstractList<T> implements RandomAccess
+{
+    protected int size = 0;
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * A chunk with the same values, for a writer that can't take a chunk reused by the step
+     */
+    public abstract PrimitiveChunk<T> copy();
+
+    protected abstract int capacity();
+
+    protected abstract void resize(int capacity);
+
+    protected void ensureCapacity(int needed)
+    {
+        if (needed > capacity())
+        {
+            resize(Math.max(needed, capacity() * 2 + 1));
+        }
+    }
+
+    protected void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index [" + index + "] size [" + size + "]");
+        }
+    }
+
+    protected void checkPosition(int index)
+    {
+        if (index < 0 || index > size)
+        {
+            throw new IndexOutOfBoundsException("Index [" + index + "] size [" + size + "]");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.ango.batch.repository;
+
+import com.ango.batch.IJobRepository;
+import com.ango.batch.StepState;
+import com.ango.batch.status.StepCheckpoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * One properties file for each step in a directory. The file is written aside and moved over the old one, a crash
+ * while saving leaves the last checkpoint complete
+ */
+public class FileJobRepository implements IJobRepository
+{
+    private static final String EXTENSION = ".checkpoint";
+
+    private final Path directory;
+
+    public FileJobRepository(Path directory)
+    {
+        this.directory = directory;
+    }
+
+    @Override
+    public synchronized void save(StepCheckpoint checkpoint)
+    {
+        final Properties properties = new Properties();
+        properties.setProperty("state", checkpoint.state().name());
+        if (null != checkpoint.position())
+        {
+            properties.setProperty("position", checkpoint.position());
+        }
+        properties.setProperty("skipped", Integer.toString(checkpoint.skipped()));
+        properties.setProperty("written", Integer.toString(checkpoint.written()));
+        properties.setProperty("committed", Integer.toString(checkpoint.committed()));
+        try
+        {
+            Files.createDirectories(directory);
+            final Path file = file(checkpoint.stepName());
+            final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp))
+            {
+                properties.store(out, checkpoint.stepName());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized StepCheckpoint load(String stepName)
+    {
+        final Path file = file(stepName);
+        if (!Files.exists(file))
+        {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file))
+        {
+            properties.load(in);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return new StepCheckpoint(stepName, StepState.valueOf(properties.getProperty("state")),
+                properties.getProperty("position"),
+                Integer.parseInt(properties.getProperty("skipped")),
+                Integer.parseInt(properties.getProperty("written")),
+                Integer.parseInt(properties.getProperty("committed")));
+    }
+
+    @Override
+    public synchronized void remove(String stepName)
+    {
+        try
+        {
+            Files.deleteIfExists(file(stepName));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(String stepName)
+    {
+        return directory.resolve(stepName + EXTENSION);
+    }
+}
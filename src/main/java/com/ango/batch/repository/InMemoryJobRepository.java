@@ -0,0 +1,33 @@
+package com.ango.batch.repository;
+
+import com.ango.batch.IJobRepository;
+import com.ango.batch.status.StepCheckpoint;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checkpoints kept while the process lives, for steps executed again by the same process
+ */
+public class InMemoryJobRepository implements IJobRepository
+{
+    private final Map<String, StepCheckpoint> checkpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(StepCheckpoint checkpoint)
+    {
+        checkpoints.put(checkpoint.stepName(), checkpoint);
+    }
+
+    @Override
+    public StepCheckpoint load(String stepName)
+    {
+        return checkpoints.get(stepName);
+    }
+
+    @Override
+    public void remove(String stepName)
+    {
+        checkpoints.remove(stepName);
+    }
+}
@@ -1,13 +1,33 @@
 package com.ango.batch.resource;
 
+import com.ango.batch.IAsyncProcessor;
+import com.ango.batch.IBatchProcessor;
 import com.ango.batch.IProcessor;
 
-import java.util.LinkedList;
+import com.ango.batch.exceptions.AsyncProcessorException;
+import com.ango.batch.primitive.PrimitiveChunk;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class ProcessorResource<T,K> extends AbstractResource implements IProcessor<T,K>
 {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
     private final IProcessor<T,K> processor;
+    private ForkJoinPool pool;
+    private int minItemsPerTask;
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private long timeoutMillis = 0;
 
     public ProcessorResource(IProcessor<T,K> processor)
     {
@@ -15,6 +35,29 @@ public class ProcessorResource<T,K> extends AbstractResource implements IProcess
         this.processor = processor;
     }
 
+    /**
+     * Processes the items of a chunk in parallel, the processor must be thread safe. A batch processor still gets
+     * the whole chunk
+     *
+     * @param minItemsPerTask A chunk is split in tasks until they have fewer items than this
+     */
+    public void setParallelism(ForkJoinPool pool, int minItemsPerTask)
+    {
+        this.pool = pool;
+        this.minItemsPerTask = minItemsPerTask;
+    }
+
+    /**
+     * Limits of an async processor, the items of a chunk waiting for their result and the time each one can take
+     *
+     * @param timeoutMillis 0 to wait forever
+     */
+    public void setAsyncLimits(int maxInFlight, long timeoutMillis)
+    {
+        this.maxInFlight = maxInFlight;
+        this.timeoutMillis = timeoutMillis;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public K process(T item)
@@ -23,22 +66,187 @@ public class ProcessorResource<T,K> extends AbstractResource implements IProcess
     }
 
     @SuppressWarnings("unchecked")
-	public List<K> process(List<T> itemsIn)
-	{
+    public List<K> process(List<T> itemsIn)
+    {
         if (null == processor)
         {
             return (List<K>) itemsIn;
         }
+        if (processor instanceof IBatchProcessor)
+        {
+            return withoutNulls(((IBatchProcessor<T,K>) processor).process(itemsIn));
+        }
+        if (processor instanceof IAsyncProcessor)
+        {
+            return processAsync(itemsIn);
+        }
+        if (null != pool && itemsIn.size() >= 2 * minItemsPerTask)
+        {
+            return processInParallel(itemsIn);
+        }
 
-		final List<K> itemsOut = new LinkedList<>();
-		for (final T itemIn : itemsIn)
-		{
+        final List<K> itemsOut = new ArrayList<>(itemsIn.size());
+        for (final T itemIn : itemsIn)
+        {
             final K itemOut = processor.process(itemIn);
             if (null != itemOut)
             {
                 itemsOut.add(itemOut);
             }
-		}
-		return itemsOut;
-	}
+        }
+        return itemsOut;
+    }
+
+    /**
+     * Starts the items of the chunk as the in-flight ones complete, then gathers all of them in order
+     */
+    private List<K> processAsync(List<T> itemsIn)
+    {
+        final IAsyncProcessor<T,K> asyncProcessor = (IAsyncProcessor<T,K>) processor;
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final List<CompletableFuture<K>> futures = new ArrayList<>(itemsIn.size());
+        try
+        {
+            for (final T itemIn : itemsIn)
+            {
+                inFlight.acquire();
+                CompletableFuture<K> future;
+                try
+                {
+                    future = asyncProcessor.processAsync(itemIn);
+                }
+                catch (Throwable t)
+                {
+                    inFlight.release();
+                    throw t;
+                }
+                if (timeoutMillis > 0)
+                {
+                    future = future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+                }
+                future.whenComplete((itemOut, t) -> inFlight.release());
+                futures.add(future);
+            }
+
+            final List<K> itemsOut = new ArrayList<>(itemsIn.size());
+            for (final CompletableFuture<K> future : futures)
+            {
+                final K itemOut = future.get();
+                if (null != itemOut)
+                {
+                    itemsOut.add(itemOut);
+                }
+            }
+            return itemsOut;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            throw new AsyncProcessorException("Interrupted waiting for the processor", e);
+        }
+        catch (ExecutionException | CompletionException e)
+        {
+            cancel(futures);
+            final Throwable cause = (null == e.getCause()) ? e : e.getCause();
+            if (cause instanceof TimeoutException)
+            {
+                throw new AsyncProcessorException("Item not processed in [" + timeoutMillis + "] ms", cause);
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new AsyncProcessorException("Error processing item", cause);
+        }
+        catch (RuntimeException e)
+        {
+            cancel(futures);
+            throw e;
+        }
+    }
+
+    private static void cancel(List<? extends CompletableFuture<?>> futures)
+    {
+        for (final CompletableFuture<?> future : futures)
+        {
+            future.cancel(false);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<K> processInParallel(List<T> itemsIn)
+    {
+        final List<T> items = (itemsIn instanceof RandomAccess) ? itemsIn : new ArrayList<>(itemsIn);
+        //Each task fills its own range, the order of the chunk is kept
+        final Object[] results = new Object[items.size()];
+        pool.invoke(new ProcessTask(items, results, 0, items.size()));
+
+        final List<K> itemsOut = new ArrayList<>(results.length);
+        for (final Object itemOut : results)
+        {
+            if (null != itemOut)
+            {
+                itemsOut.add((K) itemOut);
+            }
+        }
+        return itemsOut;
+    }
+
+    private class ProcessTask extends RecursiveAction
+    {
+        private final List<T> items;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+
+        private ProcessTask(List<T> items, Object[] results, int from, int to)
+        {
+            this.items = items;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from < 2 * minItemsPerTask)
+            {
+                for (int i = from; i < to; i++)
+                {
+                    results[i] = processor.process(items.get(i));
+                }
+            }
+            else
+            {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new ProcessTask(items, results, from, middle), new ProcessTask(items, results, middle, to));
+            }
+        }
+    }
+
+    private static <K> List<K> withoutNulls(List<K> items)
+    {
+        if (items instanceof PrimitiveChunk)
+        {
+            return items; //Primitives can't be null
+        }
+        for (final K item : items)
+        {
+            if (null == item)
+            {
+                final List<K> itemsOut = new ArrayList<>(items.size());
+                for (final K itemOut : items)
+                {
+                    if (null != itemOut)
+                    {
+                        itemsOut.add(itemOut);
+                    }
+                }
+                return itemsOut;
+            }
+        }
+        return items;
+    }
 }
@@ -1,12 +1,17 @@
 package com.ango.batch.resource;
 
+import com.ango.batch.IBulkReader;
+import com.ango.batch.ICheckpointable;
 import com.ango.batch.IReader;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
-public class ReaderResource<T> extends AbstractResource implements IReader<T>
+public class ReaderResource<T> extends AbstractResource implements IReader<T>, ICheckpointable
 {
+    //A huge commit interval doesn't allocate its whole chunk before reading
+    private static final int MAX_INITIAL_CAPACITY = 4096;
+
     private final IReader<T> reader;
 
     public ReaderResource(IReader<T> reader)
@@ -15,24 +20,75 @@ public class ReaderResource<T> extends AbstractResource implements IReader<T>
         this.reader = reader;
     }
 
+    public boolean isCheckpointable()
+    {
+        return reader instanceof ICheckpointable;
+    }
+
+    /**
+     * @return The position of the reader, null if it can't restart
+     */
+    @Override
+    public String checkpoint()
+    {
+        return isCheckpointable() ? ((ICheckpointable) reader).checkpoint() : null;
+    }
+
+    @Override
+    public void restore(String checkpoint)
+    {
+        if (isCheckpointable())
+        {
+            ((ICheckpointable) reader).restore(checkpoint);
+        }
+    }
+
     @Override
     public T read()
     {
         return reader.read();
     }
 
-	public List<T> read(int commitInterval)
-	{
-		final List<T> items = new LinkedList<>();
-		for (int i = 0; i < commitInterval; i++)
-		{
-			final T item = reader.read();
-			if (null == item)
-			{
-				break;
-			}
-			items.add(item);
-		}
-		return items;
-	}
+    public List<T> read(int commitInterval)
+    {
+        final List<T> items = newBuffer(commitInterval);
+        read(items, commitInterval);
+        return items;
+    }
+
+    /**
+     * An empty buffer for a chunk, the one the reader prefers if it reads in bulk
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> newBuffer(int commitInterval)
+    {
+        final int capacity = Math.min(commitInterval, MAX_INITIAL_CAPACITY);
+        return (reader instanceof IBulkReader) ? ((IBulkReader<T>) reader).newBuffer(capacity) : new ArrayList<>(capacity);
+    }
+
+    /**
+     * Appends up to max items to the buffer, in one call when the reader reads in bulk
+     *
+     * @return Items appended, fewer than max at the end of data
+     */
+    @SuppressWarnings("unchecked")
+    public int read(List<T> buffer, int max)
+    {
+        if (reader instanceof IBulkReader)
+        {
+            return ((IBulkReader<T>) reader).read(buffer, max);
+        }
+        int count = 0;
+        while (count < max)
+        {
+            final T item = reader.read();
+            if (null == item)
+            {
+                break;
+            }
+            buffer.add(item);
+            count++;
+        }
+        return count;
+    }
 }
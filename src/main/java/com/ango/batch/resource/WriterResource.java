@@ -1,8 +1,12 @@
 package com.ango.batch.resource;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import com.ango.batch.IAffectedRows;
+import com.ango.batch.IReusedChunks;
 import com.ango.batch.IWriter;
+import com.ango.batch.primitive.PrimitiveChunk;
 
 public  class WriterResource<K> extends AbstractResource implements IWriter<K>
 {
@@ -19,4 +23,34 @@ public  class WriterResource<K> extends AbstractResource implements IWriter<K>
     {
         writer.write(items);
     }
+
+    /**
+     * Writes the items processed from a list the step reuses for the next chunks. When the processor passed that list
+     * through, a writer that doesn't implement IReusedChunks gets a copy
+     */
+    public void write(List<K> itemsProcessed, List<?> itemsRead)
+    {
+        if (itemsProcessed == itemsRead && !(writer instanceof IReusedChunks))
+        {
+            writer.write(copy(itemsProcessed));
+        }
+        else
+        {
+            writer.write(itemsProcessed);
+        }
+    }
+
+    /**
+     * Rows changed by the writer, 0 if it doesn't count them
+     */
+    public long affectedRows()
+    {
+        return (writer instanceof IAffectedRows) ? ((IAffectedRows) writer).affectedRows() : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> List<K> copy(List<K> items)
+    {
+        return (items instanceof PrimitiveChunk) ? ((PrimitiveChunk<K>) items).copy() : new ArrayList<>(items);
+    }
 }
@@ -1,5 +1,6 @@
 package com.ango.batch.status;
 
+import com.ango.batch.IJobRepository;
 import com.ango.batch.IStepStatus;
 import com.ango.batch.StepState;
 import com.ango.batch.exceptions.SaveStateException;
@@ -18,6 +19,7 @@ public abstract class CommonStatus implements IStepStatus, IExceptionVault
     private long initTime = 0;
     private long endTime = 0;
     private final List<Throwable> exceptions = new CopyOnWriteArrayList<>();
+    private IJobRepository repository;
 
     public CommonStatus(String name)
     {
@@ -25,6 +27,27 @@ public abstract class CommonStatus implements IStepStatus, IExceptionVault
         this.state = StepState.Starting;
     }
 
+    /**
+     * Where the state is saved, without it the state is only logged
+     */
+    public void setRepository(IJobRepository repository)
+    {
+        this.repository = repository;
+    }
+
+    protected IJobRepository repository()
+    {
+        return repository;
+    }
+
+    /**
+     * The state to save, a step that can restart adds the position of its last committed chunk
+     */
+    protected StepCheckpoint checkpoint()
+    {
+        return new StepCheckpoint(name, state, null, skipped(), written(), committed());
+    }
+
     public void reset()
     {
         state = StepState.Starting;
@@ -81,8 +104,11 @@ public abstract class CommonStatus implements IStepStatus, IExceptionVault
     {
         try
         {
-            //TODO: insert or update
             LOGGER.debug("Persisting state: " + this);
+            if (null != repository)
+            {
+                repository.save(checkpoint());
+            }
         }
         catch (Throwable t)
         {
@@ -0,0 +1,74 @@
+package com.ango.batch.status;
+
+import com.ango.batch.StepState;
+
+/**
+ * State of a step at its last committed chunk, enough to execute it again from there
+ */
+public class StepCheckpoint
+{
+    private final String stepName;
+    private final StepState state;
+    private final String position;
+    private final int skipped;
+    private final int written;
+    private final int committed;
+
+    public StepCheckpoint(String stepName, StepState state, String position, int skipped, int written, int committed)
+    {
+        this.stepName = stepName;
+        this.state = state;
+        this.position = position;
+        this.skipped = skipped;
+        this.written = written;
+        this.committed = committed;
+    }
+
+    public String stepName()
+    {
+        return stepName;
+    }
+
+    public StepState state()
+    {
+        return state;
+    }
+
+    /**
+     * Position of the reader, null when the step has no chunk committed
+     */
+    public String position()
+    {
+        return position;
+    }
+
+    public int skipped()
+    {
+        return skipped;
+    }
+
+    public int written()
+    {
+        return written;
+    }
+
+    public int committed()
+    {
+        return committed;
+    }
+
+    /**
+     * A step failed or stopped while executing restarts from the checkpoint, a completed one starts from the beginning
+     */
+    public boolean isRestartable()
+    {
+        return StepState.Completed != state && null != position;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "stepName [" + stepName + "] state [" + state + "] position [" + position + "] skipped [" + skipped +
+         "] written [" + written + "] committed [" + committed + "]";
+    }
+}
@@ -2,6 +2,7 @@ package com.ango.batch.step;
 
 import com.ango.batch.IStepStatus;
 import com.ango.batch.exceptions.StepExecutionException;
+import com.ango.batch.thread.ThreadMode;
 
 import javax.transaction.TransactionManager;
 
@@ -10,6 +11,7 @@ public abstract class CommonStep<T extends IStepStatus>
     private T status;
     private TransactionManager tm;
     private boolean throwExceptions;
+    private ThreadMode threadMode = ThreadMode.Platform;
 
     protected T status() { return status; }
 
@@ -28,6 +30,16 @@ public abstract class CommonStep<T extends IStepStatus>
         this.tm = tm;
     }
 
+    protected ThreadMode threadMode()
+    {
+        return threadMode;
+    }
+
+    public void setThreadMode(ThreadMode threadMode)
+    {
+        this.threadMode = threadMode;
+    }
+
     public void setThrowExceptions(boolean value)
     {
         this.throwExceptions = value;
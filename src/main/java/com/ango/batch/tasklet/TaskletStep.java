@@ -1,6 +1,8 @@
 package com.ango.batch.tasklet;
 
 import com.ango.batch.step.CommonStep;
+import com.ango.batch.thread.ExecutorPool;
+import com.ango.batch.thread.ThreadMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,12 +11,16 @@ import com.ango.batch.IStepStatus;
 import com.ango.batch.ITasklet;
 import com.ango.batch.resource.TaskletResource;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
 public class TaskletStep extends CommonStep<TaskletStepStatus> implements IStep
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(TaskletStep.class);
 
     private TaskletResource tasklet;
     private boolean isTransactional;
+    private int waitTimeout;
 
     public TaskletStep()
     {
@@ -30,6 +36,11 @@ public class TaskletStep extends CommonStep<TaskletStepStatus> implements IStep
         isTransactional = value;
     }
 
+    public void setWaitTimeout(int timeout)
+    {
+        this.waitTimeout = timeout;
+    }
+
     @Override
     public String name()
     {
@@ -40,6 +51,29 @@ public class TaskletStep extends CommonStep<TaskletStepStatus> implements IStep
     public IStepStatus execute()
     {
         status().reset();
+        if (ThreadMode.Virtual == threadMode())
+        {
+            //The whole execution moves to the thread, so the transaction stays bound to it
+            try (ExecutorPool.Lease lease = ExecutorPool.getInstance().lease(1, "tasklet", threadMode(), waitTimeout))
+            {
+                CompletableFuture.runAsync(this::doExecute, lease::execute).join();
+            }
+            catch (InterruptedException | TimeoutException e)
+            {
+                LOGGER.error("Error starting step [" + status().name() + "]", e);
+                status().stop(e);
+                status().saveProtected();
+            }
+        }
+        else
+        {
+            doExecute();
+        }
+        return checkStatus();
+    }
+
+    private void doExecute()
+    {
         if (isTransactional)
         {
             doExecuteWithTx();
@@ -48,7 +82,6 @@ public class TaskletStep extends CommonStep<TaskletStepStatus> implements IStep
         {
             doExecuteWithoutTx();
         }
-        return checkStatus();
     }
 
     private void doExecuteWithoutTx()
@@ -12,6 +12,50 @@ public class ExecutorFactory
         return Executors.newFixedThreadPool(threads, new CustomThreadFactory(threadNamePrefix));
     }
 
+    public static Executor getInstance(int threads, String threadNamePrefix, ThreadMode mode)
+    {
+        if (ThreadMode.Virtual == mode)
+        {
+            return newThreadPerTaskExecutor(virtualThreadFactory(threadNamePrefix));
+        }
+        return getInstance(threads, threadNamePrefix);
+    }
+
+    private static Executor newThreadPerTaskExecutor(ThreadFactory factory)
+    {
+        try
+        {
+            return (Executor) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new UnsupportedOperationException("Virtual threads are not available", e);
+        }
+    }
+
+    /**
+     * Built by reflection so the framework still compiles and runs on Java 17
+     */
+    public static ThreadFactory virtualThreadFactory(String threadNamePrefix)
+    {
+        if (!ThreadMode.Virtual.isSupported())
+        {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+        }
+        try
+        {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            final Object namedBuilder = ofVirtual.getMethod("name", String.class, long.class)
+                    .invoke(builder, threadNamePrefix + "-", 0L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(namedBuilder);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new UnsupportedOperationException("Virtual threads are not available", e);
+        }
+    }
+
     private static class CustomThreadFactory implements ThreadFactory
     {
         private final AtomicInteger threadNumber = new AtomicInteger(0);
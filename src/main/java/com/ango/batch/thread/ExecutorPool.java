@@ -0,0 +1,361 @@
+package com.ango.batch.thread;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads shared by all the steps of the process. A step leases the threads it needs for one execution and
+ * gives them back when its tasks end, the platform threads leased at the same time never exceed the budget.
+ * Virtual threads are not counted, they are cheap and not pooled
+ */
+public class ExecutorPool
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorPool.class);
+
+    public static final int DEFAULT_MAX_THREADS = 256;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final int SHUTDOWN_SECONDS = 10;
+
+    private static ExecutorPool instance;
+
+    private static int maxThreads = DEFAULT_MAX_THREADS;
+
+    private static Thread shutdownHook;
+
+    private final int budget;
+    private final Semaphore permits;
+    private final ThreadPoolExecutor platform;
+    private ExecutorService virtual;
+    private ForkJoinPool forkJoin;
+    private volatile boolean isShutdown = false;
+
+    private ExecutorPool(int budget)
+    {
+        this.budget = budget;
+        this.permits = new Semaphore(budget, true);
+        //Idle threads are reused by the next lease and die after a while, the budget is kept by the permits
+        this.platform = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new PoolThreadFactory());
+    }
+
+    public static synchronized ExecutorPool getInstance()
+    {
+        if (null == instance)
+        {
+            instance = new ExecutorPool(maxThreads);
+            if (null == shutdownHook)
+            {
+                shutdownHook = new Thread(ExecutorPool::shutdown, "batch-pool-shutdown");
+                Runtime.getRuntime().addShutdownHook(shutdownHook);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Sets the budget of platform threads, it takes effect the next time the pool is created
+     */
+    public static synchronized void setMaxThreads(int threads)
+    {
+        if (threads <= 0)
+        {
+            throw new IllegalArgumentException("Max threads must be greater than 0");
+        }
+        maxThreads = threads;
+    }
+
+    /**
+     * Stops the shared pool waiting for the running tasks, the next lease creates a new one
+     */
+    public static void shutdown()
+    {
+        final ExecutorPool pool;
+        synchronized (ExecutorPool.class)
+        {
+            pool = instance;
+            instance = null;
+        }
+        if (null != pool)
+        {
+            pool.close();
+        }
+    }
+
+    public int budget()
+    {
+        return budget;
+    }
+
+    public int availableThreads()
+    {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Reserves all the threads at once, a step whose tasks wait for each other can't start with only part of them
+     *
+     * @param waitSeconds Max time waiting for free threads, 0 to wait forever
+     */
+    public Lease lease(int threads, String threadNamePrefix, ThreadMode mode, int waitSeconds) throws InterruptedException, TimeoutException
+    {
+        if (isShutdown)
+        {
+            throw new RejectedExecutionException("The executor pool is shut down");
+        }
+        if (ThreadMode.Virtual == mode)
+        {
+            return new Lease(threadNamePrefix, threads, mode);
+        }
+        if (threads > budget)
+        {
+            throw new RejectedExecutionException("Threads requested [" + threads + "] exceed the budget [" + budget + "]");
+        }
+        if (waitSeconds > 0)
+        {
+            if (!permits.tryAcquire(threads, waitSeconds, TimeUnit.SECONDS))
+            {
+                throw new TimeoutException();
+            }
+        }
+        else
+        {
+            permits.acquire(threads);
+        }
+        if (LOGGER.isDebugEnabled()) LOGGER.debug("Leased {} threads for {}", threads, threadNamePrefix);
+        return new Lease(threadNamePrefix, threads, mode);
+    }
+
+    private synchronized ExecutorService virtual()
+    {
+        if (null == virtual)
+        {
+            virtual = (ExecutorService) ExecutorFactory.getInstance(1, "batch-virtual", ThreadMode.Virtual);
+        }
+        return virtual;
+    }
+
+    /**
+     * Threads to process the items of a chunk in parallel, one per processor. They are not counted in the budget,
+     * they only compute while the thread of the chunk waits for them
+     */
+    public synchronized ForkJoinPool forkJoinPool()
+    {
+        if (isShutdown)
+        {
+            throw new RejectedExecutionException("The executor pool is shut down");
+        }
+        if (null == forkJoin)
+        {
+            forkJoin = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("batch-fork-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return forkJoin;
+    }
+
+    private void close()
+    {
+        isShutdown = true;
+        final ExecutorService virtualExecutor;
+        final ExecutorService forkJoinExecutor;
+        synchronized (this)
+        {
+            virtualExecutor = virtual;
+            forkJoinExecutor = forkJoin;
+        }
+        awaitTermination(platform);
+        if (null != virtualExecutor)
+        {
+            awaitTermination(virtualExecutor);
+        }
+        if (null != forkJoinExecutor)
+        {
+            awaitTermination(forkJoinExecutor);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor)
+    {
+        executor.shutdown();
+        try
+        {
+            if (!executor.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS))
+            {
+                LOGGER.warn("Tasks still running after {} seconds, interrupting them", SHUTDOWN_SECONDS);
+                executor.shutdownNow();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The threads of one step execution. Each task runs with the name prefix-slot, as if the step had its own pool,
+     * and the slot is free again when the task ends
+     */
+    public class Lease implements AutoCloseable
+    {
+        private final String namePrefix;
+        private final int threads;
+        private final ThreadMode mode;
+        private final boolean[] busy;
+        private boolean isClosed = false;
+
+        private Lease(String namePrefix, int threads, ThreadMode mode)
+        {
+            this.namePrefix = namePrefix;
+            this.threads = threads;
+            this.mode = mode;
+            this.busy = new boolean[threads];
+        }
+
+        public void execute(Runnable task)
+        {
+            execute(freeSlot(), task);
+        }
+
+        /**
+         * Runs the task in a given slot, to keep the thread name of a consumer started again
+         */
+        public void execute(int slot, Runnable task)
+        {
+            execute(slot, namePrefix + "-" + slot, task);
+        }
+
+        /**
+         * Runs the task in a given slot with its own thread name, for a task that is not one of the lease's kind
+         */
+        public void execute(int slot, String threadName, Runnable task)
+        {
+            synchronized (this)
+            {
+                if (isClosed)
+                {
+                    throw new RejectedExecutionException("The lease is closed");
+                }
+                if (slot < 0 || slot >= threads || busy[slot])
+                {
+                    throw new RejectedExecutionException("The leased thread [" + slot + "] is not free");
+                }
+                busy[slot] = true;
+            }
+            final Runnable named = () -> runNamed(task, slot, threadName);
+            try
+            {
+                if (ThreadMode.Virtual == mode)
+                {
+                    virtual().execute(named);
+                }
+                else
+                {
+                    platform.execute(named);
+                }
+            }
+            catch (RejectedExecutionException e)
+            {
+                free(slot);
+                throw e;
+            }
+        }
+
+        /**
+         * @return The lowest free slot, -1 when all the threads are in use
+         */
+        public synchronized int freeSlot()
+        {
+            for (int slot = 0; slot < threads; slot++)
+            {
+                if (!busy[slot])
+                {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private void runNamed(Runnable task, int slot, String threadName)
+        {
+            final Thread thread = Thread.currentThread();
+            final String poolName = thread.getName();
+            thread.setName(threadName);
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                thread.setName(poolName);
+                free(slot);
+            }
+        }
+
+        private synchronized void free(int slot)
+        {
+            busy[slot] = false;
+            if (isClosed)
+            {
+                release(1);
+            }
+        }
+
+        /**
+         * Gives back the threads not in use, the others are given back as their tasks end
+         */
+        @Override
+        public synchronized void close()
+        {
+            if (!isClosed)
+            {
+                isClosed = true;
+                int unused = 0;
+                for (boolean isBusy : busy)
+                {
+                    if (!isBusy) unused++;
+                }
+                release(unused);
+            }
+        }
+
+        private void release(int count)
+        {
+            if (ThreadMode.Platform == mode && count > 0)
+            {
+                permits.release(count);
+            }
+        }
+    }
+
+    private static class PoolThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            final Thread thread = new Thread(r);
+            thread.setName("batch-pool-" + threadNumber.getAndIncrement());
+            //The steps wait for their tasks, idle threads must not keep the JVM alive
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.ango.batch.thread;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Rendezvous of two threads, like a CyclicBarrier of two parties without lock nor condition. The first thread
+ * spins for a while and then parks until the second one arrives.
+ * A timeout or an interruption breaks it for good, the other thread gets a BrokenBarrierException.
+ * The state is the generation doubled, plus one while a thread waits, and negative once broken
+ */
+public class Handshake
+{
+    //Spinning only pays off when the other thread can run at the same time
+    private static final int SPINS = (Runtime.getRuntime().availableProcessors() > 1) ? 2048 : 0;
+
+    private final AtomicLong state = new AtomicLong(0);
+    private final AtomicReference<Thread> waiter = new AtomicReference<>();
+
+    public void await() throws InterruptedException, BrokenBarrierException
+    {
+        try
+        {
+            doAwait(false, 0);
+        }
+        catch (TimeoutException e)
+        {
+            throw new IllegalStateException(e); //Not possible without timeout
+        }
+    }
+
+    public void await(long timeout, TimeUnit unit) throws InterruptedException, BrokenBarrierException, TimeoutException
+    {
+        doAwait(true, unit.toNanos(timeout));
+    }
+
+    public boolean isBroken()
+    {
+        return state.get() < 0;
+    }
+
+    private static long broken(long at)
+    {
+        return -at - 1;
+    }
+
+    private void doAwait(boolean timed, long nanos) throws InterruptedException, BrokenBarrierException, TimeoutException
+    {
+        if (Thread.interrupted())
+        {
+            breakHandshake();
+            throw new InterruptedException();
+        }
+        while (true)
+        {
+            final long current = state.get();
+            if (current < 0)
+            {
+                throw new BrokenBarrierException();
+            }
+            if (isWaiting(current))
+            {
+                if (state.compareAndSet(current, current + 1))
+                {
+                    //Second to arrive, release the first one
+                    final Thread other = waiter.get();
+                    if (null != other)
+                    {
+                        LockSupport.unpark(other);
+                    }
+                    return;
+                }
+            }
+            else if (state.compareAndSet(current, current + 1))
+            {
+                waitForOther(current + 1, timed, nanos);
+                return;
+            }
+        }
+    }
+
+    private static boolean isWaiting(long current)
+    {
+        return (current & 1) == 1;
+    }
+
+    private void waitForOther(long waiting, boolean timed, long nanos) throws InterruptedException, BrokenBarrierException, TimeoutException
+    {
+        final Thread current = Thread.currentThread();
+        final long deadline = timed ? System.nanoTime() + nanos : 0;
+        try
+        {
+            for (int spins = 0; spins < SPINS; spins++)
+            {
+                if (state.get() != waiting)
+                {
+                    checkBroken(waiting);
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+            while (state.get() == waiting)
+            {
+                final long remaining = timed ? deadline - System.nanoTime() : 0;
+                if (timed && remaining <= 0)
+                {
+                    if (abandon(waiting))
+                    {
+                        throw new TimeoutException();
+                    }
+                    return;
+                }
+                if (waiter.get() != current)
+                {
+                    //Registered before parking, the state is checked again in case the other thread has just arrived.
+                    //If the thread released in the last handshake is still leaving, wait for it
+                    if (!waiter.compareAndSet(null, current))
+                    {
+                        Thread.yield();
+                    }
+                    continue;
+                }
+                if (timed)
+                {
+                    LockSupport.parkNanos(this, remaining);
+                }
+                else
+                {
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted())
+                {
+                    if (abandon(waiting))
+                    {
+                        throw new InterruptedException();
+                    }
+                    //The other thread arrived at the same time, the handshake is done but the flag is kept
+                    current.interrupt();
+                    return;
+                }
+            }
+            checkBroken(waiting);
+        }
+        finally
+        {
+            waiter.compareAndSet(current, null);
+        }
+    }
+
+    private void checkBroken(long waiting) throws BrokenBarrierException
+    {
+        if (state.get() == broken(waiting))
+        {
+            throw new BrokenBarrierException();
+        }
+    }
+
+    /**
+     * Breaks the handshake if the other thread hasn't arrived yet
+     */
+    private boolean abandon(long waiting) throws BrokenBarrierException
+    {
+        if (state.compareAndSet(waiting, broken(waiting)))
+        {
+            return true;
+        }
+        checkBroken(waiting);
+        return false;
+    }
+
+    private void breakHandshake()
+    {
+        long current;
+        do
+        {
+            current = state.get();
+            if (current < 0)
+            {
+                return;
+            }
+        }
+        while (!state.compareAndSet(current, broken(current)));
+        final Thread other = waiter.get();
+        if (null != other)
+        {
+            LockSupport.unpark(other);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ango.batch.thread;
+
+public enum ThreadMode
+{
+    Platform("Platform threads"),
+    /**
+     * Cheap threads for blocking I/O, they need Java 21 or later
+     */
+    Virtual("Virtual threads");
+
+    private static final int VIRTUAL_THREADS_VERSION = 21;
+
+    private final String description;
+
+    ThreadMode(String description)
+    {
+        this.description = description;
+    }
+
+    public boolean isSupported()
+    {
+        return Platform == this || Runtime.version().feature() >= VIRTUAL_THREADS_VERSION;
+    }
+
+    @Override
+    public String toString()
+    {
+        return description;
+    }
+}
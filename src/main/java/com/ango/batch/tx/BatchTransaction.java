@@ -0,0 +1,360 @@
+package com.ango.batch.tx;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.transaction.*;
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transaction of one thread without log. The resources take part registering a Synchronization or enlisting
+ * an XAResource. With only one XAResource it commits in one phase, with more they are prepared and committed
+ * but a crash between both phases leaves them for a manual recovery, the XA mode is the one for them.
+ * One resource without XA that commits on its own can be the last resource: it commits once the others are ready,
+ * so its outcome is the outcome of the transaction
+ */
+public class BatchTransaction implements Transaction
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(BatchTransaction.class);
+
+	private final UUID id = UUID.randomUUID();
+	private final List<Synchronization> synchronizations = new ArrayList<>();
+	private final List<Branch> branches = new ArrayList<>();
+	private Synchronization lastResource;
+	private int status = Status.STATUS_ACTIVE;
+
+	BatchTransaction() { }
+
+	@Override
+	public void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException, SecurityException, IllegalStateException, SystemException
+	{
+		checkActive();
+		if (Status.STATUS_MARKED_ROLLBACK == status)
+		{
+			rollback();
+			throw new RollbackException("The transaction was marked for rollback");
+		}
+		status = Status.STATUS_PREPARING;
+		for (Synchronization synchronization : synchronizations)
+		{
+			try
+			{
+				synchronization.beforeCompletion();
+			}
+			catch (RuntimeException e)
+			{
+				throw rollbackBecause("The transaction was rolled back before completion", e);
+			}
+		}
+		for (Branch branch : branches)
+		{
+			try
+			{
+				branch.end(XAResource.TMSUCCESS);
+			}
+			catch (XAException e)
+			{
+				throw rollbackBecause("Error ending the branch of a resource", e);
+			}
+		}
+
+		if (null != lastResource)
+		{
+			commitLastResource();
+		}
+		else if (branches.size() == 1)
+		{
+			commitOnePhase(branches.get(0));
+		}
+		else if (branches.size() > 1)
+		{
+			prepare();
+			commitPrepared();
+		}
+		status = Status.STATUS_COMMITTED;
+		afterCompletion();
+	}
+
+	private void commitOnePhase(Branch branch) throws RollbackException, SystemException
+	{
+		status = Status.STATUS_COMMITTING;
+		try
+		{
+			branch.resource.commit(branch.xid, true);
+		}
+		catch (XAException e)
+		{
+			if (isRollback(e))
+			{
+				status = Status.STATUS_ROLLEDBACK;
+				afterCompletion();
+				final RollbackException rollback = new RollbackException("The resource rolled back the transaction");
+				rollback.initCause(e);
+				throw rollback;
+			}
+			status = Status.STATUS_UNKNOWN;
+			afterCompletion();
+			throw systemException("Error committing the resource, its outcome is unknown", e);
+		}
+	}
+
+	/**
+	 * The branches are prepared before the last resource commits, if it fails they can still roll back
+	 */
+	private void commitLastResource() throws RollbackException, HeuristicMixedException, SystemException
+	{
+		prepare();
+		try
+		{
+			lastResource.beforeCompletion();
+		}
+		catch (RuntimeException e)
+		{
+			throw rollbackBecause("The last resource didn't commit the transaction", e);
+		}
+		commitPrepared();
+	}
+
+	private void prepare() throws RollbackException, SystemException
+	{
+		for (Branch branch : branches)
+		{
+			try
+			{
+				branch.isReadOnly = XAResource.XA_RDONLY == branch.resource.prepare(branch.xid);
+			}
+			catch (XAException e)
+			{
+				throw rollbackBecause("A resource voted to roll back the transaction", e);
+			}
+		}
+	}
+
+	private void commitPrepared() throws HeuristicMixedException
+	{
+		status = Status.STATUS_COMMITTING;
+		XAException failure = null;
+		for (Branch branch : branches)
+		{
+			if (!branch.isReadOnly)
+			{
+				try
+				{
+					branch.resource.commit(branch.xid, false);
+				}
+				catch (XAException e)
+				{
+					LOGGER.error("Error committing a prepared resource, transaction [{}]", id, e);
+					failure = e;
+				}
+			}
+		}
+		if (null != failure)
+		{
+			status = Status.STATUS_COMMITTED;
+			afterCompletion();
+			final HeuristicMixedException mixed = new HeuristicMixedException("Some resources didn't commit the transaction [" + id + "]");
+			mixed.initCause(failure);
+			throw mixed;
+		}
+	}
+
+	@Override
+	public void rollback() throws IllegalStateException, SystemException
+	{
+		checkActive();
+		status = Status.STATUS_ROLLING_BACK;
+		for (Branch branch : branches)
+		{
+			try
+			{
+				branch.end(XAResource.TMFAIL);
+				branch.resource.rollback(branch.xid);
+			}
+			catch (XAException e)
+			{
+				LOGGER.error("Error rolling back a resource, transaction [{}]", id, e);
+			}
+		}
+		status = Status.STATUS_ROLLEDBACK;
+		afterCompletion();
+	}
+
+	@Override
+	public boolean enlistResource(XAResource xaResource) throws RollbackException, IllegalStateException, SystemException
+	{
+		checkEnlistable();
+		for (Branch branch : branches)
+		{
+			if (branch.resource == xaResource)
+			{
+				return true;
+			}
+		}
+		final Branch branch = new Branch(xaResource, new BatchXid(id, branches.size()));
+		try
+		{
+			xaResource.start(branch.xid, XAResource.TMNOFLAGS);
+		}
+		catch (XAException e)
+		{
+			throw systemException("Error enlisting the resource", e);
+		}
+		branches.add(branch);
+		return true;
+	}
+
+	@Override
+	public boolean delistResource(XAResource xaResource, int flag) throws IllegalStateException, SystemException
+	{
+		for (Branch branch : branches)
+		{
+			if (branch.resource == xaResource)
+			{
+				try
+				{
+					branch.end(flag);
+				}
+				catch (XAException e)
+				{
+					throw systemException("Error delisting the resource", e);
+				}
+				if (XAResource.TMFAIL == flag)
+				{
+					status = Status.STATUS_MARKED_ROLLBACK;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int getStatus()
+	{
+		return status;
+	}
+
+	@Override
+	public void registerSynchronization(Synchronization synchronization) throws RollbackException, IllegalStateException, SystemException
+	{
+		checkEnlistable();
+		synchronizations.add(synchronization);
+	}
+
+	/**
+	 * Takes part with a resource without XA that commits in beforeCompletion, after every other resource is ready.
+	 * A second one is refused, the first could commit and the second fail
+	 */
+	public void registerLastResource(Synchronization synchronization) throws RollbackException, IllegalStateException
+	{
+		checkEnlistable();
+		if (null != lastResource && lastResource != synchronization)
+		{
+			throw new IllegalStateException("Only one resource without XA can take part in transaction [" + id + "]");
+		}
+		lastResource = synchronization;
+	}
+
+	@Override
+	public void setRollbackOnly() throws IllegalStateException, SystemException
+	{
+		checkActive();
+		status = Status.STATUS_MARKED_ROLLBACK;
+	}
+
+	private void checkActive()
+	{
+		if (Status.STATUS_ACTIVE != status && Status.STATUS_MARKED_ROLLBACK != status && Status.STATUS_PREPARING != status)
+		{
+			throw new IllegalStateException("The transaction is already completed, status [" + status + "]");
+		}
+	}
+
+	private void checkEnlistable() throws RollbackException
+	{
+		if (Status.STATUS_MARKED_ROLLBACK == status)
+		{
+			throw new RollbackException("The transaction was marked for rollback");
+		}
+		if (Status.STATUS_ACTIVE != status)
+		{
+			throw new IllegalStateException("The transaction is not active, status [" + status + "]");
+		}
+	}
+
+	private static boolean isRollback(XAException e)
+	{
+		return e.errorCode >= XAException.XA_RBBASE && e.errorCode <= XAException.XA_RBEND;
+	}
+
+	private static SystemException systemException(String message, Throwable cause)
+	{
+		final SystemException exception = new SystemException(message);
+		exception.initCause(cause);
+		return exception;
+	}
+
+	private RollbackException rollbackBecause(String message, Throwable cause) throws SystemException
+	{
+		rollback();
+		final RollbackException rollback = new RollbackException(message);
+		rollback.initCause(cause);
+		return rollback;
+	}
+
+	private void afterCompletion()
+	{
+		for (Synchronization synchronization : synchronizations)
+		{
+			afterCompletion(synchronization);
+		}
+		synchronizations.clear();
+		if (null != lastResource)
+		{
+			afterCompletion(lastResource);
+			lastResource = null;
+		}
+	}
+
+	private void afterCompletion(Synchronization synchronization)
+	{
+		//The outcome can't change anymore, a failure here is only logged
+		try
+		{
+			synchronization.afterCompletion(status);
+		}
+		catch (RuntimeException e)
+		{
+			LOGGER.error("Error after the completion of the transaction, status [" + status + "]", e);
+		}
+	}
+
+	private static class Branch
+	{
+		private final XAResource resource;
+		private final Xid xid;
+		private boolean isEnded = false;
+		private boolean isReadOnly = false;
+
+		private Branch(XAResource resource, Xid xid)
+		{
+			this.resource = resource;
+			this.xid = xid;
+		}
+
+		private void end(int flag) throws XAException
+		{
+			if (!isEnded)
+			{
+				isEnded = true;
+				resource.end(xid, flag);
+			}
+		}
+	}
+}
@@ -1,14 +1,26 @@
 package com.ango.batch.tx;
 
+import com.atomikos.datasource.RecoverableResource;
+import com.atomikos.icatch.config.Configuration;
+import com.atomikos.icatch.jta.UserTransactionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.XADataSource;
 import javax.transaction.*;
 
+/**
+ * Binds a transaction to the thread that begins it, the resources find it with getTransaction.
+ * All the instances share the transactions of the thread. In XA mode the transactions are the ones of Atomikos,
+ * started the first time it's requested
+ */
 public class BatchTransactionManager implements TransactionManager
 {
 	private static final Logger LOGGER = LoggerFactory.getLogger(BatchTransactionManager.class);
 
+	private static final ThreadLocal<BatchTransaction> CURRENT = new ThreadLocal<>();
+
+	private static UserTransactionManager xa;
 
 	private BatchTransactionManager() { }
 
@@ -17,63 +29,175 @@ public class BatchTransactionManager implements TransactionManager
 		return new BatchTransactionManager();
 	}
 
+	public static TransactionManager getInstance(TransactionMode mode) throws SystemException
+	{
+		return (TransactionMode.XA == mode) ? xa() : getInstance();
+	}
+
+	private static synchronized TransactionManager xa() throws SystemException
+	{
+		if (null == xa)
+		{
+			final UserTransactionManager manager = new UserTransactionManager();
+			manager.setForceShutdown(false);
+			manager.init();
+			xa = manager;
+		}
+		return xa;
+	}
+
+	/**
+	 * Makes a database known to the XA mode, only the connections of the data source returned can be enlisted.
+	 * The name identifies it in the log to recover its transactions, it must not change between executions
+	 */
+	public static synchronized XADataSource addResource(String name, XADataSource dataSource)
+	{
+		final RecoverableResource registered = Configuration.getResource(name);
+		if (registered instanceof XADataSourceResource)
+		{
+			return (XADataSourceResource) registered;
+		}
+		if (null != registered)
+		{
+			throw new IllegalStateException("Resource [" + name + "] already registered by [" + registered.getClass() + "]");
+		}
+		final XADataSourceResource resource = new XADataSourceResource(name, dataSource);
+		Configuration.addResource(resource);
+		return resource;
+	}
+
+	/**
+	 * The transaction of the thread in any mode, null if it has none. The resources join it when they are not
+	 * given a manager
+	 */
+	public static Transaction currentTransaction() throws SystemException
+	{
+		final BatchTransaction local = CURRENT.get();
+		if (null != local)
+		{
+			return local;
+		}
+		final UserTransactionManager manager;
+		synchronized (BatchTransactionManager.class)
+		{
+			manager = xa;
+		}
+		return (null == manager) ? null : manager.getTransaction();
+	}
+
+	/**
+	 * Stops the XA transaction service waiting for the transactions in progress, the next request starts it again
+	 */
+	public static synchronized void shutdown()
+	{
+		if (null != xa)
+		{
+			xa.close();
+			xa = null;
+		}
+	}
+
 	@Override
 	public void begin() throws NotSupportedException, SystemException
 	{
 		LOGGER.debug("begin");
-		//tm.begin();
+		final BatchTransaction left = CURRENT.get();
+		if (null != left)
+		{
+			//Pooled threads are reused by other steps, a transaction not completed is not inherited
+			LOGGER.warn("Rolling back a transaction not completed, status [{}]", left.getStatus());
+			left.rollback();
+		}
+		CURRENT.set(new BatchTransaction());
 	}
 
 	@Override
 	public void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException, SecurityException, IllegalStateException, SystemException
 	{
 		LOGGER.debug("commit");
-		//tm.commit();
+		final BatchTransaction transaction = CURRENT.get();
+		if (null == transaction)
+		{
+			throw new IllegalStateException("No transaction to commit");
+		}
+		try
+		{
+			transaction.commit();
+		}
+		finally
+		{
+			CURRENT.remove();
+		}
 	}
 
 	@Override
 	public int getStatus() throws SystemException
 	{
-		return 0;
-		//return tm.getStatus();
+		final BatchTransaction transaction = CURRENT.get();
+		return (null == transaction) ? Status.STATUS_NO_TRANSACTION : transaction.getStatus();
 	}
 
 	@Override
 	public Transaction getTransaction() throws SystemException
 	{
-		return null;
-		//return tm.getTransaction();
+		return CURRENT.get();
 	}
 
 	@Override
 	public void resume(Transaction transaction) throws InvalidTransactionException, IllegalStateException, SystemException
 	{
-		//tm.resume(transaction);
+		if (null != CURRENT.get())
+		{
+			throw new IllegalStateException("The thread already has a transaction");
+		}
+		if (null != transaction && !(transaction instanceof BatchTransaction))
+		{
+			throw new InvalidTransactionException("Unknown transaction [" + transaction.getClass() + "]");
+		}
+		CURRENT.set((BatchTransaction) transaction);
 	}
 
 	@Override
 	public void rollback() throws IllegalStateException, SecurityException, SystemException
 	{
 		LOGGER.debug("rollback");
-		//tm.rollback();
+		final BatchTransaction transaction = CURRENT.get();
+		//A failed commit has already rolled back its transaction
+		if (null != transaction)
+		{
+			try
+			{
+				transaction.rollback();
+			}
+			finally
+			{
+				CURRENT.remove();
+			}
+		}
 	}
 
 	@Override
 	public void setRollbackOnly() throws IllegalStateException, SystemException
 	{
-		//tm.setRollbackOnly();
+		final BatchTransaction transaction = CURRENT.get();
+		if (null == transaction)
+		{
+			throw new IllegalStateException("No transaction to mark for rollback");
+		}
+		transaction.setRollbackOnly();
 	}
 
 	@Override
 	public void setTransactionTimeout(int i) throws SystemException
 	{
-		//tm.setTransactionTimeout(i);
+		//The chunks have their own timeouts
 	}
 
 	@Override
 	public Transaction suspend() throws SystemException
 	{
-		return null;
-		//return tm.suspend();
+		final BatchTransaction transaction = CURRENT.get();
+		CURRENT.remove();
+		return transaction;
 	}
 }
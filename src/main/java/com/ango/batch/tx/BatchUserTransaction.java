@@ -1,52 +1,62 @@
 package com.ango.batch.tx;
 
-import com.atomikos.icatch.jta.UserTransactionImp;
-
 import javax.transaction.*;
 
+/**
+ * Demarcation of the transactions of a manager, for the code that only begins and ends them
+ */
 public class BatchUserTransaction implements UserTransaction
 {
-    private UserTransactionImp inner;
-    private  BatchUserTransaction() {}
+    private final TransactionManager manager;
+
+    private BatchUserTransaction(TransactionManager manager)
+    {
+        this.manager = manager;
+    }
 
     public static UserTransaction getInstance()
     {
-        return new BatchUserTransaction();
+        return new BatchUserTransaction(BatchTransactionManager.getInstance());
+    }
+
+    public static UserTransaction getInstance(TransactionMode mode) throws SystemException
+    {
+        return new BatchUserTransaction(BatchTransactionManager.getInstance(mode));
     }
 
     @Override
     public void begin() throws NotSupportedException, SystemException
     {
-
+        manager.begin();
     }
 
     @Override
     public void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException, SecurityException, IllegalStateException, SystemException
     {
-
+        manager.commit();
     }
 
     @Override
     public void rollback() throws IllegalStateException, SecurityException, SystemException
     {
-
+        manager.rollback();
     }
 
     @Override
     public void setRollbackOnly() throws IllegalStateException, SystemException
     {
-
+        manager.setRollbackOnly();
     }
 
     @Override
     public int getStatus() throws SystemException
     {
-        return 0;
+        return manager.getStatus();
     }
 
     @Override
     public void setTransactionTimeout(int i) throws SystemException
     {
-
+        manager.setTransactionTimeout(i);
     }
 }
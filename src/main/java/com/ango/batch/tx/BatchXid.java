@@ -0,0 +1,60 @@
+package com.ango.batch.tx;
+
+import javax.transaction.xa.Xid;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Identifier of a resource branch in a local transaction
+ */
+class BatchXid implements Xid
+{
+    private static final int FORMAT_ID = 0x42415443;
+
+    private final byte[] globalId;
+    private final byte[] branch;
+
+    BatchXid(UUID transaction, int branch)
+    {
+        this.globalId = ByteBuffer.allocate(16).putLong(transaction.getMostSignificantBits())
+                .putLong(transaction.getLeastSignificantBits()).array();
+        this.branch = ByteBuffer.allocate(4).putInt(branch).array();
+    }
+
+    @Override
+    public int getFormatId()
+    {
+        return FORMAT_ID;
+    }
+
+    @Override
+    public byte[] getGlobalTransactionId()
+    {
+        return globalId.clone();
+    }
+
+    @Override
+    public byte[] getBranchQualifier()
+    {
+        return branch.clone();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof Xid))
+        {
+            return false;
+        }
+        final Xid other = (Xid) o;
+        return FORMAT_ID == other.getFormatId() && Arrays.equals(globalId, other.getGlobalTransactionId())
+                && Arrays.equals(branch, other.getBranchQualifier());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Arrays.hashCode(globalId) + Arrays.hashCode(branch);
+    }
+}
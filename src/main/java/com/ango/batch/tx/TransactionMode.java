@@ -0,0 +1,13 @@
+package com.ango.batch.tx;
+
+public enum TransactionMode
+{
+    /**
+     * Transactions of the thread without log, one phase commit when only one resource takes part
+     */
+    Local,
+    /**
+     * Two phase commit with a recovery log by Atomikos, for steps that write several resources
+     */
+    XA
+}
@@ -0,0 +1,124 @@
+package com.ango.batch.tx;
+
+import com.atomikos.datasource.ResourceException;
+import com.atomikos.datasource.xa.XATransactionalResource;
+
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAResource;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+/**
+ * A database known by Atomikos. The connections opened through it can be enlisted in its transactions even when
+ * the driver doesn't recognize them as the same resource manager, and the branches left prepared are recovered
+ */
+class XADataSourceResource extends XATransactionalResource implements XADataSource
+{
+    private final XADataSource dataSource;
+    private final Map<XAResource, Boolean> opened = Collections.synchronizedMap(new WeakHashMap<>());
+    private XAConnection recovery;
+
+    XADataSourceResource(String name, XADataSource dataSource)
+    {
+        super(name);
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public boolean usesXAResource(XAResource xaResource)
+    {
+        return opened.containsKey(xaResource) || super.usesXAResource(xaResource);
+    }
+
+    @Override
+    protected synchronized XAResource refreshXAConnection() throws ResourceException
+    {
+        closeRecovery();
+        try
+        {
+            recovery = dataSource.getXAConnection();
+            return recovery.getXAResource();
+        }
+        catch (SQLException e)
+        {
+            throw new ResourceException("Error connecting to [" + getName() + "]", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws ResourceException
+    {
+        super.close();
+        closeRecovery();
+    }
+
+    @Override
+    public XAConnection getXAConnection() throws SQLException
+    {
+        return track(dataSource.getXAConnection());
+    }
+
+    @Override
+    public XAConnection getXAConnection(String user, String password) throws SQLException
+    {
+        return track(dataSource.getXAConnection(user, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        return dataSource.getParentLogger();
+    }
+
+    private XAConnection track(XAConnection connection) throws SQLException
+    {
+        opened.put(connection.getXAResource(), Boolean.TRUE);
+        return connection;
+    }
+
+    private void closeRecovery()
+    {
+        if (null != recovery)
+        {
+            try
+            {
+                recovery.close();
+            }
+            catch (SQLException e)
+            {
+                //The connection is discarded anyway
+            }
+            recovery = null;
+        }
+    }
+}
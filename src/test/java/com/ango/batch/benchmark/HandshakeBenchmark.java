@@ -0,0 +1,91 @@
+package com.ango.batch.benchmark;
+
+import com.ango.batch.thread.Handshake;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendezvous between the orchestrator and a consumer, the Handshake against the CyclicBarrier it replaces:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ango.batch.benchmark.HandshakeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandshakeBenchmark
+{
+    //Rendezvous of one invocation, a chunk needs five of them
+    private static final int ROUNDS = 1000;
+
+    @Param({"CyclicBarrier", "Handshake"})
+    private String implementation;
+
+    private Rendezvous rendezvous;
+
+    private Thread consumer;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        if ("Handshake".equals(implementation))
+        {
+            final Handshake handshake = new Handshake();
+            rendezvous = handshake::await;
+        }
+        else
+        {
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            rendezvous = barrier::await;
+        }
+        //The other party answers every rendezvous until the end of the trial
+        consumer = new Thread(() -> {
+            try
+            {
+                while (true)
+                {
+                    rendezvous.await();
+                }
+            }
+            catch (Exception e)
+            {
+                //Interrupted at tear down
+            }
+        }, "consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        consumer.interrupt();
+        consumer.join(1000);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROUNDS)
+    public void rendezvous() throws Exception
+    {
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            rendezvous.await();
+        }
+    }
+
+    private interface Rendezvous
+    {
+        void await() throws Exception;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(HandshakeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,110 @@
+package com.ango.batch.benchmark;
+
+import com.ango.batch.IMultiChunkStepBuilder;
+import com.ango.batch.IReader;
+import com.ango.batch.IStep;
+import com.ango.batch.IWriter;
+import com.ango.batch.chunk.multi.MultiChunkMode;
+import com.ango.batch.thread.ExecutorPool;
+import com.ango.batch.thread.ThreadMode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform against virtual threads with writers blocked on I/O. Virtual threads need the java21 profile:
+ * mvn -Pjava21 test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ango.batch.benchmark.ThreadModeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ThreadModeBenchmark
+{
+    private static final int ITEMS = 20_000;
+    private static final int COMMIT_INTERVAL = 10;
+    private static final int WRITE_MILLIS = 2;
+
+    @Param({"Platform", "Virtual"})
+    private ThreadMode threadMode;
+
+    @Param({"16", "256"})
+    private int consumers;
+
+    @Setup
+    public void setUp()
+    {
+        if (!threadMode.isSupported())
+        {
+            throw new IllegalStateException(threadMode + " needs Java 21 or later");
+        }
+        //The producer takes a thread of the budget too, the next pool is created with room for it
+        ExecutorPool.setMaxThreads(Math.max(ExecutorPool.DEFAULT_MAX_THREADS, consumers + 1));
+        ExecutorPool.shutdown();
+    }
+
+    @Benchmark
+    public int ioBoundWriters()
+    {
+        final IMultiChunkStepBuilder<Integer, Integer> builder = IMultiChunkStepBuilder.<Integer, Integer>instance()
+                .setName("ThreadModeBenchmark")
+                .setMode(MultiChunkMode.WorkPulling)
+                .setThreadMode(threadMode)
+                .setConsumers(consumers)
+                .setCommitInterval(COMMIT_INTERVAL)
+                .setReader(new CountReader(ITEMS));
+        for (int i = 0; i < consumers; i++)
+        {
+            builder.addWriter(new SleepWriter());
+        }
+        final IStep step = builder.build();
+        return step.execute().written();
+    }
+
+    private static class CountReader implements IReader<Integer>
+    {
+        private final int max;
+        private int idx = 0;
+
+        private CountReader(int max)
+        {
+            this.max = max;
+        }
+
+        @Override
+        public Integer read()
+        {
+            return (idx < max) ? ++idx : null;
+        }
+    }
+
+    /**
+     * Blocks as a JDBC or HTTP call would do for each chunk
+     */
+    private static class SleepWriter implements IWriter<Integer>
+    {
+        @Override
+        public void write(List<Integer> items)
+        {
+            try
+            {
+                Thread.sleep(WRITE_MILLIS);
+            }
+            catch (InterruptedException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(ThreadModeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
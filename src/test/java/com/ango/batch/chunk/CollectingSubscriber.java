@@ -0,0 +1,64 @@
+package com.ango.batch.chunk;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+/**
+ * Keeps the chunks received, requesting them one at a time
+ */
+public class CollectingSubscriber<K> implements Flow.Subscriber<List<K>>
+{
+    private final List<K> items = new CopyOnWriteArrayList<>();
+    private Flow.Subscription subscription;
+    private int chunks = 0;
+    private boolean isComplete = false;
+    private Throwable error;
+
+    public List<K> items()
+    {
+        return items;
+    }
+
+    public synchronized int chunks()
+    {
+        return chunks;
+    }
+
+    public synchronized boolean isComplete()
+    {
+        return isComplete;
+    }
+
+    public synchronized Throwable error()
+    {
+        return error;
+    }
+
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription)
+    {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public synchronized void onNext(List<K> chunk)
+    {
+        items.addAll(chunk);
+        chunks++;
+        subscription.request(1);
+    }
+
+    @Override
+    public synchronized void onError(Throwable throwable)
+    {
+        error = throwable;
+    }
+
+    @Override
+    public synchronized void onComplete()
+    {
+        isComplete = true;
+    }
+}
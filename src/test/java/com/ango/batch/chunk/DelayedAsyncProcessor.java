@@ -0,0 +1,69 @@
+package com.ango.batch.chunk;
+
+import com.ango.batch.IAsyncProcessor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Completes each item after a delay, like a remote service. The items to hang never complete
+ */
+public class DelayedAsyncProcessor implements IAsyncProcessor<Integer, String>
+{
+    private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(4, r -> {
+        final Thread thread = new Thread(r, "async-service");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int module = -1;
+    private long delay = 10;
+    private final Set<Integer> itemsToHang = new HashSet<>();
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger maxInFlight = new AtomicInteger(0);
+
+    public DelayedAsyncProcessor setFilterModule(int value)
+    {
+        this.module = value;
+        return this;
+    }
+
+    public DelayedAsyncProcessor setDelay(long millis)
+    {
+        this.delay = millis;
+        return this;
+    }
+
+    public DelayedAsyncProcessor setItemsToHang(Integer... items)
+    {
+        itemsToHang.addAll(Arrays.asList(items));
+        return this;
+    }
+
+    public int maxInFlight()
+    {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public CompletableFuture<String> processAsync(Integer item)
+    {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        if (itemsToHang.contains(item))
+        {
+            return future;
+        }
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        SCHEDULER.schedule(() -> {
+            inFlight.decrementAndGet();
+            future.complete((module > 0 && item % module == 0) ? null : item.toString());
+        }, delay, TimeUnit.MILLISECONDS);
+        return future;
+    }
+}
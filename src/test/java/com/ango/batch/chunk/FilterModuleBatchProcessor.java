@@ -0,0 +1,42 @@
+package com.ango.batch.chunk;
+
+import com.ango.batch.IBatchProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FilterModuleBatchProcessor implements IBatchProcessor<Integer, String>
+{
+    private int module = -1;
+    private int batches = 0;
+    private int items = 0;
+
+    public FilterModuleBatchProcessor setFilterModule(int value)
+    {
+        this.module = value;
+        return this;
+    }
+
+    public int batches()
+    {
+        return batches;
+    }
+
+    public int items()
+    {
+        return items;
+    }
+
+    @Override
+    public List<String> process(List<Integer> items)
+    {
+        batches++;
+        this.items += items.size();
+        final List<String> processed = new ArrayList<>(items.size());
+        for (final Integer item : items)
+        {
+            processed.add((module > 0 && item % module == 0) ? null : item.toString());
+        }
+        return processed;
+    }
+}
@@ -2,11 +2,16 @@ package com.ango.batch.chunk;
 
 import com.ango.batch.IProcessor;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class FilterModuleProcessor implements IProcessor<Integer, String>
 {
     private int module;
     private int idx = 0;
     private int processToFail;
+    private final Set<Integer> itemsToFail = new HashSet<>();
 
     public FilterModuleProcessor()
     {
@@ -20,6 +25,12 @@ public class FilterModuleProcessor implements IProcessor<Integer, String>
         return this;
     }
 
+    public FilterModuleProcessor setItemsToFail(Integer... values)
+    {
+        this.itemsToFail.addAll(Arrays.asList(values));
+        return this;
+    }
+
     public FilterModuleProcessor setFilterModule(int value)
     {
         this.module = value;
@@ -29,7 +40,7 @@ public class FilterModuleProcessor implements IProcessor<Integer, String>
     @Override
     public String process(Integer item)
     {
-        if (++idx == processToFail)
+        if (++idx == processToFail || itemsToFail.contains(item))
         {
             throw new RuntimeException("Error processing element [" + item + "]");
         }
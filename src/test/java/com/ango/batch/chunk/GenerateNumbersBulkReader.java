@@ -0,0 +1,49 @@
+package com.ango.batch.chunk;
+
+import com.ango.batch.IBulkReader;
+
+import java.util.List;
+
+public class GenerateNumbersBulkReader implements IBulkReader<Integer>
+{
+    private int max = -1;
+    private int idx = 0;
+    private int reads = 0;
+    private int bulkReads = 0;
+
+    public GenerateNumbersBulkReader setMax(int value)
+    {
+        this.max = value;
+        return this;
+    }
+
+    public int reads()
+    {
+        return reads;
+    }
+
+    public int bulkReads()
+    {
+        return bulkReads;
+    }
+
+    @Override
+    public Integer read()
+    {
+        reads++;
+        return (++idx > max) ? null : idx;
+    }
+
+    @Override
+    public int read(List<Integer> buffer, int max)
+    {
+        bulkReads++;
+        int count = 0;
+        while (count < max && idx < this.max)
+        {
+            buffer.add(++idx);
+            count++;
+        }
+        return count;
+    }
+}
@@ -3,10 +3,11 @@ package com.ango.batch.chunk;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ango.batch.ICheckpointable;
 import com.ango.batch.IReader;
 import com.ango.batch.IResource;
 
-public class GenerateNumbersReader implements IReader<Integer>, IResource
+public class GenerateNumbersReader implements IReader<Integer>, IResource, ICheckpointable
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(GenerateNumbersReader.class);
 
@@ -26,6 +27,12 @@ public class GenerateNumbersReader implements IReader<Integer>, IResource
         return this;
     }
 
+    public GenerateNumbersReader setMin(int value)
+    {
+        this.idx = value - 1;
+        return this;
+    }
+
     public GenerateNumbersReader setMax(int value)
     {
         this.max = value;
@@ -45,6 +52,18 @@ public class GenerateNumbersReader implements IReader<Integer>, IResource
         return number;
     }
 
+    @Override
+    public String checkpoint()
+    {
+        return Integer.toString(Math.min(idx, max));
+    }
+
+    @Override
+    public void restore(String checkpoint)
+    {
+        this.idx = Integer.parseInt(checkpoint);
+    }
+
     @Override
     public void open()
     {
@@ -0,0 +1,29 @@
+package com.ango.batch.chunk;
+
+import com.ango.batch.IPartitioner;
+import com.ango.batch.IReader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RangeNumbersPartitioner implements IPartitioner<Integer>
+{
+    private final int max;
+
+    public RangeNumbersPartitioner(int max)
+    {
+        this.max = max;
+    }
+
+    @Override
+    public List<IReader<Integer>> partition(int partitions)
+    {
+        final List<IReader<Integer>> readers = new ArrayList<>();
+        final int size = (max + partitions - 1) / partitions;
+        for (int min = 1; min <= max; min += size)
+        {
+            readers.add(new GenerateNumbersReader().setMin(min).setMax(Math.min(max, min + size - 1)));
+        }
+        return readers;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ango.batch.chunk;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Publishes the numbers from 1 to max as they are requested, in the thread that requests them
+ */
+public class RangePublisher implements Flow.Publisher<Integer>
+{
+    private final int max;
+    private long maxDemand = 0;
+    private boolean isCancelled = false;
+
+    public RangePublisher(int max)
+    {
+        this.max = max;
+    }
+
+    public synchronized long maxDemand()
+    {
+        return maxDemand;
+    }
+
+    public synchronized boolean isCancelled()
+    {
+        return isCancelled;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Integer> subscriber)
+    {
+        subscriber.onSubscribe(new Flow.Subscription()
+        {
+            private int next = 1;
+            private long demand = 0;
+            private boolean isEmitting = false;
+
+            @Override
+            public void request(long n)
+            {
+                synchronized (RangePublisher.this)
+                {
+                    demand += n;
+                    maxDemand = Math.max(maxDemand, demand);
+                    if (isEmitting)
+                    {
+                        return;
+                    }
+                    isEmitting = true;
+                    while (demand > 0 && next <= max && !isCancelled)
+                    {
+                        demand--;
+                        subscriber.onNext(next++);
+                    }
+                    if (next == max + 1 && !isCancelled)
+                    {
+                        next++;
+                        subscriber.onComplete();
+                    }
+                    isEmitting = false;
+                }
+            }
+
+            @Override
+            public void cancel()
+            {
+                synchronized (RangePublisher.this)
+                {
+                    isCancelled = true;
+                }
+            }
+        });
+    }
+}
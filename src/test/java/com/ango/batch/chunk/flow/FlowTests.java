@@ -0,0 +1,121 @@
+package com.ango.batch.chunk.flow;
+
+import com.ango.batch.IFlowStepBuilder;
+import com.ango.batch.IStep;
+import com.ango.batch.IStepStatus;
+import com.ango.batch.StepState;
+import com.ango.batch.chunk.CollectingSubscriber;
+import com.ango.batch.chunk.FilterModuleProcessor;
+import com.ango.batch.chunk.RangePublisher;
+import com.ango.batch.chunk.multi.ConsumerPhase;
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import com.ango.batch.exceptions.ConsumerException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SubmissionPublisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlowTests
+{
+    @Test
+    void publishedItems()
+    {
+        //1000 items in chunks of 50 by 3 consumers, never more than 2 chunks per consumer requested
+        final RangePublisher publisher = new RangePublisher(1000);
+        final CollectingSubscriber<String> subscriber = new CollectingSubscriber<>();
+        final List<String> writtenItems = new CopyOnWriteArrayList<>();
+        IStep step = IFlowStepBuilder.<Integer, String>instance()
+                .setName("Flow")
+                .setPublisher(publisher)
+                .setProcessorFactory(() -> new FilterModuleProcessor().setFilterModule(4))
+                .setWriterFactory(() -> writtenItems::addAll)
+                .setSubscriber(subscriber)
+                .setCommitInterval(50)
+                .setConsumers(3)
+                .build();
+
+        ChunkStepStatus status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(1000, status.read());
+        assertEquals(250, status.skipped());
+        assertEquals(750, status.written());
+        assertEquals(20, status.committed());
+        assertEquals(750, new HashSet<>(writtenItems).size());
+        assertEquals(new HashSet<>(writtenItems), new HashSet<>(subscriber.items()));
+        assertEquals(20, subscriber.chunks());
+        assertTrue(subscriber.isComplete());
+        assertTrue(publisher.maxDemand() <= 2 * 3 * 50);
+    }
+
+    @Test
+    void submissionPublisher()
+    {
+        //An asynchronous publisher, the last chunk is not complete
+        final List<Integer> writtenItems = new CopyOnWriteArrayList<>();
+        final SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>();
+        IStep step = IFlowStepBuilder.<Integer, Integer>instance()
+                .setName("Submission")
+                .setPublisher(publisher)
+                .setWriterFactory(() -> writtenItems::addAll)
+                .setCommitInterval(10)
+                .setConsumers(2)
+                .setWaitTimeout(10)
+                .build();
+
+        //Items submitted before the step subscribes are dropped
+        final Thread submitter = new Thread(() -> {
+            while (publisher.getNumberOfSubscribers() == 0)
+            {
+                Thread.onSpinWait();
+            }
+            for (int i = 1; i <= 95; i++)
+            {
+                publisher.submit(i);
+            }
+            publisher.close();
+        });
+        submitter.start();
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(95, status.read());
+        assertEquals(95, status.written());
+        assertEquals(95, new HashSet<>(writtenItems).size());
+    }
+
+    @Test
+    void writeError()
+    {
+        //The chunk of item 120 fails, the publisher is cancelled and the subscriber gets the error
+        final RangePublisher publisher = new RangePublisher(1000);
+        final CollectingSubscriber<Integer> subscriber = new CollectingSubscriber<>();
+        IStep step = IFlowStepBuilder.<Integer, Integer>instance()
+                .setName("FlowError")
+                .setPublisher(publisher)
+                .setWriterFactory(() -> items -> {
+                    if (items.contains(120)) throw new IllegalStateException("Write error");
+                })
+                .setSubscriber(subscriber)
+                .setCommitInterval(20)
+                .setConsumers(2)
+                .setThrowExceptions(false)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        final ConsumerException exception = (ConsumerException) status.exceptions().get(0);
+        assertEquals(ConsumerPhase.Process, exception.getPhase());
+        assertTrue(status.written() < 1000);
+        assertEquals(0, status.written() % 20);
+        assertTrue(publisher.isCancelled());
+        assertNotNull(subscriber.error());
+    }
+}
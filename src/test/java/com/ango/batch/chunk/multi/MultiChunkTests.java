@@ -1,17 +1,46 @@
 package com.ango.batch.chunk.multi;
 
+import com.ango.batch.IItemRouter;
+import com.ango.batch.IJobRepository;
 import com.ango.batch.IMultiChunkStepBuilder;
+import com.ango.batch.IReusedChunks;
 import com.ango.batch.IStep;
 import com.ango.batch.IStepStatus;
+import com.ango.batch.IWriter;
 import com.ango.batch.StepState;
+import com.ango.batch.chunk.DelayedAsyncProcessor;
 import com.ango.batch.chunk.FilterModuleProcessor;
 import com.ango.batch.chunk.GenerateNumbersReader;
 import com.ango.batch.chunk.PrintNumbersWriter;
 import com.ango.batch.common.ErrorTransactionManager;
+import com.ango.batch.exceptions.AsyncProcessorException;
+import com.ango.batch.exceptions.ConsumerException;
+import com.ango.batch.exceptions.ValidationException;
+import com.ango.batch.primitive.ILongReader;
+import com.ango.batch.primitive.LongChunk;
+import com.ango.batch.repository.InMemoryJobRepository;
+import com.ango.batch.thread.ExecutorPool;
+import com.ango.batch.thread.ThreadMode;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class MultiChunkTests
 {
@@ -485,4 +514,744 @@ public class MultiChunkTests
         assertTrue((status.endTime() - status.initTime()) >= status.lastElapsed());
         assertEquals(1, status.committed());
     }
+
+    @Test
+    void workPulling()
+    {
+        //Consumers pull chunks from the queue, each one commits on its own
+        long now = System.currentTimeMillis();
+
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("WorkPulling")
+                .setMode(MultiChunkMode.WorkPulling)
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setThrowExceptions(true)
+                //Producer
+                .setReader(new GenerateNumbersReader().setMax(23))
+                //Consumer1
+                .addProcessor(new FilterModuleProcessor().setFilterModule(4))
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(5))
+                //Consumer2
+                .addProcessor(new FilterModuleProcessor().setFilterModule(4))
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(5))
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        assertEquals("WorkPulling", status.name());
+        assertTrue(status.initTime() >= now);
+        assertTrue(status.endTime() > status.initTime());
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(23, status.read());
+        assertEquals(5, status.skipped());
+        assertEquals(18, status.written());
+        assertEquals(0, status.exceptions().size());
+        assertTrue((status.endTime() - status.initTime()) > status.lastElapsed());
+        assertEquals(5, status.committed());
+    }
+
+    @Test
+    void workPullingErrorCommit()
+    {
+        //The first commit fails, the step stops and the rest of consumers finish
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("WorkPullingError")
+                .setMode(MultiChunkMode.WorkPulling)
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setThrowExceptions(false)
+                .setTransactionManager(new ErrorTransactionManager().setCommitsToFail(1))
+                //Producer
+                .setReader(new GenerateNumbersReader().setMax(40))
+                //Consumer1
+                .addProcessor(new FilterModuleProcessor().setFilterModule(4))
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(5))
+                //Consumer2
+                .addProcessor(new FilterModuleProcessor().setFilterModule(4))
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(5))
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertTrue(status.exceptions().size() >= 2);
+        assertTrue(status.committed() < 8);
+        assertTrue(status.read() >= 5);
+    }
+
+    @Test
+    void readAhead()
+    {
+        //The producer keeps up to three rounds read while the consumers are writing
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("ReadAhead")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setReadAhead(3)
+                .setThrowExceptions(true)
+                //Producer
+                .setReader(new GenerateNumbersReader().setMax(40))
+                //Consumer1
+                .addProcessor(new FilterModuleProcessor().setFilterModule(4))
+                .addWriter(new PrintNumbersWriter().setMinDuration(20))
+                //Consumer2
+                .addProcessor(new FilterModuleProcessor().setFilterModule(3))
+                .addWriter(new PrintNumbersWriter().setMinDuration(20))
+                .build();
+
+        MultiChunkStatus status = (MultiChunkStatus) chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(40, status.read());
+        assertEquals(11, status.skipped());
+        assertEquals(29, status.written());
+        assertEquals(8, status.committed());
+        assertEquals(3, status.bufferCapacity());
+        assertTrue(status.maxBufferOccupancy() > 0);
+        assertTrue(status.maxBufferOccupancy() <= 3);
+        assertTrue(status.avgBufferOccupancy() <= 3);
+    }
+
+    @Test
+    void virtualThreads()
+    {
+        //Producer and consumers run on virtual threads
+        assumeTrue(ThreadMode.Virtual.isSupported());
+
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Virtual")
+                .setThreadMode(ThreadMode.Virtual)
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setThrowExceptions(false)
+                .setTransactionManager(new ErrorTransactionManager().setWaitDuration(1000).setWaitThread("consumer-0").setBeginsToFail(1))
+                //Producer
+                .setReader(new GenerateNumbersReader().setMax(20))
+                //Consumer1
+                .addProcessor(new FilterModuleProcessor().setFilterModule(4))
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(5))
+                //Consumer2
+                .addProcessor(new FilterModuleProcessor().setFilterModule(3))
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(5))
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        //The thread names are kept, so the first consumer is delayed and the second one fails
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(1, status.skipped());
+        assertEquals(4, status.written());
+        assertEquals(1, status.committed());
+    }
+
+    @Test
+    void virtualThreadsNotSupported()
+    {
+        assumeFalse(ThreadMode.Virtual.isSupported());
+
+        assertThrows(ValidationException.class, () -> IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Virtual")
+                .setThreadMode(ThreadMode.Virtual)
+                .setConsumers(1)
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .addWriter(new PrintNumbersWriter())
+                .build());
+    }
+
+    @Test
+    void adaptiveCommitInterval()
+    {
+        //Chunks of 50 items take about 50 ms, the consumers ask for shorter ones
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Adaptive")
+                .setMode(MultiChunkMode.WorkPulling)
+                .setConsumers(2)
+                .setCommitInterval(50)
+                .setCommitIntervalBounds(5, 50)
+                .setTargetLatency(10)
+                .setReader(new GenerateNumbersReader().setMax(400))
+                .addProcessor(new FilterModuleProcessor())
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(2))
+                .addProcessor(new FilterModuleProcessor())
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(2))
+                .build();
+
+        MultiChunkStatus status = (MultiChunkStatus) chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(400, status.read());
+        assertEquals(400, status.written());
+        assertEquals(50, status.maxCommitInterval());
+        assertTrue(status.minCommitInterval() < 50);
+        assertTrue(status.minCommitInterval() >= 5);
+
+        assertThrows(ValidationException.class, () -> IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Adaptive")
+                .setConsumers(1)
+                .setTargetLatency(10)
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .addWriter(new PrintNumbersWriter())
+                .build());
+    }
+
+    @Test
+    void parallelCommit()
+    {
+        //Two rounds of four consumers, each commit takes 100 ms
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Parallel")
+                .setConsumers(4)
+                .setCommitInterval(5)
+                .setCommitMode(CommitMode.Parallel)
+                .setTransactionManager(new ErrorTransactionManager().setCommitDuration(100))
+                .setReader(new GenerateNumbersReader().setMax(40))
+                .setProcessorFactory(() -> new FilterModuleProcessor().setFilterModule(4))
+                .setWriterFactory(PrintNumbersWriter::new)
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(40, status.read());
+        assertEquals(10, status.skipped());
+        assertEquals(30, status.written());
+        assertEquals(8, status.committed());
+        //One after another it would take 800 ms
+        assertTrue(status.endTime() - status.initTime() < 600);
+
+        //The second commit fails, the other consumer has already committed
+        chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Parallel")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setCommitMode(CommitMode.Parallel)
+                .setThrowExceptions(false)
+                .setTransactionManager(new ErrorTransactionManager().setCommitsToFail(2))
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessorFactory(FilterModuleProcessor::new)
+                .setWriterFactory(PrintNumbersWriter::new)
+                .build();
+
+        status = chunkStep.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(0, status.skipped());
+        assertEquals(5, status.written());
+        assertEquals(1, status.committed());
+    }
+
+    @Test
+    void twoPhaseCommit()
+    {
+        //The second consumer can't commit, the whole round rolls back
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("TwoPhase")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setCommitMode(CommitMode.TwoPhase)
+                .setThrowExceptions(false)
+                .setTransactionManager(new ErrorTransactionManager().setStatusesToFail(2))
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessorFactory(FilterModuleProcessor::new)
+                .setWriterFactory(PrintNumbersWriter::new)
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(0, status.written());
+        assertEquals(0, status.committed());
+        assertEquals(2, status.exceptions().size());
+
+        chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("TwoPhase")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setCommitMode(CommitMode.TwoPhase)
+                .setReader(new GenerateNumbersReader().setMax(23))
+                .setProcessorFactory(() -> new FilterModuleProcessor().setFilterModule(4))
+                .setWriterFactory(PrintNumbersWriter::new)
+                .build();
+
+        status = chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(23, status.read());
+        assertEquals(5, status.skipped());
+        assertEquals(18, status.written());
+        assertEquals(5, status.committed());
+    }
+
+    @Test
+    void elasticConsumers()
+    {
+        //Each chunk takes 20 ms to write, the reader is always ahead so consumers are added
+        final AtomicInteger writersCreated = new AtomicInteger(0);
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Elastic")
+                .setMode(MultiChunkMode.WorkPulling)
+                .setElasticConsumers(1, 4)
+                .setCommitInterval(5)
+                .setReadAhead(2)
+                .setReader(new GenerateNumbersReader().setMax(400))
+                .setProcessorFactory(FilterModuleProcessor::new)
+                .setWriterFactory(() -> {
+                    writersCreated.incrementAndGet();
+                    return new PrintNumbersWriter().setMinDuration(20);
+                })
+                .build();
+
+        MultiChunkStatus status = (MultiChunkStatus) chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(400, status.read());
+        assertEquals(400, status.written());
+        assertEquals(80, status.committed());
+        assertTrue(status.scaleUps() > 0);
+        assertTrue(status.maxActiveConsumers() > 1);
+        assertTrue(status.maxActiveConsumers() <= 4);
+        assertTrue(writersCreated.get() <= 4);
+
+        assertThrows(ValidationException.class, () -> IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Elastic")
+                .setElasticConsumers(1, 4)
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setWriterFactory(PrintNumbersWriter::new)
+                .build());
+    }
+
+    @Test
+    void routedItems()
+    {
+        //Seven keys for three consumers, every key is written by only one of them and in the order read
+        for (final MultiChunkMode mode : MultiChunkMode.values())
+        {
+            final Map<Integer, List<Integer>> writersByKey = new ConcurrentHashMap<>();
+            final Map<Integer, List<Integer>> itemsByKey = new ConcurrentHashMap<>();
+            final AtomicInteger writersCreated = new AtomicInteger(0);
+            IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                    .setName("Routed")
+                    .setMode(mode)
+                    .setConsumers(3)
+                    .setCommitInterval(4)
+                    .setRouter(IItemRouter.byKey(item -> item % 7))
+                    .setReader(new GenerateNumbersReader().setMax(100))
+                    .setProcessorFactory(FilterModuleProcessor::new)
+                    .setWriterFactory(() -> {
+                        final int writer = writersCreated.getAndIncrement();
+                        return items -> {
+                            for (final String item : items)
+                            {
+                                final int number = Integer.parseInt(item);
+                                writersByKey.computeIfAbsent(number % 7, k -> new CopyOnWriteArrayList<>()).add(writer);
+                                itemsByKey.computeIfAbsent(number % 7, k -> new CopyOnWriteArrayList<>()).add(number);
+                            }
+                        };
+                    })
+                    .build();
+
+            IStepStatus status = chunkStep.execute();
+
+            assertEquals(StepState.Completed, status.state());
+            assertEquals(100, status.read());
+            assertEquals(100, status.written());
+            assertEquals(7, writersByKey.size());
+            for (final List<Integer> writers : writersByKey.values())
+            {
+                assertEquals(1, new HashSet<>(writers).size());
+            }
+            for (final List<Integer> items : itemsByKey.values())
+            {
+                final List<Integer> sorted = new ArrayList<>(items);
+                Collections.sort(sorted);
+                assertEquals(sorted, items);
+            }
+        }
+
+        //Every item goes to the first consumer, the others have nothing to commit in any round
+        for (final CommitMode commitMode : CommitMode.values())
+        {
+            IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                    .setName("Routed")
+                    .setConsumers(3)
+                    .setCommitInterval(4)
+                    .setCommitMode(commitMode)
+                    .setRouter((item, consumers) -> 0)
+                    .setReader(new GenerateNumbersReader().setMax(20))
+                    .setProcessorFactory(FilterModuleProcessor::new)
+                    .setWriterFactory(PrintNumbersWriter::new)
+                    .build();
+
+            MultiChunkStatus status = (MultiChunkStatus) chunkStep.execute();
+
+            assertEquals(StepState.Completed, status.state());
+            assertEquals(20, status.written());
+            assertEquals(5, status.committed());
+        }
+
+        assertThrows(ValidationException.class, () -> IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Routed")
+                .setMode(MultiChunkMode.WorkPulling)
+                .setElasticConsumers(1, 4)
+                .setRouter(IItemRouter.byKey(item -> item % 7))
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setWriterFactory(PrintNumbersWriter::new)
+                .build());
+    }
+
+    @Test
+    void skipFailedItems()
+    {
+        //Items 7 and 13 always fail, in both modes the rest of their chunks are written
+        for (final MultiChunkMode mode : MultiChunkMode.values())
+        {
+            IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                    .setName("Skip")
+                    .setMode(mode)
+                    .setConsumers(2)
+                    .setCommitInterval(5)
+                    .setSkipLimit(2)
+                    .setReader(new GenerateNumbersReader().setMax(40))
+                    .setProcessorFactory(() -> new FilterModuleProcessor().setItemsToFail(7, 13))
+                    .setWriterFactory(PrintNumbersWriter::new)
+                    .build();
+
+            MultiChunkStatus status = (MultiChunkStatus) chunkStep.execute();
+
+            assertEquals(StepState.Completed, status.state());
+            assertEquals(40, status.read());
+            assertEquals(2, status.skipped());
+            assertEquals(38, status.written());
+            assertEquals(8, status.committed());
+            assertEquals(2, status.skippedItems().size());
+        }
+    }
+
+    @Test
+    void asyncTimeout()
+    {
+        //Item 12 never completes, its consumer fails processing it
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("AsyncTimeout")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setThrowExceptions(false)
+                .setAsyncProcessing(3, 200)
+                .setReader(new GenerateNumbersReader().setMax(40))
+                .setProcessorFactory(() -> new DelayedAsyncProcessor().setDelay(1).setItemsToHang(12))
+                .setWriterFactory(PrintNumbersWriter::new)
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        assertTrue(status.state().isFailed());
+        final ConsumerException exception = (ConsumerException) status.exceptions().stream()
+                .filter(e -> e instanceof ConsumerException).findFirst().orElseThrow();
+        assertEquals(ConsumerPhase.Process, exception.getPhase());
+        assertEquals(AsyncProcessorException.class, exception.getException().getClass());
+    }
+
+    @Test
+    void cachedProcessor()
+    {
+        //40 items with 8 distinct keys, the consumers share the results looked up
+        final AtomicInteger lookups = new AtomicInteger(0);
+        for (final MultiChunkMode mode : MultiChunkMode.values())
+        {
+            lookups.set(0);
+            final List<String> writtenItems = new CopyOnWriteArrayList<>();
+            IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                    .setName("Cache")
+                    .setMode(mode)
+                    .setConsumers(4)
+                    .setCommitInterval(5)
+                    .setProcessorCache(100, 0, item -> item % 8)
+                    .setReader(new GenerateNumbersReader().setMax(40))
+                    .setProcessorFactory(() -> item -> {
+                        lookups.incrementAndGet();
+                        return "key-" + item % 8;
+                    })
+                    .setWriterFactory(() -> writtenItems::addAll)
+                    .build();
+
+            MultiChunkStatus status = (MultiChunkStatus) chunkStep.execute();
+
+            assertEquals(StepState.Completed, status.state());
+            assertEquals(40, status.written());
+            assertEquals(40, status.cacheHits() + status.cacheMisses());
+            assertEquals(lookups.get(), status.cacheMisses());
+            //Consumers missing the same key at once both look it up
+            assertTrue(status.cacheMisses() >= 8 && status.cacheMisses() <= 8 * 4);
+            assertEquals(0, status.cacheEvictions());
+            assertEquals(8, new HashSet<>(writtenItems).size());
+        }
+    }
+
+    @Test
+    void reusedChunkLists()
+    {
+        //Without processor the writers taking reused lists get the lists the producer filled, 40 rounds go through
+        //the same few lists
+        final Set<List<Integer>> lists = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        final List<Integer> writtenItems = new CopyOnWriteArrayList<>();
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Reuse")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setReadAhead(2)
+                .setReader(new GenerateNumbersReader().setMax(400))
+                .setWriterFactory(() -> (IWriter<Integer> & IReusedChunks) items -> {
+                    lists.add(items);
+                    writtenItems.addAll(items);
+                })
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(400, status.written());
+        assertEquals(400, new HashSet<>(writtenItems).size());
+        //The rounds of the ring, the one filled, the one delivered and the lists held by the consumers
+        assertTrue(lists.size() <= (2 + 3) * 2, "Lists " + lists.size());
+
+        //The other writers get copies they can keep
+        final List<List<Integer>> kept = new CopyOnWriteArrayList<>();
+        chunkStep = IMultiChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Keep")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setReadAhead(2)
+                .setReader(new GenerateNumbersReader().setMax(400))
+                .setWriterFactory(() -> kept::add)
+                .build();
+
+        status = chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(80, kept.size());
+        assertEquals(400, kept.stream().flatMap(List::stream).distinct().count());
+    }
+
+    @Test
+    void primitiveChunks()
+    {
+        //In both modes the writers get the arrays the longs were read into
+        for (final MultiChunkMode mode : MultiChunkMode.values())
+        {
+            final AtomicLong next = new AtomicLong(1);
+            final ILongReader reader = (chunk, max) -> {
+                int read = 0;
+                while (read < max && next.get() <= 1000)
+                {
+                    chunk.addLong(next.getAndIncrement());
+                    read++;
+                }
+                return read;
+            };
+            final AtomicLong sum = new AtomicLong(0);
+            final AtomicInteger boxedChunks = new AtomicInteger(0);
+            IStep chunkStep = IMultiChunkStepBuilder.<Long, Long>instance()
+                    .setName("Primitive")
+                    .setMode(mode)
+                    .setConsumers(3)
+                    .setCommitInterval(50)
+                    .setReader(reader)
+                    .setWriterFactory(() -> items -> {
+                        if (!(items instanceof LongChunk)) boxedChunks.incrementAndGet();
+                        final LongChunk chunk = LongChunk.of(items);
+                        for (int i = 0; i < chunk.size(); i++)
+                        {
+                            sum.addAndGet(chunk.getLong(i));
+                        }
+                    })
+                    .build();
+
+            IStepStatus status = chunkStep.execute();
+
+            assertEquals(StepState.Completed, status.state());
+            assertEquals(1000, status.written());
+            assertEquals(1000L * 1001 / 2, sum.get());
+            assertEquals(0, boxedChunks.get());
+        }
+    }
+
+    @Test
+    void restart()
+    {
+        //The second consumer fails in the second round after the first one committed, the restart goes on after 15
+        final IJobRepository repository = new InMemoryJobRepository();
+        final List<String> writtenItems = new CopyOnWriteArrayList<>();
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Restart")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setRepository(repository)
+                .setThrowExceptions(false)
+                .setReader(new GenerateNumbersReader().setMax(40))
+                .setProcessorFactory(() -> new FilterModuleProcessor().setItemsToFail(17))
+                .setWriterFactory(() -> writtenItems::addAll)
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals("15", repository.load("Restart").position());
+        assertEquals(15, repository.load("Restart").written());
+
+        writtenItems.clear();
+        chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Restart")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setRepository(repository)
+                .setReader(new GenerateNumbersReader().setMax(40))
+                .setProcessorFactory(FilterModuleProcessor::new)
+                .setWriterFactory(() -> writtenItems::addAll)
+                .build();
+
+        status = chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(40, status.read());
+        assertEquals(40, status.written());
+        assertEquals(25, writtenItems.size());
+        assertEquals(StepState.Completed, repository.load("Restart").state());
+    }
+
+    @Test
+    void checkpointAfterRound()
+    {
+        //Each round of 10 items finds saved the position after the rounds already committed
+        final IJobRepository repository = new InMemoryJobRepository();
+        final List<String> wrongPositions = new CopyOnWriteArrayList<>();
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Checkpoint")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setRepository(repository)
+                .setReader(new GenerateNumbersReader().setMax(40))
+                .setProcessorFactory(() -> item -> item)
+                .setWriterFactory(() -> items -> {
+                    final int round = (items.get(0) - 1) / 10;
+                    final String expected = (round == 0) ? null : String.valueOf(round * 10);
+                    final String position = repository.load("Checkpoint").position();
+                    if (!Objects.equals(expected, position))
+                    {
+                        wrongPositions.add("round " + round + " found " + position);
+                    }
+                })
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(List.of(), wrongPositions);
+    }
+
+    @Test
+    void checkpointAfterPartialRound()
+    {
+        //The second consumer fails to commit the second round, the restart goes on after the items of the first one
+        final IJobRepository repository = new InMemoryJobRepository();
+        IStep chunkStep = IMultiChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Partial")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setThrowExceptions(false)
+                .setRepository(repository)
+                .setTransactionManager(new ErrorTransactionManager().setCommitsToFail(4))
+                .setReader(new GenerateNumbersReader().setMax(40))
+                .setProcessorFactory(() -> item -> item)
+                .setWriterFactory(() -> items -> { })
+                .build();
+
+        IStepStatus status = chunkStep.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals("15", repository.load("Partial").position());
+        assertEquals(15, repository.load("Partial").written());
+        assertEquals(3, repository.load("Partial").committed());
+
+        final List<Integer> written = new CopyOnWriteArrayList<>();
+        chunkStep = IMultiChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Partial")
+                .setConsumers(2)
+                .setCommitInterval(5)
+                .setRepository(repository)
+                .setReader(new GenerateNumbersReader().setMax(40))
+                .setProcessorFactory(() -> item -> item)
+                .setWriterFactory(() -> written::addAll)
+                .build();
+
+        status = chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(40, status.written());
+        assertEquals(25, written.size());
+        assertEquals(16, written.stream().mapToInt(Integer::intValue).min().getAsInt());
+    }
+
+    @Test
+    void sharedThreads() throws InterruptedException
+    {
+        //The threads of each execution are given back to the pool and reused by the next one
+        final ExecutorPool pool = ExecutorPool.getInstance();
+        int poolThreads = 0;
+        for (final MultiChunkMode mode : MultiChunkMode.values())
+        {
+            for (int i = 0; i < 5; i++)
+            {
+                IStep chunkStep = IMultiChunkStepBuilder.<Integer, String>instance()
+                        .setName("Shared")
+                        .setMode(mode)
+                        .setConsumers(2)
+                        .setCommitInterval(5)
+                        .setThrowExceptions(true)
+                        .setReader(new GenerateNumbersReader().setMax(20))
+                        .addProcessor(new FilterModuleProcessor())
+                        .addWriter(new PrintNumbersWriter())
+                        .addProcessor(new FilterModuleProcessor())
+                        .addWriter(new PrintNumbersWriter())
+                        .build();
+
+                IStepStatus status = chunkStep.execute();
+
+                assertEquals(StepState.Completed, status.state());
+                assertEquals(20, status.written());
+                waitForThreads(pool);
+                if (0 == poolThreads)
+                {
+                    poolThreads = poolThreads();
+                }
+                assertTrue(poolThreads() <= poolThreads);
+            }
+        }
+
+        //As many consumers as the budget leave no thread for the producer
+        assertThrows(ValidationException.class, () -> IMultiChunkStepBuilder.<Integer, String>instance()
+                .setName("Shared")
+                .setMode(MultiChunkMode.WorkPulling)
+                .setElasticConsumers(1, pool.budget())
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setWriterFactory(PrintNumbersWriter::new)
+                .build());
+    }
+
+    private static void waitForThreads(ExecutorPool pool) throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (pool.availableThreads() < pool.budget() && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(pool.budget(), pool.availableThreads());
+    }
+
+    private static int poolThreads()
+    {
+        return (int) Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("batch-pool-"))
+                .count();
+    }
 }
@@ -0,0 +1,91 @@
+package com.ango.batch.chunk.partition;
+
+import com.ango.batch.IPartitionStepBuilder;
+import com.ango.batch.IStep;
+import com.ango.batch.StepState;
+import com.ango.batch.chunk.FilterModuleProcessor;
+import com.ango.batch.chunk.PrintNumbersWriter;
+import com.ango.batch.chunk.RangeNumbersPartitioner;
+import com.ango.batch.chunk.multi.MultiChunkStatus;
+import com.ango.batch.exceptions.ConsumerException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PartitionTests
+{
+    @Test
+    void exactPartitions()
+    {
+        //Two partitions [1-20] and [21-40], each one reads on its own thread
+        long now = System.currentTimeMillis();
+
+        IStep step = IPartitionStepBuilder.<Integer, String>instance()
+                .setName("Partitions")
+                .setPartitions(2)
+                .setCommitInterval(5)
+                .setThrowExceptions(true)
+                .setPartitioner(new RangeNumbersPartitioner(40))
+                //Partition1
+                .addProcessor(new FilterModuleProcessor().setFilterModule(4))
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(5))
+                //Partition2
+                .addProcessor(new FilterModuleProcessor().setFilterModule(3))
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(5))
+                .build();
+
+        MultiChunkStatus status = (MultiChunkStatus) step.execute();
+
+        assertEquals("Partitions", status.name());
+        assertTrue(status.initTime() >= now);
+        assertTrue(status.endTime() > status.initTime());
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(40, status.read());
+        assertEquals(12, status.skipped());
+        assertEquals(28, status.written());
+        assertEquals(0, status.exceptions().size());
+        assertEquals(8, status.committed());
+
+        assertEquals(2, status.partitions().size());
+        assertEquals(20, status.partition(0).read());
+        assertEquals(5, status.partition(0).skipped());
+        assertEquals(15, status.partition(0).written());
+        assertEquals(4, status.partition(0).committed());
+        assertEquals(StepState.Completed, status.partition(0).state());
+        assertEquals(20, status.partition(1).read());
+        assertEquals(7, status.partition(1).skipped());
+        assertEquals(13, status.partition(1).written());
+        assertEquals(4, status.partition(1).committed());
+        assertEquals(StepState.Completed, status.partition(1).state());
+    }
+
+    @Test
+    void errorWrite()
+    {
+        //The second partition fails writing its second chunk
+        IStep step = IPartitionStepBuilder.<Integer, String>instance()
+                .setName("Error")
+                .setPartitions(2)
+                .setCommitInterval(5)
+                .setThrowExceptions(false)
+                .setPartitioner(new RangeNumbersPartitioner(40))
+                //Partition1
+                .addProcessor(new FilterModuleProcessor().setFilterModule(4))
+                .addWriter(new PrintNumbersWriter().setMaxMillisToWrite(5))
+                //Partition2
+                .addProcessor(new FilterModuleProcessor().setFilterModule(3))
+                .addWriter(new PrintNumbersWriter().setWritesToFail(5))
+                .build();
+
+        MultiChunkStatus status = (MultiChunkStatus) step.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(2, status.exceptions().size());
+        assertEquals(ConsumerException.class, status.exceptions().get(0).getClass());
+        assertEquals(StepState.Failed, status.partition(1).state());
+        assertEquals(1, status.partition(1).committed());
+        assertEquals(3, status.partition(1).written());
+        assertTrue(status.committed() >= 1);
+    }
+}
@@ -1,15 +1,42 @@
 package com.ango.batch.chunk.simple;
 
 import com.ango.batch.IChunkStepBuilder;
+import com.ango.batch.IJobRepository;
+import com.ango.batch.IReusedChunks;
 import com.ango.batch.IStep;
 import com.ango.batch.IStepStatus;
+import com.ango.batch.IWriter;
 import com.ango.batch.StepState;
+import com.ango.batch.chunk.DelayedAsyncProcessor;
+import com.ango.batch.chunk.FilterModuleBatchProcessor;
 import com.ango.batch.chunk.FilterModuleProcessor;
+import com.ango.batch.chunk.GenerateNumbersBulkReader;
 import com.ango.batch.chunk.GenerateNumbersReader;
 import com.ango.batch.chunk.PrintNumbersWriter;
+import com.ango.batch.exceptions.SkipLimitExceededException;
 import com.ango.batch.exceptions.StepExecutionException;
+import com.ango.batch.exceptions.ValidationException;
+import com.ango.batch.file.TransactionalFileWriter;
+import com.ango.batch.primitive.IIntProcessor;
+import com.ango.batch.primitive.IIntReader;
+import com.ango.batch.primitive.IIntWriter;
+import com.ango.batch.repository.FileJobRepository;
 import com.ango.batch.tx.BatchTransactionManager;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -221,4 +248,478 @@ public class ChunkTests
         assertEquals(RuntimeException.class, status.exceptions().get(0).getClass());
         assertEquals(2, status.committed());
     }
+
+    @Test
+    void skipFailedItems()
+    {
+        //Items 7 and 13 always fail, the rest of their chunks are written
+        IStep step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Skip")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(new FilterModuleProcessor().setItemsToFail(7, 13))
+                .setWriter(new PrintNumbersWriter())
+                .setCommitInterval(5)
+                .setSkipLimit(2)
+                .build();
+
+        ChunkStepStatus status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(20, status.read());
+        assertEquals(2, status.skipped());
+        assertEquals(18, status.written());
+        assertEquals(5, status.committed());
+        assertEquals(2, status.skippedItems().size());
+        assertEquals(7, status.skippedItems().get(0).getItem());
+        assertEquals(13, status.skippedItems().get(1).getItem());
+
+        //One skip too many
+        step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Skip")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(new FilterModuleProcessor().setItemsToFail(7, 13))
+                .setWriter(new PrintNumbersWriter())
+                .setCommitInterval(5)
+                .setSkipLimit(1)
+                .setThrowExceptions(false)
+                .build();
+
+        status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(9, status.written());
+        assertEquals(2, status.committed());
+        assertEquals(SkipLimitExceededException.class, status.exceptions().get(0).getClass());
+
+        //The write fails only once, the retry writes the whole chunk
+        step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Retry")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(new FilterModuleProcessor())
+                .setWriter(new PrintNumbersWriter().setWritesToFail(8))
+                .setCommitInterval(5)
+                .setRetryLimit(1)
+                .build();
+
+        status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(20, status.written());
+        assertEquals(0, status.skipped());
+        assertEquals(0, status.skippedItems().size());
+
+        //Not a skippable exception
+        step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Skip")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(new FilterModuleProcessor().setItemsToFail(7))
+                .setWriter(new PrintNumbersWriter())
+                .setCommitInterval(5)
+                .setSkipLimit(2)
+                .addSkippableException(IllegalArgumentException.class)
+                .setThrowExceptions(false)
+                .build();
+
+        status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(RuntimeException.class, status.exceptions().get(0).getClass());
+    }
+
+    @Test
+    void restart(@TempDir Path directory)
+    {
+        //The third chunk fails, the second execution starts after the second one
+        final IJobRepository repository = new FileJobRepository(directory);
+        final List<String> writtenItems = new ArrayList<>();
+        IStep step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Restart")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(new FilterModuleProcessor().setProcessToFail(12))
+                .setWriter(writtenItems::addAll)
+                .setCommitInterval(5)
+                .setRepository(repository)
+                .setThrowExceptions(false)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(10, status.written());
+        assertEquals("10", repository.load("Restart").position());
+
+        writtenItems.clear();
+        step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Restart")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(new FilterModuleProcessor())
+                .setWriter(writtenItems::addAll)
+                .setCommitInterval(5)
+                .setRepository(repository)
+                .build();
+
+        status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(20, status.read());
+        assertEquals(20, status.written());
+        assertEquals(5, status.committed());
+        assertEquals(10, writtenItems.size());
+        assertEquals("11", writtenItems.get(0));
+        assertEquals(StepState.Completed, repository.load("Restart").state());
+
+        //Completed, the next execution starts from the beginning
+        writtenItems.clear();
+        step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Restart")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(new FilterModuleProcessor())
+                .setWriter(writtenItems::addAll)
+                .setCommitInterval(5)
+                .setRepository(repository)
+                .build();
+
+        status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(20, writtenItems.size());
+
+        assertThrows(ValidationException.class, () -> IChunkStepBuilder.<Integer, String>instance()
+                .setName("Restart")
+                .setReader(() -> null)
+                .setWriter(new PrintNumbersWriter())
+                .setRepository(repository)
+                .build());
+    }
+
+    @Test
+    void checkpointAfterCommit(@TempDir Path directory)
+    {
+        //Each chunk finds saved the position after the chunks already committed, as a restart after a crash would
+        final IJobRepository repository = new FileJobRepository(directory);
+        final List<String> positions = new ArrayList<>();
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Checkpoint")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(item -> item)
+                .setWriter(items -> positions.add(repository.load("Checkpoint").position()))
+                .setCommitInterval(5)
+                .setRepository(repository)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(Arrays.asList(null, "5", "10", "15"), positions);
+    }
+
+    @Test
+    void skipWritesEachItemOnce(@TempDir Path directory) throws IOException
+    {
+        //Items 7 and 13 always fail and the first write of 18 fails, the tries are rolled back and the file keeps each item once
+        final Path file = directory.resolve("once.txt");
+        final AtomicInteger writesOf18 = new AtomicInteger(0);
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Once")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(item ->
+                {
+                    if (item == 7 || item == 13) throw new RuntimeException("Item " + item);
+                    return item;
+                })
+                .setWriter(new TransactionalFileWriter<Integer>(file, (item, line) -> {
+                    if (item == 18 && writesOf18.getAndIncrement() == 0)
+                    {
+                        throw new RuntimeException("Error formatting [" + item + "]");
+                    }
+                    line.append(item);
+                }))
+                .setCommitInterval(5)
+                .setSkipLimit(2)
+                .setRetryLimit(1)
+                .build();
+
+        ChunkStepStatus status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(18, status.written());
+        assertEquals(List.of("1", "2", "3", "4", "5", "6", "8", "9", "10", "11", "12", "14", "15", "16", "17", "18", "19", "20"),
+                Files.readAllLines(file));
+    }
+
+    @Test
+    void skipLimitExceededWhileSplitting(@TempDir Path directory) throws IOException
+    {
+        //Item 6 is found clean before 8 goes over the limit, nothing of the failed chunk is left in the file
+        final Path file = directory.resolve("limit.txt");
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Limit")
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(item ->
+                {
+                    if (item == 7 || item == 8) throw new RuntimeException("Item " + item);
+                    return item;
+                })
+                .setWriter(new TransactionalFileWriter<Integer>(file, (item, line) -> line.append(item)))
+                .setCommitInterval(5)
+                .setSkipLimit(1)
+                .setThrowExceptions(false)
+                .build();
+
+        ChunkStepStatus status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(SkipLimitExceededException.class, status.exceptions().get(0).getClass());
+        assertEquals(5, status.written());
+        assertEquals(1, status.committed());
+        assertEquals(List.of("1", "2", "3", "4", "5"), Files.readAllLines(file));
+    }
+
+    @Test
+    void bulkReader()
+    {
+        //One call for each chunk, the last one empty
+        final GenerateNumbersBulkReader reader = new GenerateNumbersBulkReader().setMax(23);
+        IStep step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Bulk")
+                .setReader(reader)
+                .setProcessor(new FilterModuleProcessor().setFilterModule(4))
+                .setWriter(new PrintNumbersWriter())
+                .setCommitInterval(5)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(23, status.read());
+        assertEquals(5, status.skipped());
+        assertEquals(18, status.written());
+        assertEquals(5, status.committed());
+        assertEquals(5, reader.bulkReads());
+        assertEquals(0, reader.reads());
+    }
+
+    @Test
+    void writerKeepsLists()
+    {
+        //Without a processor the buffer read would reach the writer, it gets a copy unless it takes reused lists
+        final List<List<Integer>> kept = new ArrayList<>();
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Kept")
+                .setReader(new GenerateNumbersReader().setMax(11))
+                .setWriter(kept::add)
+                .setCommitInterval(5)
+                .build();
+
+        assertEquals(StepState.Completed, step.execute().state());
+        assertEquals(List.of(List.of(1, 2, 3, 4, 5), List.of(6, 7, 8, 9, 10), List.of(11)), kept);
+
+        final ReusedListsWriter writer = new ReusedListsWriter();
+        step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Reused")
+                .setReader(new GenerateNumbersReader().setMax(11))
+                .setWriter(writer)
+                .setCommitInterval(5)
+                .build();
+
+        assertEquals(StepState.Completed, step.execute().state());
+        assertEquals(1, writer.lists.size());
+    }
+
+    @Test
+    void batchProcessor()
+    {
+        //One call for each chunk with items, the filtered ones are skipped
+        final FilterModuleBatchProcessor processor = new FilterModuleBatchProcessor().setFilterModule(4);
+        IStep step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Batch")
+                .setReader(new GenerateNumbersReader().setMax(23))
+                .setProcessor(processor)
+                .setWriter(new PrintNumbersWriter())
+                .setCommitInterval(5)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(23, status.read());
+        assertEquals(5, status.skipped());
+        assertEquals(18, status.written());
+        assertEquals(5, processor.batches());
+        assertEquals(23, processor.items());
+    }
+
+    @Test
+    void parallelProcessing()
+    {
+        //Chunks of 50 items in tasks of 5, the order and the filter are kept
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        final List<String> writtenItems = new ArrayList<>();
+        IStep step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Parallel")
+                .setReader(new GenerateNumbersReader().setMax(120))
+                .setProcessor(item -> {
+                    threads.add(Thread.currentThread().getName());
+                    return (item % 4 == 0) ? null : item.toString();
+                })
+                .setWriter(writtenItems::addAll)
+                .setCommitInterval(50)
+                .setParallelProcessing(5)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(120, status.read());
+        assertEquals(30, status.skipped());
+        assertEquals(90, status.written());
+        final List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 120; i++)
+        {
+            if (i % 4 != 0) expected.add(Integer.toString(i));
+        }
+        assertEquals(expected, writtenItems);
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("batch-fork-")));
+    }
+
+    @Test
+    void asyncProcessing()
+    {
+        //100 items of 20 ms, sequentially they would take 2 seconds
+        final DelayedAsyncProcessor processor = new DelayedAsyncProcessor().setDelay(20).setFilterModule(5);
+        final List<String> writtenItems = new ArrayList<>();
+        IStep step = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Async")
+                .setReader(new GenerateNumbersReader().setMax(100))
+                .setProcessor(processor)
+                .setWriter(writtenItems::addAll)
+                .setCommitInterval(50)
+                .setAsyncProcessing(10, 0)
+                .build();
+
+        final long initTime = System.currentTimeMillis();
+        IStepStatus status = step.execute();
+        final long elapsed = System.currentTimeMillis() - initTime;
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(100, status.read());
+        assertEquals(20, status.skipped());
+        assertEquals(80, status.written());
+        final List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 100; i++)
+        {
+            if (i % 5 != 0) expected.add(Integer.toString(i));
+        }
+        assertEquals(expected, writtenItems);
+        assertTrue(processor.maxInFlight() <= 10);
+        assertTrue(elapsed < 1000, "Elapsed " + elapsed);
+    }
+
+    @Test
+    void primitiveChunks()
+    {
+        //Ints from 1 to 1000, the even ones tripled, read and written in arrays
+        final AtomicInteger next = new AtomicInteger(1);
+        final IIntReader reader = (chunk, max) -> {
+            int read = 0;
+            while (read < max && next.get() <= 1000)
+            {
+                chunk.addInt(next.getAndIncrement());
+                read++;
+            }
+            return read;
+        };
+        final IIntProcessor processor = (items, out) -> {
+            for (int i = 0; i < items.size(); i++)
+            {
+                final int value = items.getInt(i);
+                if (value % 2 == 0) out.addInt(value * 3);
+            }
+        };
+        final AtomicLong sum = new AtomicLong(0);
+        final IIntWriter writer = items -> {
+            for (int i = 0; i < items.size(); i++)
+            {
+                sum.addAndGet(items.getInt(i));
+            }
+        };
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Primitive")
+                .setReader(reader)
+                .setProcessor(processor)
+                .setWriter(writer)
+                .setCommitInterval(64)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(1000, status.read());
+        assertEquals(500, status.skipped());
+        assertEquals(500, status.written());
+        assertEquals(3L * 2 * (500 * 501 / 2), sum.get());
+    }
+
+    @Test
+    void adaptiveCommitInterval()
+    {
+        //Chunks of 100 items take about 100 ms, too long for the target
+        IStep chunkStep = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Adaptive")
+                .setReader(new GenerateNumbersReader().setMax(300))
+                .setProcessor(new FilterModuleProcessor())
+                .setWriter(new PrintNumbersWriter().setMaxMillisToWrite(2))
+                .setCommitInterval(100)
+                .setCommitIntervalBounds(5, 100)
+                .setTargetLatency(20)
+                .build();
+
+        ChunkStepStatus status = (ChunkStepStatus) chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(300, status.read());
+        assertEquals(300, status.written());
+        assertEquals(100, status.maxCommitInterval());
+        assertTrue(status.lastCommitInterval() < 100);
+        assertTrue(status.minCommitInterval() >= 5);
+        assertTrue(status.committed() > 3);
+
+        //Fast chunks grow until the max
+        chunkStep = IChunkStepBuilder.<Integer, String>instance()
+                .setName("Adaptive")
+                .setReader(new GenerateNumbersReader().setMax(300))
+                .setProcessor(new FilterModuleProcessor())
+                .setWriter(new PrintNumbersWriter())
+                .setCommitInterval(1)
+                .setCommitIntervalBounds(1, 50)
+                .setTargetLatency(1000)
+                .build();
+
+        status = (ChunkStepStatus) chunkStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(300, status.written());
+        assertEquals(1, status.minCommitInterval());
+        assertEquals(50, status.maxCommitInterval());
+        assertTrue(status.committed() < 300);
+
+        assertThrows(ValidationException.class, () -> IChunkStepBuilder.<Integer, String>instance()
+                .setName("Adaptive")
+                .setReader(new GenerateNumbersReader().setMax(300))
+                .setWriter(new PrintNumbersWriter())
+                .setCommitIntervalBounds(10, 5)
+                .setTargetLatency(1000)
+                .build());
+    }
+
+    private static class ReusedListsWriter implements IWriter<Integer>, IReusedChunks
+    {
+        private final Set<List<Integer>> lists = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        @Override
+        public void write(List<Integer> items)
+        {
+            lists.add(items);
+        }
+    }
 }
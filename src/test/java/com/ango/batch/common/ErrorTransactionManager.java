@@ -13,9 +13,12 @@ public class ErrorTransactionManager implements TransactionManager
     private final AtomicInteger numberOfBegins = new AtomicInteger(0);
     private final AtomicInteger numberOfCommits = new AtomicInteger(0);
     private final AtomicInteger numberOfRollbacks = new AtomicInteger(0);
+    private final AtomicInteger numberOfStatuses = new AtomicInteger(0);
     private int beginsToFail;
     private int commitsToFail;
     private int rollbacksToFail;
+    private int statusesToFail;
+    private int commitDuration;
     private int waitDuration;
     private String waitThread;
 
@@ -24,6 +27,8 @@ public class ErrorTransactionManager implements TransactionManager
         this.beginsToFail = -1;
         this.commitsToFail = -1;
         this.rollbacksToFail = -1;
+        this.statusesToFail = -1;
+        this.commitDuration = -1;
         this.waitDuration = -1;
         this.waitThread = "";
     }
@@ -46,6 +51,18 @@ public class ErrorTransactionManager implements TransactionManager
         return this;
     }
 
+    public ErrorTransactionManager setStatusesToFail(int statusesToFail)
+    {
+        this.statusesToFail = statusesToFail;
+        return this;
+    }
+
+    public ErrorTransactionManager setCommitDuration(int value)
+    {
+        this.commitDuration = value;
+        return this;
+    }
+
     public ErrorTransactionManager setWaitDuration(int value)
     {
         this.waitDuration = value;
@@ -86,6 +103,17 @@ public class ErrorTransactionManager implements TransactionManager
     @Override
     public void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException, SecurityException, IllegalStateException, SystemException
     {
+        if (commitDuration > 0)
+        {
+            try
+            {
+                Thread.sleep(commitDuration);
+            }
+            catch (InterruptedException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
         if (commitsToFail > 0)
         {
             if (waitThread.equalsIgnoreCase(Thread.currentThread().getName()) && waitDuration > 0)
@@ -110,7 +138,11 @@ public class ErrorTransactionManager implements TransactionManager
     @Override
     public int getStatus() throws SystemException
     {
-        return 0;
+        if (statusesToFail > 0 && numberOfStatuses.incrementAndGet() == statusesToFail)
+        {
+            return Status.STATUS_MARKED_ROLLBACK;
+        }
+        return Status.STATUS_ACTIVE;
     }
 
     @Override
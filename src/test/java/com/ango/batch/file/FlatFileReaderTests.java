@@ -0,0 +1,109 @@
+package com.ango.batch.file;
+
+import com.ango.batch.IChunkStepBuilder;
+import com.ango.batch.IPartitionStepBuilder;
+import com.ango.batch.IStep;
+import com.ango.batch.IStepStatus;
+import com.ango.batch.StepState;
+import com.ango.batch.chunk.multi.MultiChunkStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlatFileReaderTests
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    void csvFile() throws IOException
+    {
+        //Header, quoted fields with delimiters and quotes, CRLF and an empty line
+        Path file = Files.writeString(dir.resolve("people.csv"),
+                "id,name,amount\r\n" +
+                "1,\"Smith, John\",10.5\r\n" +
+                "2,\"Say \"\"hi\"\"\",-3\r\n" +
+                "\r\n" +
+                "3,,0", StandardCharsets.UTF_8);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+
+        IStep step = IChunkStepBuilder.<String, String>instance()
+                .setName("Csv")
+                .setThrowExceptions(true)
+                .setReader(new FlatFileReader<>(file, FlatFileFormat.csv().withHeader(),
+                        r -> r.intField(0) + "|" + (r.isEmpty(1) ? "-" : r.field(1)) + "|" + r.doubleField(2)))
+                .setProcessor(item -> item)
+                .setWriter(written::addAll)
+                .setCommitInterval(2)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(List.of("1|Smith, John|10.5", "2|Say \"hi\"|-3.0", "3|-|0.0"), written);
+    }
+
+    @Test
+    void fixedWidthFile() throws IOException
+    {
+        Path file = Files.writeString(dir.resolve("accounts.txt"),
+                "0000000001ACME      -1234\n" +
+                "0000000002Other     00042\n", StandardCharsets.UTF_8);
+
+        FlatFileReader<String> reader = new FlatFileReader<>(file, FlatFileFormat.fixedWidth(10, 10, 5),
+                r -> r.longField(0) + ":" + r.field(1) + ":" + r.intField(2));
+        reader.open();
+        assertEquals("1:ACME:-1234", reader.read());
+        assertEquals(file.toFile().length() / 2, Long.parseLong(reader.checkpoint()));
+        assertEquals("2:Other:42", reader.read());
+        assertNull(reader.read());
+        reader.restore("0");
+        assertEquals("1:ACME:-1234", reader.read());
+        reader.close();
+    }
+
+    @Test
+    void partitionedFile() throws IOException
+    {
+        //Lines of different lengths split by ranges and windows anywhere, every record read once
+        StringBuilder content = new StringBuilder("id;value\n");
+        for (int i = 1; i <= 1000; i++)
+        {
+            content.append(i).append(';').append("v".repeat(i % 17)).append('\n');
+        }
+        Path file = Files.writeString(dir.resolve("values.txt"), content, StandardCharsets.UTF_8);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+        IPartitionStepBuilder<Integer, Integer> builder = IPartitionStepBuilder.<Integer, Integer>instance()
+                .setName("Partitioned")
+                .setPartitions(3)
+                .setCommitInterval(50)
+                .setThrowExceptions(true)
+                .setPartitioner(new FlatFilePartitioner<>(file, FlatFileFormat.delimited(';').withHeader(),
+                        r -> r.intField(0), 64));
+        for (int i = 0; i < 3; i++)
+        {
+            builder.addProcessor(id -> id).addWriter(items -> items.forEach(id -> assertTrue(ids.add(id))));
+        }
+
+        MultiChunkStatus status = (MultiChunkStatus) builder.build().execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(1000, status.read());
+        assertEquals(1000, ids.size());
+        assertEquals(3, status.partitions().size());
+    }
+}
@@ -0,0 +1,84 @@
+package com.ango.batch.file;
+
+import com.ango.batch.IChunkStepBuilder;
+import com.ango.batch.IStep;
+import com.ango.batch.IStepStatus;
+import com.ango.batch.StepState;
+import com.ango.batch.chunk.GenerateNumbersReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TransactionalFileWriterTests
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    void rollbackTruncates() throws IOException
+    {
+        //The third chunk fails after its first lines reached the file, a buffer of 8 bytes flushes every line
+        Path file = dir.resolve("numbers.txt");
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Rollback")
+                .setThrowExceptions(false)
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(item -> item)
+                .setWriter(new TransactionalFileWriter<Integer>(file, (item, line) -> {
+                    if (item == 14)
+                    {
+                        throw new RuntimeException("Error formatting [" + item + "]");
+                    }
+                    line.append(item);
+                }).withBufferSize(8))
+                .setCommitInterval(5)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(lines(1, 10), Files.readAllLines(file));
+    }
+
+    @Test
+    void skippedItemsNotWritten() throws IOException
+    {
+        //The chunk is written again without the item that fails, the probes of the items are rolled back
+        Path file = dir.resolve("skipped.txt");
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Skip")
+                .setThrowExceptions(true)
+                .setReader(new GenerateNumbersReader().setMax(20))
+                .setProcessor(item -> item)
+                .setWriter(new TransactionalFileWriter<Integer>(file, (item, line) -> {
+                    if (item == 7)
+                    {
+                        throw new RuntimeException("Error formatting [" + item + "]");
+                    }
+                    line.append(item);
+                }).withBufferSize(16))
+                .setCommitInterval(5)
+                .setSkipLimit(1)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        List<String> expected = lines(1, 20);
+        expected.remove("7");
+        assertEquals(expected, Files.readAllLines(file));
+    }
+
+    private static List<String> lines(int from, int to)
+    {
+        return IntStream.rangeClosed(from, to).mapToObj(Integer::toString).collect(Collectors.toList());
+    }
+}
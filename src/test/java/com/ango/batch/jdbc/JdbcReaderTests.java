@@ -0,0 +1,136 @@
+package com.ango.batch.jdbc;
+
+import com.ango.batch.IChunkStepBuilder;
+import com.ango.batch.IPartitionStepBuilder;
+import com.ango.batch.IReader;
+import com.ango.batch.IStep;
+import com.ango.batch.IStepStatus;
+import com.ango.batch.StepState;
+import com.ango.batch.chunk.multi.MultiChunkStatus;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JdbcReaderTests
+{
+    private static final int ROWS = 1000;
+
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+
+    @BeforeEach
+    void createTable() throws SQLException
+    {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:reader");
+        //The database lives while a connection is open
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement())
+        {
+            statement.execute("CREATE TABLE ACCOUNT (ID BIGINT PRIMARY KEY, AMOUNT INT)");
+        }
+        //Keys with gaps, three ids of every four
+        try (PreparedStatement insert = keepAlive.prepareStatement("INSERT INTO ACCOUNT VALUES (?, ?)"))
+        {
+            for (int i = 1; i <= ROWS; i++)
+            {
+                insert.setLong(1, i + i / 3);
+                insert.setInt(2, i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @AfterEach
+    void dropTable() throws SQLException
+    {
+        keepAlive.close();
+    }
+
+    @Test
+    void cursorReader()
+    {
+        AtomicLong sum = new AtomicLong();
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Cursor")
+                .setThrowExceptions(true)
+                .setReader(new JdbcCursorReader<>(dataSource, "SELECT AMOUNT FROM ACCOUNT WHERE AMOUNT > ? ORDER BY ID",
+                        row -> row.getInt(1)).withParameters(100).withFetchSize(64))
+                .setProcessor(amount -> amount)
+                .setWriter(items -> items.forEach(sum::addAndGet))
+                .setCommitInterval(50)
+                .build();
+
+        IStepStatus status = step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(ROWS - 100, status.read());
+        assertEquals((long) ROWS * (ROWS + 1) / 2 - 100 * 101 / 2, sum.get());
+    }
+
+    @Test
+    void restoreCursor() throws IOException
+    {
+        JdbcCursorReader<Integer> reader = new JdbcCursorReader<>(dataSource, "SELECT AMOUNT FROM ACCOUNT ORDER BY ID",
+                row -> row.getInt(1));
+        reader.open();
+        reader.restore("998");
+        assertEquals(999, reader.read());
+        assertEquals(1000, reader.read());
+        assertNull(reader.read());
+        assertEquals("1000", reader.checkpoint());
+        reader.close();
+    }
+
+    @Test
+    void keysetPartitions()
+    {
+        Set<Integer> amounts = ConcurrentHashMap.newKeySet();
+        IPartitionStepBuilder<Integer, Integer> builder = IPartitionStepBuilder.<Integer, Integer>instance()
+                .setName("Keyset")
+                .setPartitions(4)
+                .setCommitInterval(100)
+                .setThrowExceptions(true)
+                .setPartitioner(new KeysetPartitioner<>(dataSource, "ACCOUNT", "ID", "AMOUNT", row -> row.getInt(1))
+                        .withFetchSize(128));
+        for (int i = 0; i < 4; i++)
+        {
+            builder.addProcessor(amount -> amount).addWriter(items -> items.forEach(amount -> assertTrue(amounts.add(amount))));
+        }
+
+        MultiChunkStatus status = (MultiChunkStatus) builder.build().execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(ROWS, status.read());
+        assertEquals(ROWS, amounts.size());
+        assertEquals(4, status.partitions().size());
+    }
+
+    @Test
+    void emptyTable() throws SQLException
+    {
+        try (Statement statement = keepAlive.createStatement())
+        {
+            statement.execute("DELETE FROM ACCOUNT");
+        }
+        List<IReader<Integer>> readers = new KeysetPartitioner<>(dataSource, "ACCOUNT", "ID", "AMOUNT", row -> row.getInt(1))
+                .partition(4);
+        assertEquals(1, readers.size());
+    }
+}
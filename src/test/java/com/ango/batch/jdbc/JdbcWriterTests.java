@@ -0,0 +1,130 @@
+package com.ango.batch.jdbc;
+
+import com.ango.batch.IChunkStepBuilder;
+import com.ango.batch.IStep;
+import com.ango.batch.StepState;
+import com.ango.batch.chunk.GenerateNumbersReader;
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JdbcWriterTests
+{
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+
+    @BeforeEach
+    void createTable() throws SQLException
+    {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:writer");
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement())
+        {
+            statement.execute("CREATE TABLE NUMBER (ID INT PRIMARY KEY, SQUARE BIGINT)");
+        }
+    }
+
+    @AfterEach
+    void dropTable() throws SQLException
+    {
+        keepAlive.close();
+    }
+
+    @Test
+    void batchInsert() throws SQLException
+    {
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Insert")
+                .setThrowExceptions(true)
+                .setReader(new GenerateNumbersReader().setMax(95))
+                .setProcessor(item -> item)
+                .setWriter(new JdbcBatchWriter<Integer>(dataSource, "INSERT INTO NUMBER (ID, SQUARE) VALUES (?, ?)", JdbcWriterTests::set)
+                        .withBatchSize(7))
+                .setCommitInterval(20)
+                .build();
+
+        ChunkStepStatus status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(95, status.affectedRows());
+        assertEquals(95, count("SELECT COUNT(*) FROM NUMBER"));
+    }
+
+    @Test
+    void multiRowUpsert() throws SQLException
+    {
+        //The rows of each chunk go in statements of 8 and one statement with the rest
+        try (Statement statement = keepAlive.createStatement())
+        {
+            statement.execute("INSERT INTO NUMBER VALUES (1, -1), (2, -1)");
+        }
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Upsert")
+                .setThrowExceptions(true)
+                .setReader(new GenerateNumbersReader().setMax(50))
+                .setProcessor(item -> item)
+                .setWriter(new JdbcBatchWriter<Integer>(dataSource, "MERGE INTO NUMBER (ID, SQUARE) KEY (ID) VALUES (?, ?)", JdbcWriterTests::set)
+                        .withMultiRowValues(8)
+                        .withBatchSize(16))
+                .setCommitInterval(20)
+                .build();
+
+        ChunkStepStatus status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(50, status.affectedRows());
+        assertEquals(50, count("SELECT COUNT(*) FROM NUMBER"));
+        assertEquals(50 * 51 * 101 / 6, count("SELECT SUM(SQUARE) FROM NUMBER"));
+    }
+
+    @Test
+    void rolledBackChunk() throws SQLException
+    {
+        //The third chunk fails on a duplicated key, its rows are not kept nor counted
+        try (Statement statement = keepAlive.createStatement())
+        {
+            statement.execute("INSERT INTO NUMBER VALUES (55, 0)");
+        }
+        IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                .setName("Rollback")
+                .setThrowExceptions(false)
+                .setReader(new GenerateNumbersReader().setMax(100))
+                .setProcessor(item -> item)
+                .setWriter(new JdbcBatchWriter<Integer>(dataSource, "INSERT INTO NUMBER (ID, SQUARE) VALUES (?, ?)", JdbcWriterTests::set)
+                        .withMultiRowValues(4))
+                .setCommitInterval(20)
+                .build();
+
+        ChunkStepStatus status = (ChunkStepStatus) step.execute();
+
+        assertEquals(StepState.Failed, status.state());
+        assertEquals(40, status.affectedRows());
+        assertEquals(41, count("SELECT COUNT(*) FROM NUMBER"));
+    }
+
+    private static void set(Integer item, PreparedStatement statement, int first) throws SQLException
+    {
+        statement.setInt(first, item);
+        statement.setLong(first + 1, (long) item * item);
+    }
+
+    private long count(String sql) throws SQLException
+    {
+        try (Statement statement = keepAlive.createStatement(); ResultSet result = statement.executeQuery(sql))
+        {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.ango.batch.StepState;
 import com.ango.batch.common.ErrorTransactionManager;
 import com.ango.batch.exceptions.SaveStateException;
 import com.ango.batch.exceptions.StepExecutionException;
+import com.ango.batch.thread.ThreadMode;
 import com.ango.batch.tx.BatchTransactionManager;
 import org.junit.jupiter.api.Test;
 
@@ -14,6 +15,7 @@ import javax.transaction.SystemException;
 import java.io.IOException;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class TaskletTests
 {
@@ -231,4 +233,33 @@ public class TaskletTests
         assertEquals(SaveStateException.class, status.exceptions().get(0).getClass());
         assertEquals(0, status.committed());
     }
+
+    @Test
+    void testVirtualThread()
+    {
+        assumeTrue(ThreadMode.Virtual.isSupported());
+
+        IStep taskletStep = ITaskletStepBuilder.instance()
+                .setName("DoNothing")
+                .setThrowExceptions(true)
+                .setTransactional(true)
+                .setThreadMode(ThreadMode.Virtual)
+                .setTasklet(new DoNothingTasklet(false, false, false))
+                .build();
+
+        IStepStatus status = taskletStep.execute();
+
+        assertEquals(StepState.Completed, status.state());
+        assertEquals(0, status.exceptions().size());
+        assertEquals(1, status.committed());
+
+        IStep failedStep = ITaskletStepBuilder.instance()
+                .setName("DoNothing")
+                .setThrowExceptions(true)
+                .setThreadMode(ThreadMode.Virtual)
+                .setTasklet(new DoNothingTasklet(true, false, false))
+                .build();
+
+        assertThrows(StepExecutionException.class, failedStep::execute);
+    }
 }
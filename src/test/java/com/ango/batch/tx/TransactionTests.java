@@ -0,0 +1,284 @@
+package com.ango.batch.tx;
+
+import com.ango.batch.IChunkStepBuilder;
+import com.ango.batch.IStep;
+import com.ango.batch.StepState;
+import com.ango.batch.chunk.GenerateNumbersReader;
+import com.ango.batch.chunk.simple.ChunkStepStatus;
+import com.ango.batch.jdbc.JdbcBatchWriter;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import javax.sql.XADataSource;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionManager;
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransactionTests
+{
+    @BeforeAll
+    static void logDir()
+    {
+        System.setProperty("com.atomikos.icatch.log_base_dir", "target/atomikos");
+        System.setProperty("com.atomikos.icatch.output_dir", "target/atomikos");
+    }
+
+    @AfterAll
+    static void shutdown()
+    {
+        BatchTransactionManager.shutdown();
+    }
+
+    @Test
+    void onePhaseCommit() throws Exception
+    {
+        //A single resource skips the prepare
+        TransactionManager tm = BatchTransactionManager.getInstance(TransactionMode.Local);
+        RecordingResource resource = new RecordingResource();
+
+        tm.begin();
+        tm.getTransaction().enlistResource(resource);
+        tm.commit();
+
+        assertEquals(List.of("start", "end", "commit 1PC"), resource.calls);
+        assertEquals(Status.STATUS_NO_TRANSACTION, tm.getStatus());
+    }
+
+    @Test
+    void twoPhaseCommit() throws Exception
+    {
+        TransactionManager tm = BatchTransactionManager.getInstance(TransactionMode.Local);
+        RecordingResource first = new RecordingResource();
+        RecordingResource second = new RecordingResource();
+
+        tm.begin();
+        tm.getTransaction().enlistResource(first);
+        tm.getTransaction().enlistResource(second);
+        tm.getTransaction().enlistResource(first);
+        tm.commit();
+
+        assertEquals(List.of("start", "end", "prepare", "commit 2PC"), first.calls);
+        assertEquals(List.of("start", "end", "prepare", "commit 2PC"), second.calls);
+    }
+
+    @Test
+    void rollbackVote() throws Exception
+    {
+        TransactionManager tm = BatchTransactionManager.getInstance(TransactionMode.Local);
+        RecordingResource first = new RecordingResource();
+        RecordingResource second = new RecordingResource().setRollbackVote(true);
+
+        tm.begin();
+        tm.getTransaction().enlistResource(first);
+        tm.getTransaction().enlistResource(second);
+
+        assertThrows(RollbackException.class, tm::commit);
+        assertEquals(List.of("start", "end", "prepare", "rollback"), first.calls);
+        assertEquals(List.of("start", "end", "prepare", "rollback"), second.calls);
+        assertEquals(Status.STATUS_NO_TRANSACTION, tm.getStatus());
+    }
+
+    @Test
+    void lastResource() throws Exception
+    {
+        //The resource without XA commits after the others are prepared, and not at all if one of them fails
+        TransactionManager tm = BatchTransactionManager.getInstance(TransactionMode.Local);
+        RecordingResource resource = new RecordingResource();
+
+        tm.begin();
+        tm.getTransaction().enlistResource(resource);
+        ((BatchTransaction) tm.getTransaction()).registerLastResource(new RecordingSynchronization(resource.calls, "jdbc", false));
+        tm.commit();
+
+        assertEquals(List.of("start", "end", "prepare", "jdbc before", "commit 2PC", "jdbc after " + Status.STATUS_COMMITTED),
+                resource.calls);
+
+        List<String> calls = new ArrayList<>();
+        tm.begin();
+        ((BatchTransaction) tm.getTransaction()).registerLastResource(new RecordingSynchronization(calls, "jdbc", false));
+        tm.getTransaction().registerSynchronization(new RecordingSynchronization(calls, "file", true));
+
+        assertThrows(RollbackException.class, tm::commit);
+        assertEquals(List.of("file before", "file after " + Status.STATUS_ROLLEDBACK, "jdbc after " + Status.STATUS_ROLLEDBACK), calls);
+
+        //A second one could fail after the first committed
+        tm.begin();
+        ((BatchTransaction) tm.getTransaction()).registerLastResource(new RecordingSynchronization(calls, "jdbc", false));
+        assertThrows(IllegalStateException.class,
+                () -> ((BatchTransaction) tm.getTransaction()).registerLastResource(new RecordingSynchronization(calls, "other", false)));
+        tm.rollback();
+    }
+
+    @Test
+    void localXaDataSource() throws Exception
+    {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:local");
+        assertRolledBackChunk(dataSource, dataSource, BatchTransactionManager.getInstance(TransactionMode.Local));
+    }
+
+    @Test
+    void atomikos() throws Exception
+    {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:atomikos");
+        XADataSource enlisted = BatchTransactionManager.addResource("h2-atomikos", dataSource);
+        assertRolledBackChunk(dataSource, enlisted, BatchTransactionManager.getInstance(TransactionMode.XA));
+    }
+
+    /**
+     * The third chunk fails on a duplicated key, the connection enlisted in the transaction rolls it back
+     */
+    private static void assertRolledBackChunk(DataSource dataSource, XADataSource xaDataSource, TransactionManager tm) throws SQLException
+    {
+        try (Connection keepAlive = dataSource.getConnection(); Statement statement = keepAlive.createStatement())
+        {
+            statement.execute("CREATE TABLE NUMBER (ID INT PRIMARY KEY)");
+            statement.execute("INSERT INTO NUMBER VALUES (55)");
+
+            IStep step = IChunkStepBuilder.<Integer, Integer>instance()
+                    .setName("Xa")
+                    .setThrowExceptions(false)
+                    .setTransactionManager(tm)
+                    .setReader(new GenerateNumbersReader().setMax(100))
+                    .setProcessor(item -> item)
+                    .setWriter(JdbcBatchWriter.<Integer>xa(xaDataSource, "INSERT INTO NUMBER (ID) VALUES (?)",
+                            (item, insert, first) -> insert.setInt(first, item)).withTransactionManager(tm))
+                    .setCommitInterval(20)
+                    .build();
+
+            ChunkStepStatus status = (ChunkStepStatus) step.execute();
+
+            assertEquals(StepState.Failed, status.state());
+            assertEquals(2, status.committed());
+            assertEquals(40, status.affectedRows());
+            try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM NUMBER"))
+            {
+                count.next();
+                assertEquals(41, count.getInt(1));
+            }
+        }
+    }
+
+    private static class RecordingSynchronization implements Synchronization
+    {
+        private final List<String> calls;
+        private final String name;
+        private final boolean isFailing;
+
+        RecordingSynchronization(List<String> calls, String name, boolean isFailing)
+        {
+            this.calls = calls;
+            this.name = name;
+            this.isFailing = isFailing;
+        }
+
+        @Override
+        public void beforeCompletion()
+        {
+            calls.add(name + " before");
+            if (isFailing)
+            {
+                throw new IllegalStateException("Error before the completion of " + name);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status)
+        {
+            calls.add(name + " after " + status);
+        }
+    }
+
+    private static class RecordingResource implements XAResource
+    {
+        private final List<String> calls = new ArrayList<>();
+        private boolean isRollbackVote = false;
+
+        RecordingResource setRollbackVote(boolean value)
+        {
+            this.isRollbackVote = value;
+            return this;
+        }
+
+        @Override
+        public void start(Xid xid, int flags)
+        {
+            calls.add("start");
+        }
+
+        @Override
+        public void end(Xid xid, int flags)
+        {
+            calls.add("end");
+        }
+
+        @Override
+        public int prepare(Xid xid) throws XAException
+        {
+            calls.add("prepare");
+            if (isRollbackVote)
+            {
+                throw new XAException(XAException.XA_RBROLLBACK);
+            }
+            return XA_OK;
+        }
+
+        @Override
+        public void commit(Xid xid, boolean onePhase)
+        {
+            calls.add(onePhase ? "commit 1PC" : "commit 2PC");
+        }
+
+        @Override
+        public void rollback(Xid xid)
+        {
+            calls.add("rollback");
+        }
+
+        @Override
+        public void forget(Xid xid)
+        {
+        }
+
+        @Override
+        public Xid[] recover(int flag)
+        {
+            return new Xid[0];
+        }
+
+        @Override
+        public boolean isSameRM(XAResource other)
+        {
+            return other == this;
+        }
+
+        @Override
+        public int getTransactionTimeout()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean setTransactionTimeout(int seconds)
+        {
+            return false;
+        }
+    }
+}